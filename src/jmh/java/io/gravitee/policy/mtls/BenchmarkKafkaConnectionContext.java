@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls;
+
+import io.gravitee.el.TemplateEngine;
+import io.gravitee.gateway.reactive.api.ExecutionWarn;
+import io.gravitee.gateway.reactive.api.context.TlsSession;
+import io.gravitee.gateway.reactive.api.context.kafka.KafkaConnectionContext;
+import io.gravitee.gateway.reactive.api.context.kafka.topicidentity.TopicIdentity;
+import io.gravitee.gateway.reactive.api.context.kafka.topicidentity.TopicIdentityRegistry;
+import io.gravitee.gateway.reactive.api.tracing.Tracer;
+import io.gravitee.node.api.opentelemetry.Span;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.security.auth.callback.Callback;
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.security.auth.KafkaPrincipal;
+
+/**
+ * Minimal {@link KafkaConnectionContext} built around what the policy needs: the TLS session and the attributes. The
+ * other components are harmless defaults, so that a benchmark keeps running if the policy starts using them.
+ *
+ * @author GraviteeSource Team
+ */
+class BenchmarkKafkaConnectionContext implements KafkaConnectionContext {
+
+    private static final Span NO_OP_SPAN = noOp(Span.class);
+    private static final Tracer NO_OP_TRACER = new Tracer(null, noOp(io.gravitee.node.api.opentelemetry.Tracer.class));
+
+    private final TlsSession tlsSession;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final Map<String, Object> internalAttributes = new HashMap<>();
+    private final Map<String, TopicIdentity> topicIdentities = new HashMap<>();
+    private TemplateEngine templateEngine;
+
+    BenchmarkKafkaConnectionContext(TlsSession tlsSession) {
+        this.tlsSession = tlsSession;
+    }
+
+    @Override
+    public String id() {
+        return "benchmark-connection";
+    }
+
+    @Override
+    public Callback[] callbacks() {
+        return new Callback[0];
+    }
+
+    @Override
+    public String saslMechanism() {
+        return null;
+    }
+
+    @Override
+    public KafkaPrincipal principal() {
+        return KafkaPrincipal.ANONYMOUS;
+    }
+
+    @Override
+    public TopicIdentityRegistry topicIdentityRegistry() {
+        return new TopicIdentityRegistry() {
+            @Override
+            public Optional<TopicIdentity> findByName(String name) {
+                return Optional.ofNullable(topicIdentities.get(name));
+            }
+
+            @Override
+            public Optional<TopicIdentity> findById(Uuid id) {
+                return topicIdentities.values().stream().filter(identity -> id.equals(identity.id())).findFirst();
+            }
+
+            @Override
+            public void put(TopicIdentity identity) {
+                topicIdentities.put(identity.name(), identity);
+            }
+        };
+    }
+
+    @Override
+    public <T> T getComponent(Class<T> componentClass) {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void putAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String name) {
+        return (T) attributes.get(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getAttributeAsList(String name) {
+        return (List<T>) attributes.get(name);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return attributes.keySet();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAttributes() {
+        return (Map<String, T>) attributes;
+    }
+
+    @Override
+    public void setInternalAttribute(String name, Object value) {
+        internalAttributes.put(name, value);
+    }
+
+    @Override
+    public void putInternalAttribute(String name, Object value) {
+        internalAttributes.put(name, value);
+    }
+
+    @Override
+    public void removeInternalAttribute(String name) {
+        internalAttributes.remove(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getInternalAttribute(String name) {
+        return (T) internalAttributes.get(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getInternalAttributes() {
+        return (Map<String, T>) internalAttributes;
+    }
+
+    @Override
+    public TemplateEngine getTemplateEngine() {
+        if (templateEngine == null) {
+            templateEngine = TemplateEngine.templateEngine();
+        }
+        return templateEngine;
+    }
+
+    @Override
+    public Tracer getTracer() {
+        return NO_OP_TRACER;
+    }
+
+    @Override
+    public long timestamp() {
+        return 0;
+    }
+
+    @Override
+    public String remoteAddress() {
+        return "127.0.0.1";
+    }
+
+    @Override
+    public String localAddress() {
+        return "127.0.0.1";
+    }
+
+    @Override
+    public TlsSession tlsSession() {
+        return tlsSession;
+    }
+
+    @Override
+    public void warnWith(ExecutionWarn warn) {}
+
+    /**
+     * @return an implementation of the interface doing nothing, whose methods return default values and no-op spans.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T noOp(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == Span.class) {
+                return NO_OP_SPAN;
+            }
+            if (returnType.isPrimitive() && returnType != void.class) {
+                return Array.get(Array.newInstance(returnType, 1), 0);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls;
+
+import io.gravitee.gateway.reactive.api.context.TlsSession;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * Minimal {@link TlsSession} mimicking the JSSE behavior that matters to the policy: the peer certificate array is cloned
+ * on each call, and an unverified peer raises a new {@link SSLPeerUnverifiedException} each time.
+ *
+ * @author GraviteeSource Team
+ */
+class BenchmarkTlsSession implements TlsSession {
+
+    private final Certificate[] peerCertificates;
+    private final boolean peerUnverified;
+
+    private BenchmarkTlsSession(Certificate[] peerCertificates, boolean peerUnverified) {
+        this.peerCertificates = peerCertificates;
+        this.peerUnverified = peerUnverified;
+    }
+
+    static BenchmarkTlsSession withPeerCertificates(Certificate... peerCertificates) {
+        return new BenchmarkTlsSession(peerCertificates, false);
+    }
+
+    static BenchmarkTlsSession peerUnverified() {
+        return new BenchmarkTlsSession(null, true);
+    }
+
+    @Override
+    public Certificate[] getPeerCertificates() throws SSLPeerUnverifiedException {
+        if (peerUnverified) {
+            throw new SSLPeerUnverifiedException("peer not authenticated");
+        }
+        return peerCertificates.clone();
+    }
+
+    @Override
+    public boolean isSSLConnection() {
+        return true;
+    }
+
+    @Override
+    public byte[] getId() {
+        return new byte[0];
+    }
+
+    @Override
+    public SSLSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return 0;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return 0;
+    }
+
+    @Override
+    public void invalidate() {}
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Override
+    public void putValue(String name, Object value) {}
+
+    @Override
+    public Object getValue(String name) {
+        return null;
+    }
+
+    @Override
+    public void removeValue(String name) {}
+
+    @Override
+    public String[] getValueNames() {
+        return new String[0];
+    }
+
+    @Override
+    public Certificate[] getLocalCertificates() {
+        return null;
+    }
+
+    @Override
+    public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+        return null;
+    }
+
+    @Override
+    public Principal getLocalPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getCipherSuite() {
+        return "TLS_AES_128_GCM_SHA256";
+    }
+
+    @Override
+    public String getProtocol() {
+        return "TLSv1.3";
+    }
+
+    @Override
+    public String getPeerHost() {
+        return "localhost";
+    }
+
+    @Override
+    public int getPeerPort() {
+        return 0;
+    }
+
+    @Override
+    public int getPacketBufferSize() {
+        return 16709;
+    }
+
+    @Override
+    public int getApplicationBufferSize() {
+        return 16384;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls;
+
+import io.gravitee.gateway.reactive.api.context.TlsSession;
+import io.gravitee.gateway.reactive.api.policy.SecurityToken;
+import io.gravitee.gateway.reactive.core.context.AbstractRequest;
+import io.gravitee.gateway.reactive.core.context.AbstractResponse;
+import io.gravitee.gateway.reactive.core.context.DefaultExecutionContext;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.reporter.api.v4.metric.Metrics;
+import io.reactivex.rxjava3.core.CompletableObserver;
+import io.reactivex.rxjava3.core.MaybeObserver;
+import io.reactivex.rxjava3.disposables.Disposable;
+import java.io.InputStream;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the hot paths of {@link MtlsPolicy} with stubbed TLS sessions.
+ * <p>
+ * The execution contexts are reused between invocations and only the validation shared between the phases is reset, so
+ * that the figures (and the allocations reported by the GC profiler) are the ones of the policy, not of the context.
+ * Run with <code>mvn -Pbenchmark test</code>.
+ *
+ * @author GraviteeSource Team
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MtlsPolicyBenchmark {
+
+    public enum Scenario {
+        VALID,
+        CERTIFICATE_MISSING,
+        PEER_UNVERIFIED,
+    }
+
+    @Param({ "VALID", "CERTIFICATE_MISSING", "PEER_UNVERIFIED" })
+    public Scenario scenario;
+
+    @Param({ "rsa-2048", "rsa-4096", "ec-p256" })
+    public String keyType;
+
+    @Param({ "1", "3" })
+    public int chainLength;
+
+    private MtlsPolicy policy;
+    private DefaultExecutionContext httpContext;
+    private BenchmarkKafkaConnectionContext kafkaContext;
+    private BlackholeObserver observer;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) throws Exception {
+        policy = new MtlsPolicy(new MtlsPolicyConfiguration());
+        observer = new BlackholeObserver(blackhole);
+
+        final TlsSession tlsSession =
+            switch (scenario) {
+                case VALID -> BenchmarkTlsSession.withPeerCertificates(loadChain(keyType, chainLength));
+                case CERTIFICATE_MISSING -> BenchmarkTlsSession.withPeerCertificates();
+                case PEER_UNVERIFIED -> BenchmarkTlsSession.peerUnverified();
+            };
+
+        httpContext = new DefaultExecutionContext(
+            new AbstractRequest() {
+                @Override
+                public TlsSession tlsSession() {
+                    return tlsSession;
+                }
+            },
+            new AbstractResponse() {}
+        );
+        httpContext.metrics(Metrics.builder().build());
+        kafkaContext = new BenchmarkKafkaConnectionContext(tlsSession);
+    }
+
+    @Benchmark
+    public void httpExtractSecurityToken() {
+        httpContext.removeInternalAttribute(MtlsPolicy.ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        policy.extractSecurityToken(httpContext).subscribe(observer);
+    }
+
+    @Benchmark
+    public void httpOnRequest() {
+        httpContext.removeInternalAttribute(MtlsPolicy.ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        policy.onRequest(httpContext).subscribe(observer);
+    }
+
+    /**
+     * Both security phases of a single HTTP request, sharing the validation as the gateway does.
+     */
+    @Benchmark
+    public void httpRequest() {
+        httpContext.removeInternalAttribute(MtlsPolicy.ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        policy.extractSecurityToken(httpContext).subscribe(observer);
+        policy.onRequest(httpContext).subscribe(observer);
+    }
+
+    @Benchmark
+    public void kafkaExtractSecurityToken() {
+        kafkaContext.removeInternalAttribute(MtlsPolicy.ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        policy.extractSecurityToken(kafkaContext).subscribe(observer);
+    }
+
+    @Benchmark
+    public void kafkaAuthenticate() {
+        kafkaContext.removeInternalAttribute(MtlsPolicy.ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        policy.authenticate(kafkaContext).subscribe(observer);
+    }
+
+    private static Certificate[] loadChain(String keyType, int chainLength) throws Exception {
+        final String[] roles = { "leaf", "intermediate", "root" };
+        final CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        final Certificate[] chain = new Certificate[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            try (InputStream is = MtlsPolicyBenchmark.class.getResourceAsStream("/benchmark/" + keyType + "-" + roles[i] + ".pem")) {
+                chain[i] = certificateFactory.generateCertificate(is);
+            }
+        }
+        return chain;
+    }
+
+    private record BlackholeObserver(Blackhole blackhole) implements CompletableObserver, MaybeObserver<SecurityToken> {
+        @Override
+        public void onSubscribe(Disposable d) {
+            // Nothing to do, everything is synchronous.
+        }
+
+        @Override
+        public void onSuccess(SecurityToken securityToken) {
+            blackhole.consume(securityToken);
+        }
+
+        @Override
+        public void onComplete() {
+            blackhole.consume(true);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            blackhole.consume(e);
+        }
+    }
+}
@@ -32,20 +32,79 @@ package io.gravitee.policy.mtls;
  */
 
 import io.gravitee.common.http.HttpStatusCode;
-import io.gravitee.common.security.CertificateUtils;
+import io.gravitee.gateway.api.http.HttpHeaderNames;
 import io.gravitee.gateway.reactive.api.ExecutionFailure;
+import io.gravitee.gateway.reactive.api.context.ContextAttributes;
 import io.gravitee.gateway.reactive.api.context.TlsSession;
+import io.gravitee.gateway.reactive.api.context.base.BaseExecutionContext;
+import io.gravitee.gateway.reactive.api.context.http.HttpBaseRequest;
 import io.gravitee.gateway.reactive.api.context.http.HttpPlainExecutionContext;
 import io.gravitee.gateway.reactive.api.context.kafka.KafkaConnectionContext;
+import io.gravitee.gateway.reactive.api.context.kafka.KafkaExecutionContext;
 import io.gravitee.gateway.reactive.api.policy.SecurityToken;
 import io.gravitee.gateway.reactive.api.policy.http.HttpSecurityPolicy;
 import io.gravitee.gateway.reactive.api.policy.kafka.KafkaSecurityPolicy;
+import io.gravitee.policy.mtls.audit.AuditStream;
+import io.gravitee.policy.mtls.audit.CertificateAuditEvent;
+import io.gravitee.policy.mtls.audit.CertificateAuditor;
+import io.gravitee.policy.mtls.authorization.AuthorizationClient;
+import io.gravitee.policy.mtls.authorization.AuthorizationStatus;
+import io.gravitee.policy.mtls.authorization.CertificateAuthorizer;
+import io.gravitee.policy.mtls.authorization.VertxAuthorizationClient;
+import io.gravitee.policy.mtls.binding.BoundTokenVerifier;
+import io.gravitee.policy.mtls.certificate.CertificateAttributes;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.certificate.CertificateStore;
+import io.gravitee.policy.mtls.certificate.CertificateValidity;
+import io.gravitee.policy.mtls.certificate.ChainThumbprints;
+import io.gravitee.policy.mtls.certificate.ClientCertificate;
+import io.gravitee.policy.mtls.certificate.ClientCertificatePrincipal;
+import io.gravitee.policy.mtls.certificate.Thumbprint;
+import io.gravitee.policy.mtls.certificate.ThumbprintDigester;
+import io.gravitee.policy.mtls.certificate.Thumbprints;
+import io.gravitee.policy.mtls.configuration.AuthorizationFailureMode;
+import io.gravitee.policy.mtls.configuration.CertificateSource;
 import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.policy.mtls.configuration.OcspFailureMode;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
 import io.gravitee.policy.mtls.exception.MtlsPolicyException;
+import io.gravitee.policy.mtls.expiry.ExpiryWheel;
+import io.gravitee.policy.mtls.file.CertificateLists;
+import io.gravitee.policy.mtls.file.CertificateListsLoader;
+import io.gravitee.policy.mtls.forwarded.ForwardedCertificateParser;
+import io.gravitee.policy.mtls.forwarded.TrustedProxies;
+import io.gravitee.policy.mtls.metrics.MtlsMetrics;
+import io.gravitee.policy.mtls.metrics.MtlsMetrics.Phase;
+import io.gravitee.policy.mtls.metrics.MtlsMetrics.Protocol;
+import io.gravitee.policy.mtls.offload.CertificateWorker;
+import io.gravitee.policy.mtls.ratelimit.RateLimiter;
+import io.gravitee.policy.mtls.revocation.CrlRevocationChecker;
+import io.gravitee.policy.mtls.revocation.OcspChecker;
+import io.gravitee.policy.mtls.revocation.OcspClient;
+import io.gravitee.policy.mtls.revocation.OcspStatus;
+import io.gravitee.policy.mtls.revocation.VertxOcspClient;
+import io.gravitee.policy.mtls.rules.CertificateRules;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.core.SingleEmitter;
+import io.vertx.core.Context;
+import io.vertx.rxjava3.core.Vertx;
+import java.nio.file.Path;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import lombok.extern.slf4j.Slf4j;
 
@@ -60,10 +119,170 @@ public class MtlsPolicy implements HttpSecurityPolicy, KafkaSecurityPolicy {
     public static final String CLIENT_CERTIFICATE_INVALID = "CLIENT_CERTIFICATE_INVALID";
     public static final String FAILURE_MESSAGE = "Unauthorized";
     public static final String SSL_SESSION_REQUIRED = "SSL_SESSION_REQUIRED";
+    public static final String CLIENT_CERTIFICATE_DENIED = "CLIENT_CERTIFICATE_DENIED";
+    public static final String CLIENT_CERTIFICATE_NOT_ALLOWED = "CLIENT_CERTIFICATE_NOT_ALLOWED";
+    public static final String CLIENT_CERTIFICATE_NOT_MATCHING = "CLIENT_CERTIFICATE_NOT_MATCHING";
+    public static final String CLIENT_CERTIFICATE_REVOKED = "CLIENT_CERTIFICATE_REVOKED";
+    public static final String CLIENT_CERTIFICATE_REVOCATION_UNKNOWN = "CLIENT_CERTIFICATE_REVOCATION_UNKNOWN";
+    public static final String CLIENT_CERTIFICATE_UNTRUSTED_PROXY = "CLIENT_CERTIFICATE_UNTRUSTED_PROXY";
+    public static final String CLIENT_CERTIFICATE_UNTRUSTED = "CLIENT_CERTIFICATE_UNTRUSTED";
+    public static final String CLIENT_CERTIFICATE_EXPIRED = "CLIENT_CERTIFICATE_EXPIRED";
+    public static final String CLIENT_CERTIFICATE_NOT_YET_VALID = "CLIENT_CERTIFICATE_NOT_YET_VALID";
+    public static final String CLIENT_CERTIFICATE_RATE_LIMITED = "CLIENT_CERTIFICATE_RATE_LIMITED";
+    public static final String CLIENT_CERTIFICATE_UNAUTHORIZED = "CLIENT_CERTIFICATE_UNAUTHORIZED";
+    public static final String CLIENT_CERTIFICATE_AUTHORIZATION_UNKNOWN = "CLIENT_CERTIFICATE_AUTHORIZATION_UNKNOWN";
+    public static final String CLIENT_CERTIFICATE_NOT_BOUND = "CLIENT_CERTIFICATE_NOT_BOUND";
+    public static final String CLIENT_CERTIFICATE_VALIDATION_OVERLOADED = "CLIENT_CERTIFICATE_VALIDATION_OVERLOADED";
+    public static final String RATE_LIMITED_MESSAGE = "Too Many Requests";
+    public static final String OVERLOADED_MESSAGE = "Service Unavailable";
+    /**
+     * Attribute of the Kafka connections holding the {@link ClientCertificatePrincipal} of the authenticated client.
+     */
+    public static final String ATTR_CLIENT_CERTIFICATE_PRINCIPAL = "mtls.principal";
+    /**
+     * Attribute of the HTTP requests holding the {@link ClientCertificate} of the client.
+     */
+    public static final String ATTR_CLIENT_CERTIFICATE = "mtls.certificate";
+    static final String ATTR_INTERNAL_CERTIFICATE_VALIDATION = "mtls.certificateValidation";
+    private static final String KAFKA_FAILURE_MESSAGE = "Certificate validation failed for Kafka connection: %s";
+
+    /**
+     * Rejections only depend on the error key. The Kafka ones are immutable and shared by all the connections, whereas an
+     * {@link ExecutionFailure} is mutable and may be enriched by the gateway once interrupted, so one is built per rejection.
+     */
+    private static final Map<String, Supplier<ExecutionFailure>> EXECUTION_FAILURES = new HashMap<>();
+    private static final Map<String, Completable> KAFKA_FAILURES = new HashMap<>();
+
+    static {
+        registerFailure(SSL_SESSION_REQUIRED);
+        registerFailure(CLIENT_CERTIFICATE_MISSING);
+        registerFailure(CLIENT_CERTIFICATE_INVALID);
+        registerFailure(CLIENT_CERTIFICATE_DENIED);
+        registerFailure(CLIENT_CERTIFICATE_NOT_ALLOWED);
+        registerFailure(CLIENT_CERTIFICATE_NOT_MATCHING);
+        registerFailure(CLIENT_CERTIFICATE_REVOKED);
+        registerFailure(CLIENT_CERTIFICATE_REVOCATION_UNKNOWN);
+        registerFailure(CLIENT_CERTIFICATE_UNTRUSTED_PROXY);
+        registerFailure(CLIENT_CERTIFICATE_UNTRUSTED);
+        registerFailure(CLIENT_CERTIFICATE_EXPIRED);
+        registerFailure(CLIENT_CERTIFICATE_NOT_YET_VALID);
+        registerFailure(CLIENT_CERTIFICATE_UNAUTHORIZED);
+        registerFailure(CLIENT_CERTIFICATE_AUTHORIZATION_UNKNOWN);
+        registerFailure(CLIENT_CERTIFICATE_NOT_BOUND);
+        registerFailure(CLIENT_CERTIFICATE_RATE_LIMITED, () ->
+            new ExecutionFailure(HttpStatusCode.TOO_MANY_REQUESTS_429).key(CLIENT_CERTIFICATE_RATE_LIMITED).message(RATE_LIMITED_MESSAGE)
+        );
+        registerFailure(CLIENT_CERTIFICATE_VALIDATION_OVERLOADED, () ->
+            new ExecutionFailure(HttpStatusCode.SERVICE_UNAVAILABLE_503)
+                .key(CLIENT_CERTIFICATE_VALIDATION_OVERLOADED)
+                .message(OVERLOADED_MESSAGE)
+        );
+    }
+
     private final MtlsPolicyConfiguration configuration;
+    private final MtlsMetrics metrics;
+    private final ThumbprintAlgorithm thumbprintAlgorithm;
+    private final ThumbprintDigester thumbprintDigester;
+    private final CertificateStore.View certificateStore;
+    private final ChainThumbprints chainThumbprints;
+    private final BoundTokenVerifier boundTokenVerifier;
+    private final CertificateAuditor auditor;
+    private final CertificateWorker worker;
+    private final CertificateRules certificateRules;
+    private final CertificateListsLoader certificateListsLoader;
+    private volatile CertificateLists certificateLists;
+    private final boolean validityCheckEnabled;
+    private final ExpiryWheel expiryWheel;
+    private final RateLimiter rateLimiter;
+    private final CrlRevocationChecker revocationChecker;
+    private final OcspChecker ocspChecker;
+    private final OcspFailureMode ocspFailureMode;
+    private final CertificateAuthorizer authorizer;
+    private final AuthorizationFailureMode authorizationFailureMode;
+    private volatile AuthorizationClient authorizationClient;
+    private volatile OcspClient ocspClient;
+    private final String certificateHeader;
+    private final ForwardedCertificateParser forwardedCertificateParser;
+    private final TrustedProxies trustedProxies;
 
     public MtlsPolicy(MtlsPolicyConfiguration configuration) {
+        this(configuration, MtlsMetrics.create(EXECUTION_FAILURES.keySet()));
+    }
+
+    MtlsPolicy(MtlsPolicyConfiguration configuration, MtlsMetrics metrics) {
         this.configuration = configuration;
+        this.metrics = metrics;
+        this.thumbprintAlgorithm = configuration.getThumbprintAlgorithm() != null
+            ? configuration.getThumbprintAlgorithm()
+            : ThumbprintAlgorithm.SHA_256;
+        final Set<ThumbprintAlgorithm> thumbprintAlgorithms = EnumSet.of(thumbprintAlgorithm);
+        if (configuration.getAdditionalThumbprintAlgorithms() != null) {
+            configuration.getAdditionalThumbprintAlgorithms().stream().filter(Objects::nonNull).forEach(thumbprintAlgorithms::add);
+        }
+        if (configuration.isCertificateBoundTokenRequired()) {
+            // Bound tokens are checked against the SHA-256 thumbprint, digested along with the other ones.
+            thumbprintAlgorithms.add(ThumbprintAlgorithm.SHA_256);
+        }
+        this.thumbprintDigester = new ThumbprintDigester(thumbprintAlgorithms);
+        this.certificateStore = CertificateStore.shared().view(thumbprintDigester);
+        this.chainThumbprints = configuration.getSubscriptionChainPosition() > 0
+            ? new ChainThumbprints(
+                thumbprintAlgorithm,
+                configuration.getSubscriptionChainPosition(),
+                configuration.isSubscriptionChainFallback()
+            )
+            : null;
+        this.boundTokenVerifier = configuration.isCertificateBoundTokenRequired() ? new BoundTokenVerifier() : null;
+        this.worker = configuration.isOffloadEnabled() ? CertificateWorker.shared() : null;
+        this.auditor = configuration.isAuditEnabled()
+            ? new CertificateAuditor(AuditStream.shared(), Duration.ofSeconds(configuration.getAuditDeduplicationWindow()))
+            : null;
+        this.certificateRules = CertificateRules.compile(configuration);
+        this.validityCheckEnabled = configuration.isValidityCheckEnabled();
+        this.expiryWheel = configuration.isValidityCheckEnabled() ? ExpiryWheel.shared() : null;
+        this.rateLimiter = configuration.isRateLimitEnabled()
+            ? new RateLimiter(configuration.getRateLimitRequestsPerSecond(), configuration.getRateLimitBurst())
+            : null;
+        this.certificateListsLoader = new CertificateListsLoader(
+            configuration,
+            thumbprintAlgorithms,
+            thumbprintDigester,
+            thumbprintAlgorithm
+        );
+        this.certificateLists = certificateListsLoader.load();
+        certificateListsLoader.watch(this, MtlsPolicy::reloadCertificateLists);
+        this.revocationChecker = configuration.getCrlDirectory() == null || configuration.getCrlDirectory().isBlank()
+            ? null
+            : new CrlRevocationChecker(Path.of(configuration.getCrlDirectory()), Duration.ofSeconds(configuration.getCrlRefreshInterval()));
+        this.ocspChecker = configuration.isOcspEnabled()
+            ? new OcspChecker(
+                configuration.getOcspResponderUrl(),
+                configuration.getOcspTimeout(),
+                TimeUnit.SECONDS.toMillis(configuration.getOcspMaxCacheDuration())
+            )
+            : null;
+        this.ocspFailureMode = configuration.getOcspFailureMode() != null ? configuration.getOcspFailureMode() : OcspFailureMode.SOFT_FAIL;
+        this.authorizer = configuration.getAuthorizationUrl() == null || configuration.getAuthorizationUrl().isBlank()
+            ? null
+            : new CertificateAuthorizer(
+                configuration.getAuthorizationTimeout(),
+                TimeUnit.SECONDS.toMillis(configuration.getAuthorizationPositiveTtl()),
+                TimeUnit.SECONDS.toMillis(configuration.getAuthorizationNegativeTtl()),
+                configuration.getAuthorizationBatchWindow(),
+                configuration.getAuthorizationMaxBatchSize()
+            );
+        this.authorizationFailureMode = configuration.getAuthorizationFailureMode() != null
+            ? configuration.getAuthorizationFailureMode()
+            : AuthorizationFailureMode.HARD_FAIL;
+        if (configuration.getCertificateSource() == CertificateSource.HEADER) {
+            this.certificateHeader = configuration.getCertificateHeader();
+            this.forwardedCertificateParser = new ForwardedCertificateParser();
+            this.trustedProxies = TrustedProxies.of(configuration.getTrustedProxies());
+        } else {
+            this.certificateHeader = null;
+            this.forwardedCertificateParser = null;
+            this.trustedProxies = null;
+        }
     }
 
     @Override
@@ -73,10 +292,21 @@ public class MtlsPolicy implements HttpSecurityPolicy, KafkaSecurityPolicy {
 
     @Override
     public Maybe<SecurityToken> extractSecurityToken(HttpPlainExecutionContext ctx) {
-        final TlsSession tlsSession = ctx.request().tlsSession();
-        return getSecurityTokenFromTlsSession(tlsSession);
+        final long start = System.nanoTime();
+        try {
+            return getSecurityTokenFromValidationResult(validateClientCertificate(ctx));
+        } finally {
+            metrics.phase(Protocol.HTTP, Phase.EXTRACT_SECURITY_TOKEN, start);
+        }
     }
 
+    /**
+     * The subscription is resolved by the gateway from the security token, through its own in-memory subscription
+     * cache, before the policy is executed: the policy can't intercept nor skip this lookup. It only makes sure the token
+     * is cheap to use as a key, its value being the same thumbprint instance for all the requests of a TLS session.
+     *
+     * @return <code>true</code>
+     */
     @Override
     public boolean requireSubscription() {
         return true;
@@ -94,72 +324,702 @@ public class MtlsPolicy implements HttpSecurityPolicy, KafkaSecurityPolicy {
 
     @Override
     public Completable onRequest(HttpPlainExecutionContext ctx) {
-        final TlsSession tlsSession = ctx.request().tlsSession();
-        final CertificateValidationResult result = validateClientCertificate(tlsSession);
-        if (!result.isValid()) {
-            return interruptWith401(ctx, result.errorKey());
+        final long start = System.nanoTime();
+        try {
+            final CertificateValidationResult result = validateClientCertificate(ctx);
+            if (!result.isValid()) {
+                return rejectRequest(ctx, result, result.errorKey());
+            }
+            if (isRateLimited(result)) {
+                return rejectRequest(ctx, result, CLIENT_CERTIFICATE_RATE_LIMITED);
+            }
+            if (worker != null && !certificateLists.isTrustCached(result.certificates())) {
+                return checkOnWorker(result, key -> rejectRequest(ctx, result, key), () -> acceptRequest(ctx, result));
+            }
+            final String errorKey = checkClientCertificate(result);
+            if (errorKey != null) {
+                return rejectRequest(ctx, result, errorKey);
+            }
+            return acceptRequest(ctx, result);
+        } finally {
+            metrics.phase(Protocol.HTTP, Phase.ON_REQUEST, start);
+        }
+    }
+
+    private Completable acceptRequest(HttpPlainExecutionContext ctx, CertificateValidationResult result) {
+        if (boundTokenVerifier != null && !isTokenBound(ctx, result)) {
+            return rejectRequest(ctx, result, CLIENT_CERTIFICATE_NOT_BOUND);
+        }
+        publishClientCertificate(ctx, result);
+        if (ocspChecker != null || authorizer != null) {
+            return checkRemotely(ctx, result, Protocol.HTTP, key -> rejectRequest(ctx, result, key));
         }
+        decision(ctx, result, Protocol.HTTP, MtlsMetrics.SUCCESS);
         return Completable.complete();
     }
 
     @Override
     public Maybe<SecurityToken> extractSecurityToken(KafkaConnectionContext ctx) {
-        final TlsSession tlsSession = ctx.tlsSession();
-        return getSecurityTokenFromTlsSession(tlsSession);
+        final long start = System.nanoTime();
+        try {
+            return getSecurityTokenFromValidationResult(validateClientCertificate(ctx));
+        } finally {
+            metrics.phase(Protocol.KAFKA, Phase.EXTRACT_SECURITY_TOKEN, start);
+        }
     }
 
     @Override
     public Completable authenticate(KafkaConnectionContext ctx) {
         return Completable.defer(() -> {
-            final TlsSession tlsSession = ctx.tlsSession();
-            final CertificateValidationResult result = validateClientCertificate(tlsSession);
-            if (!result.isValid()) {
-                log.debug("Certificate validation failed for Kafka connection: {}", result.errorKey());
-                return Completable.error(
-                    new MtlsPolicyException(String.format("Certificate validation failed for Kafka connection: %s", result.errorKey()))
-                );
+            final long start = System.nanoTime();
+            try {
+                final CertificateValidationResult result = validateClientCertificate(ctx);
+                if (!result.isValid()) {
+                    return rejectConnection(ctx, result, result.errorKey());
+                }
+                if (isRateLimited(result)) {
+                    return rejectConnection(ctx, result, CLIENT_CERTIFICATE_RATE_LIMITED);
+                }
+                if (worker != null && !certificateLists.isTrustCached(result.certificates())) {
+                    return checkOnWorker(result, key -> rejectConnection(ctx, result, key), () -> acceptConnection(ctx, result));
+                }
+                final String errorKey = checkClientCertificate(result);
+                if (errorKey != null) {
+                    return rejectConnection(ctx, result, errorKey);
+                }
+                return acceptConnection(ctx, result);
+            } finally {
+                metrics.phase(Protocol.KAFKA, Phase.AUTHENTICATE, start);
             }
-            return Completable.complete();
         });
     }
 
-    private static Completable interruptWith401(HttpPlainExecutionContext ctx, String errorKey) {
-        return ctx.interruptWith(new ExecutionFailure(HttpStatusCode.UNAUTHORIZED_401).key(errorKey).message(FAILURE_MESSAGE));
+    private Completable acceptConnection(KafkaConnectionContext ctx, CertificateValidationResult result) {
+        if (ocspChecker != null || authorizer != null) {
+            return checkRemotely(ctx, result, Protocol.KAFKA, key -> rejectConnection(ctx, result, key)).doOnComplete(() ->
+                onConnectionAuthenticated(ctx, result)
+            );
+        }
+        decision(ctx, result, Protocol.KAFKA, MtlsMetrics.SUCCESS);
+        onConnectionAuthenticated(ctx, result);
+        return Completable.complete();
+    }
+
+    /**
+     * Rejects the requests of a connection whose client certificate has expired since it was authenticated. Expiries are
+     * detected by the {@link ExpiryWheel}, so that this check is a single read. It only applies when the gateway runs the
+     * request phase of the policy for the connection, which it doesn't for a plan security policy alone.
+     */
+    @Override
+    public Completable onRequest(KafkaExecutionContext ctx) {
+        if (expiryWheel == null) {
+            return Completable.complete();
+        }
+        final KafkaConnectionContext connection = ctx.connectionContext();
+        final CertificateValidationResult result = connection.getInternalAttribute(ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        if (result != null && result.expired) {
+            return rejectConnection(connection, result, CLIENT_CERTIFICATE_EXPIRED);
+        }
+        return Completable.complete();
+    }
+
+    private void onConnectionAuthenticated(KafkaConnectionContext ctx, CertificateValidationResult result) {
+        attachPrincipal(ctx, result);
+        watchExpiry(result);
+    }
+
+    /**
+     * Schedules the expiry of the connection, once, when the client certificate expires. Re-authentications reject the
+     * expired certificate by themselves.
+     */
+    private void watchExpiry(CertificateValidationResult result) {
+        if (expiryWheel != null && !result.expiryWatched && result.validity != null) {
+            result.expiryWatched = true;
+            expiryWheel.schedule(result, result.validity.notAfter(), CertificateValidationResult::expire);
+        }
+    }
+
+    /**
+     * Attaches the principal of the client to the connection once it is authenticated. It is computed on the first
+     * authentication only, re-authentications reuse it.
+     */
+    private void attachPrincipal(KafkaConnectionContext ctx, CertificateValidationResult result) {
+        if (result.principal == null && result.certificates()[0] instanceof X509Certificate certificate) {
+            final Thumbprints thumbprints = thumbprints(result);
+            final CertificateAttributes attributes = attributes(result);
+            if (attributes != null) {
+                result.principal = ClientCertificatePrincipal.of(
+                    thumbprints != null ? thumbprints.get(thumbprintAlgorithm).value() : null,
+                    certificate,
+                    attributes
+                );
+                ctx.setAttribute(ATTR_CLIENT_CERTIFICATE_PRINCIPAL, result.principal);
+            }
+        }
+    }
+
+    /**
+     * Publishes the client certificate for the other policies and EL expressions of the request. Its details are only
+     * computed when read.
+     */
+    private void publishClientCertificate(HttpPlainExecutionContext ctx, CertificateValidationResult result) {
+        if (result.certificates()[0] instanceof X509Certificate certificate) {
+            ctx.setAttribute(ATTR_CLIENT_CERTIFICATE, new ClientCertificate(certificate, certificateStore, thumbprintAlgorithm));
+        }
+    }
+
+    private Completable rejectRequest(HttpPlainExecutionContext ctx, CertificateValidationResult result, String errorKey) {
+        decision(ctx, result, Protocol.HTTP, errorKey);
+        return interruptWithFailure(ctx, errorKey);
+    }
+
+    private Completable rejectConnection(KafkaConnectionContext ctx, CertificateValidationResult result, String errorKey) {
+        log.debug("Certificate validation failed for Kafka connection: {}", errorKey);
+        decision(ctx, result, Protocol.KAFKA, errorKey);
+        return kafkaFailure(errorKey);
+    }
+
+    /**
+     * Counts the decision and, once per deduplication window for the identity and outcome, reports it to the audit
+     * stream. Only a map lookup on the hot path once the identity has been reported.
+     */
+    private void decision(BaseExecutionContext ctx, CertificateValidationResult result, Protocol protocol, String outcome) {
+        metrics.decision(protocol, outcome);
+        if (auditor == null) {
+            return;
+        }
+        final boolean hasCertificate = result.certificates() != null;
+        final Thumbprints thumbprints = hasCertificate ? thumbprints(result) : null;
+        final String thumbprint = thumbprints != null ? thumbprints.get(thumbprintAlgorithm).value() : null;
+        if (auditor.isNew(thumbprint, outcome, protocol)) {
+            final CertificateAttributes attributes = hasCertificate ? attributes(result) : null;
+            auditor.publish(
+                new CertificateAuditEvent(
+                    System.currentTimeMillis(),
+                    ctx.getAttribute(ContextAttributes.ATTR_API),
+                    protocol.tag(),
+                    outcome,
+                    thumbprint,
+                    attributes != null ? attributes.subjectDn() : null
+                )
+            );
+        }
+    }
+
+    private static Completable interruptWithFailure(HttpPlainExecutionContext ctx, String errorKey) {
+        final Supplier<ExecutionFailure> failure = EXECUTION_FAILURES.get(errorKey);
+        return ctx.interruptWith(failure != null ? failure.get() : unauthorized(errorKey));
     }
 
-    private record CertificateValidationResult(Certificate[] certificates, String errorKey) {
+    private static Completable kafkaFailure(String errorKey) {
+        final Completable failure = KAFKA_FAILURES.get(errorKey);
+        if (failure != null) {
+            return failure;
+        }
+        return Completable.error(new MtlsPolicyException(String.format(KAFKA_FAILURE_MESSAGE, errorKey)));
+    }
+
+    private static ExecutionFailure unauthorized(String errorKey) {
+        return new ExecutionFailure(HttpStatusCode.UNAUTHORIZED_401).key(errorKey).message(FAILURE_MESSAGE);
+    }
+
+    private static void registerFailure(String errorKey) {
+        registerFailure(errorKey, () -> unauthorized(errorKey));
+    }
+
+    private static void registerFailure(String errorKey, Supplier<ExecutionFailure> executionFailure) {
+        EXECUTION_FAILURES.put(errorKey, executionFailure);
+        KAFKA_FAILURES.put(errorKey, Completable.error(MtlsPolicyException.stackless(String.format(KAFKA_FAILURE_MESSAGE, errorKey))));
+    }
+
+    /**
+     * Outcome of the client certificate validation, computed once per execution context and shared by all the phases of
+     * the policy. The thumbprint of the leaf certificate is only computed on demand.
+     */
+    private static final class CertificateValidationResult {
+
+        private static final CertificateValidationResult SSL_SESSION_REQUIRED_RESULT = new CertificateValidationResult(
+            null,
+            SSL_SESSION_REQUIRED
+        );
+        private static final CertificateValidationResult CLIENT_CERTIFICATE_MISSING_RESULT = new CertificateValidationResult(
+            null,
+            CLIENT_CERTIFICATE_MISSING
+        );
+        private static final CertificateValidationResult CLIENT_CERTIFICATE_INVALID_RESULT = new CertificateValidationResult(
+            null,
+            CLIENT_CERTIFICATE_INVALID
+        );
+        private static final CertificateValidationResult CLIENT_CERTIFICATE_UNTRUSTED_PROXY_RESULT = new CertificateValidationResult(
+            null,
+            CLIENT_CERTIFICATE_UNTRUSTED_PROXY
+        );
+
+        private final Certificate[] certificates;
+        private final String errorKey;
+        private CertificateStore.Entry entry;
+        private Thumbprints thumbprints;
+        private CertificateAttributes attributes;
+        private ClientCertificatePrincipal principal;
+        private CertificateValidity validity;
+        private boolean expiryWatched;
+        private volatile boolean expired;
+
+        private CertificateValidationResult(Certificate[] certificates, String errorKey) {
+            this.certificates = certificates;
+            this.errorKey = errorKey;
+        }
+
+        Certificate[] certificates() {
+            return certificates;
+        }
+
+        String errorKey() {
+            return errorKey;
+        }
+
         boolean isValid() {
             return errorKey == null;
         }
+
+        void expire() {
+            expired = true;
+        }
+    }
+
+    private CertificateValidationResult validateClientCertificate(HttpPlainExecutionContext ctx) {
+        CertificateValidationResult result = ctx.getInternalAttribute(ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        if (result == null) {
+            result = forwardedCertificateParser != null
+                ? validateForwardedCertificate(ctx)
+                : validateClientCertificate(ctx.request().tlsSession());
+            ctx.setInternalAttribute(ATTR_INTERNAL_CERTIFICATE_VALIDATION, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the client certificate forwarded by a TLS-terminating load balancer. Header values are parsed once and the
+     * resulting certificate is reused by the following requests with the same value.
+     */
+    private CertificateValidationResult validateForwardedCertificate(HttpPlainExecutionContext ctx) {
+        if (!trustedProxies.isTrusted(peerAddress(ctx.request()))) {
+            return CertificateValidationResult.CLIENT_CERTIFICATE_UNTRUSTED_PROXY_RESULT;
+        }
+        final String value = ctx.request().headers().get(certificateHeader);
+        if (value == null || value.isBlank()) {
+            return CertificateValidationResult.CLIENT_CERTIFICATE_MISSING_RESULT;
+        }
+        final Certificate[] certs = forwardedCertificateParser.parse(value);
+        if (certs == null) {
+            return CertificateValidationResult.CLIENT_CERTIFICATE_INVALID_RESULT;
+        }
+        return new CertificateValidationResult(certs, null);
+    }
+
+    /**
+     * The gateway reports the first entry of the <code>X-Forwarded-For</code> header as remote address, and any client can
+     * set it. The address of the connection is only known without this header, so the peer of a request having it is
+     * never trusted.
+     */
+    private static String peerAddress(HttpBaseRequest request) {
+        return request.headers().contains(HttpHeaderNames.X_FORWARDED_FOR) ? null : request.remoteAddress();
+    }
+
+    /**
+     * The Kafka connection context lives as long as the connection, so the validation is done once for the connection and
+     * reused by the token extraction, the authentication and any re-authentication. The TLS session is only read the first
+     * time.
+     */
+    private static CertificateValidationResult validateClientCertificate(KafkaConnectionContext ctx) {
+        CertificateValidationResult result = ctx.getInternalAttribute(ATTR_INTERNAL_CERTIFICATE_VALIDATION);
+        if (result == null) {
+            result = validateClientCertificate(ctx.tlsSession());
+            ctx.setInternalAttribute(ATTR_INTERNAL_CERTIFICATE_VALIDATION, result);
+        }
+        return result;
     }
 
     private static CertificateValidationResult validateClientCertificate(TlsSession tlsSession) {
         if (tlsSession == null) {
-            return new CertificateValidationResult(null, SSL_SESSION_REQUIRED);
+            return CertificateValidationResult.SSL_SESSION_REQUIRED_RESULT;
         }
         try {
             Certificate[] certs = tlsSession.getPeerCertificates();
             if (certs == null || certs.length == 0) {
-                return new CertificateValidationResult(null, CLIENT_CERTIFICATE_MISSING);
+                return CertificateValidationResult.CLIENT_CERTIFICATE_MISSING_RESULT;
             }
             return new CertificateValidationResult(certs, null);
         } catch (SSLPeerUnverifiedException e) {
-            return new CertificateValidationResult(null, CLIENT_CERTIFICATE_INVALID);
+            return CertificateValidationResult.CLIENT_CERTIFICATE_INVALID_RESULT;
         }
     }
 
-    private static Maybe<SecurityToken> getSecurityTokenFromTlsSession(TlsSession tlsSession) {
-        final CertificateValidationResult result = validateClientCertificate(tlsSession);
+    /**
+     * Hit and miss counts of the thumbprint cache, a hit meaning that the thumbprints of the client certificate have
+     * been reused from a previous request on the same TLS session.
+     *
+     * @return the statistics of the thumbprint cache, i.e. of the lookups of the policy instance in the certificate store.
+     */
+    public CertificateCache.Stats thumbprintCacheStats() {
+        return certificateStore.stats();
+    }
+
+    private Maybe<SecurityToken> getSecurityTokenFromValidationResult(CertificateValidationResult result) {
         if (!result.isValid()) {
             return Maybe.empty();
         }
 
-        if (result.certificates()[0] instanceof X509Certificate x509Certificate) {
-            String clientCertificate = CertificateUtils.generateThumbprint(x509Certificate, "SHA-256");
-            if (clientCertificate != null) {
-                return Maybe.just(SecurityToken.forClientCertificate(clientCertificate));
+        if (chainThumbprints != null) {
+            final Thumbprint thumbprint = chainThumbprints.thumbprint(result.certificates());
+            if (thumbprint != null) {
+                return Maybe.just(SecurityToken.forClientCertificate(thumbprint.value()));
             }
+            return Maybe.just(SecurityToken.invalid(SecurityToken.TokenType.CERTIFICATE));
+        }
+
+        final Thumbprints thumbprints = thumbprints(result);
+        if (thumbprints != null) {
+            return Maybe.just(SecurityToken.forClientCertificate(thumbprints.get(thumbprintAlgorithm).value()));
         }
         return Maybe.just(SecurityToken.invalid(SecurityToken.TokenType.CERTIFICATE));
     }
+
+    /**
+     * @return the entry of the leaf certificate in the store shared by all the policy instances, or <code>null</code> if the
+     * certificate can't be encoded.
+     */
+    private CertificateStore.Entry entry(CertificateValidationResult result) {
+        if (result.entry == null && result.certificates()[0] instanceof X509Certificate x509Certificate) {
+            result.entry = certificateStore.entry(x509Certificate);
+        }
+        return result.entry;
+    }
+
+    private Thumbprints thumbprints(CertificateValidationResult result) {
+        if (result.thumbprints == null) {
+            final CertificateStore.Entry entry = entry(result);
+            result.thumbprints = entry == null ? null : entry.thumbprints();
+        }
+        return result.thumbprints;
+    }
+
+    private CertificateAttributes attributes(CertificateValidationResult result) {
+        if (result.attributes == null && result.certificates()[0] instanceof X509Certificate x509Certificate) {
+            // Names don't need the encoding of the certificate: they are still read if it can't be stored.
+            final CertificateStore.Entry entry = entry(result);
+            result.attributes = entry != null ? entry.attributes() : CertificateAttributes.parse(x509Certificate);
+        }
+        return result.attributes;
+    }
+
+    /**
+     * Checks the access token against the SHA-256 thumbprint the policy already computed for the security token, rather
+     * than digesting the certificate again.
+     */
+    private boolean isTokenBound(HttpPlainExecutionContext ctx, CertificateValidationResult result) {
+        final Thumbprints thumbprints = thumbprints(result);
+        return boundTokenVerifier.isBound(
+            ctx.request().headers().get(HttpHeaderNames.AUTHORIZATION),
+            thumbprints != null ? thumbprints.get(ThumbprintAlgorithm.SHA_256) : null
+        );
+    }
+
+    /**
+     * Takes a token from the bucket of the client certificate, before any other check so that a noisy client is rejected
+     * as cheaply as possible. Certificates without thumbprint are left to the other checks.
+     */
+    private boolean isRateLimited(CertificateValidationResult result) {
+        if (rateLimiter == null) {
+            return false;
+        }
+        final Thumbprints thumbprints = thumbprints(result);
+        return thumbprints != null && !rateLimiter.tryAcquire(thumbprints.get(thumbprintAlgorithm).value());
+    }
+
+    /**
+     * Rebuilds the lists from a changed file, on the thread of the file watcher, and publishes them in a single write.
+     */
+    void reloadCertificateLists(Path file) {
+        certificateLists = certificateListsLoader.reload(certificateLists, file);
+    }
+
+    /**
+     * Checks the leaf certificate against the rules of the policy.
+     *
+     * @return the error key if the certificate is rejected, <code>null</code> otherwise.
+     */
+    private String checkClientCertificate(CertificateValidationResult result) {
+        final String validityErrorKey = checkValidity(result);
+        if (validityErrorKey != null) {
+            return validityErrorKey;
+        }
+        // Read once, so that a concurrent reload applies to the next request rather than to half of this one.
+        final CertificateLists lists = certificateLists;
+        if (!lists.isTrusted(result.certificates())) {
+            return CLIENT_CERTIFICATE_UNTRUSTED;
+        }
+        String errorKey = checkRevocation(result);
+        if (errorKey != null) {
+            return errorKey;
+        }
+        errorKey = checkThumbprintLists(lists, result);
+        if (errorKey != null) {
+            return errorKey;
+        }
+        return checkCertificateRules(result);
+    }
+
+    /**
+     * Checks the validity period of the leaf certificate, read once per TLS session.
+     *
+     * @return the error key if the certificate is expired or not yet valid, <code>null</code> otherwise.
+     */
+    private String checkValidity(CertificateValidationResult result) {
+        if (!validityCheckEnabled) {
+            return null;
+        }
+        if (result.validity == null && result.certificates()[0] instanceof X509Certificate x509Certificate) {
+            final CertificateStore.Entry entry = entry(result);
+            result.validity = entry != null ? entry.validity() : CertificateValidity.of(x509Certificate);
+        }
+        if (result.validity == null) {
+            return CLIENT_CERTIFICATE_INVALID;
+        }
+        final long now = System.currentTimeMillis();
+        if (result.validity.isExpiredAt(now)) {
+            return CLIENT_CERTIFICATE_EXPIRED;
+        }
+        return result.validity.isNotYetValidAt(now) ? CLIENT_CERTIFICATE_NOT_YET_VALID : null;
+    }
+
+    /**
+     * Checks every certificate of the presented chain against the CRLs.
+     *
+     * @return the error key if a certificate is revoked, <code>null</code> otherwise.
+     */
+    private String checkRevocation(CertificateValidationResult result) {
+        if (revocationChecker == null) {
+            return null;
+        }
+        for (Certificate certificate : result.certificates()) {
+            if (certificate instanceof X509Certificate x509Certificate && revocationChecker.isRevoked(x509Certificate)) {
+                return CLIENT_CERTIFICATE_REVOKED;
+            }
+        }
+        return null;
+    }
+
+    private String checkCertificateRules(CertificateValidationResult result) {
+        if (certificateRules.isEmpty()) {
+            return null;
+        }
+        final CertificateAttributes attributes = attributes(result);
+        if (attributes == null) {
+            return CLIENT_CERTIFICATE_INVALID;
+        }
+        return certificateRules.matches(attributes) ? null : CLIENT_CERTIFICATE_NOT_MATCHING;
+    }
+
+    /**
+     * Checks the leaf certificate against the configured deny and allow lists.
+     *
+     * @return the error key if the certificate is rejected, <code>null</code> otherwise.
+     */
+    private String checkThumbprintLists(CertificateLists lists, CertificateValidationResult result) {
+        if (lists.deniedThumbprints().isEmpty() && !lists.allowListEnabled()) {
+            return null;
+        }
+        final Thumbprints thumbprints = thumbprints(result);
+        if (thumbprints == null) {
+            return CLIENT_CERTIFICATE_INVALID;
+        }
+        if (lists.deniedThumbprints().contains(thumbprints)) {
+            return CLIENT_CERTIFICATE_DENIED;
+        }
+        if (lists.allowListEnabled() && !lists.allowedThumbprints().contains(thumbprints)) {
+            return CLIENT_CERTIFICATE_NOT_ALLOWED;
+        }
+        return null;
+    }
+
+    /**
+     * Runs the checks of the client certificate on the worker pool, as validating its chain may take milliseconds, and
+     * resumes on the Vert.x context of the request. A saturated pool rejects the request at once.
+     */
+    private Completable checkOnWorker(
+        CertificateValidationResult result,
+        Function<String, Completable> reject,
+        Supplier<Completable> accept
+    ) {
+        final CompletableFuture<Optional<String>> check = worker.submit(() -> Optional.ofNullable(checkClientCertificate(result)));
+        if (check == null) {
+            return reject.apply(CLIENT_CERTIFICATE_VALIDATION_OVERLOADED);
+        }
+        return onCurrentContext(check).flatMapCompletable(errorKey ->
+            errorKey.isPresent() ? reject.apply(errorKey.get()) : accept.get()
+        );
+    }
+
+    /**
+     * Runs the checks relying on remote services, OCSP then external authorization, once the local ones passed.
+     */
+    private Completable checkRemotely(
+        BaseExecutionContext ctx,
+        CertificateValidationResult result,
+        Protocol protocol,
+        Function<String, Completable> reject
+    ) {
+        Completable checks = ocspChecker != null ? checkOcsp(ctx, result, reject) : Completable.complete();
+        if (authorizer != null) {
+            checks = checks.andThen(Completable.defer(() -> checkAuthorization(ctx, result, reject)));
+        }
+        return checks.doOnComplete(() -> decision(ctx, result, protocol, MtlsMetrics.SUCCESS));
+    }
+
+    /**
+     * Checks the OCSP status of the leaf certificate. A cached status is applied synchronously, otherwise the lookup is
+     * asynchronous and the request resumes on the Vert.x context it was running on.
+     */
+    private Completable checkOcsp(BaseExecutionContext ctx, CertificateValidationResult result, Function<String, Completable> reject) {
+        if (!(result.certificates()[0] instanceof X509Certificate certificate)) {
+            return reject.apply(CLIENT_CERTIFICATE_INVALID);
+        }
+        final OcspStatus cachedStatus = ocspChecker.cachedStatus(certificate);
+        if (cachedStatus != null) {
+            return ocspOutcome(cachedStatus, reject);
+        }
+
+        final Certificate[] certificates = result.certificates();
+        final X509Certificate issuer = certificates.length > 1 && certificates[1] instanceof X509Certificate x509Issuer ? x509Issuer : null;
+        // Without issuer, the status can't be determined, so there is no need for a client.
+        final OcspClient client = issuer != null ? ocspClient(ctx) : null;
+        final CompletionStage<OcspStatus> status = ocspChecker.status(certificate, issuer, client);
+        return onCurrentContext(status).flatMapCompletable(s -> ocspOutcome(s, reject));
+    }
+
+    private Completable ocspOutcome(OcspStatus status, Function<String, Completable> reject) {
+        if (status == OcspStatus.REVOKED) {
+            return reject.apply(CLIENT_CERTIFICATE_REVOKED);
+        }
+        if (status == OcspStatus.UNKNOWN && ocspFailureMode == OcspFailureMode.HARD_FAIL) {
+            return reject.apply(CLIENT_CERTIFICATE_REVOCATION_UNKNOWN);
+        }
+        return Completable.complete();
+    }
+
+    /**
+     * Authorizes the leaf certificate with the external service. A cached decision is applied synchronously, otherwise the
+     * call is asynchronous, possibly batched with the ones of other requests, and the request resumes on the Vert.x
+     * context it was running on.
+     */
+    private Completable checkAuthorization(
+        BaseExecutionContext ctx,
+        CertificateValidationResult result,
+        Function<String, Completable> reject
+    ) {
+        final Thumbprints thumbprints = thumbprints(result);
+        if (thumbprints == null) {
+            return reject.apply(CLIENT_CERTIFICATE_INVALID);
+        }
+        final String thumbprint = thumbprints.get(thumbprintAlgorithm).value();
+        final AuthorizationStatus cachedStatus = authorizer.cachedStatus(thumbprint);
+        if (cachedStatus != null) {
+            return authorizationOutcome(cachedStatus, reject);
+        }
+        return onCurrentContext(authorizer.status(thumbprint, authorizationClient(ctx))).flatMapCompletable(s ->
+            authorizationOutcome(s, reject)
+        );
+    }
+
+    private Completable authorizationOutcome(AuthorizationStatus status, Function<String, Completable> reject) {
+        if (status == AuthorizationStatus.DENIED) {
+            return reject.apply(CLIENT_CERTIFICATE_UNAUTHORIZED);
+        }
+        if (status == AuthorizationStatus.UNKNOWN && authorizationFailureMode == AuthorizationFailureMode.HARD_FAIL) {
+            return reject.apply(CLIENT_CERTIFICATE_AUTHORIZATION_UNKNOWN);
+        }
+        return Completable.complete();
+    }
+
+    /**
+     * The client is created once, on the first authorization, over the HTTP client the Vert.x instance shares with the
+     * other policy instances.
+     */
+    private AuthorizationClient authorizationClient(BaseExecutionContext ctx) {
+        AuthorizationClient client = authorizationClient;
+        if (client == null) {
+            final Vertx vertx = ctx.getComponent(Vertx.class);
+            if (vertx == null) {
+                return null;
+            }
+            synchronized (this) {
+                client = authorizationClient;
+                if (client == null) {
+                    client = new VertxAuthorizationClient(
+                        vertx.getDelegate(),
+                        configuration.getAuthorizationUrl(),
+                        configuration.getAuthorizationTimeout()
+                    );
+                    authorizationClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Sets the client used to call the authorization service, instead of the one created with the Vert.x instance of the
+     * gateway.
+     */
+    void authorizationClient(AuthorizationClient client) {
+        this.authorizationClient = client;
+    }
+
+    /**
+     * The client is created once, on the first lookup, over the HTTP client the Vert.x instance shares with the other
+     * policy instances.
+     */
+    private OcspClient ocspClient(BaseExecutionContext ctx) {
+        OcspClient client = ocspClient;
+        if (client == null) {
+            final Vertx vertx = ctx.getComponent(Vertx.class);
+            if (vertx == null) {
+                return null;
+            }
+            synchronized (this) {
+                client = ocspClient;
+                if (client == null) {
+                    client = new VertxOcspClient(vertx.getDelegate(), configuration.getOcspTimeout());
+                    ocspClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Lookups may be completed on the event loop of another request sharing them, so the result is emitted back on the
+     * Vert.x context of the caller.
+     */
+    private static <T> Single<T> onCurrentContext(CompletionStage<T> stage) {
+        final Context context = io.vertx.core.Vertx.currentContext();
+        return Single.create(emitter ->
+            stage.whenComplete((value, error) -> {
+                if (context == null || context == io.vertx.core.Vertx.currentContext()) {
+                    emit(emitter, value, error);
+                } else {
+                    context.runOnContext(v -> emit(emitter, value, error));
+                }
+            })
+        );
+    }
+
+    private static <T> void emit(SingleEmitter<T> emitter, T value, Throwable error) {
+        if (error != null) {
+            emitter.onError(error);
+        } else {
+            emitter.onSuccess(value);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import io.gravitee.reporter.api.Reportable;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream of the audit events of all the policy instances, shared by the gateway.
+ * <p>
+ * Publishing an event only adds it to a bounded lock-free ring buffer: when the buffer is full, the event is dropped and
+ * counted rather than slowing the request down. A single background thread drains the buffer in batches and writes the
+ * events to the <code>io.gravitee.policy.mtls.audit</code> logger, at info level, so that logging never happens on an
+ * event loop. As auditing is enabled per policy, its events are logged as soon as it is, and can be turned off by raising
+ * the level of the logger.
+ * <p>
+ * The gateway doesn't expose its reporters to policies as a single component, so the events can't be handed to them and
+ * only reach the logs.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class AuditStream {
+
+    static final int CAPACITY = 8192;
+    static final int BATCH_SIZE = 256;
+    static final long FLUSH_INTERVAL = 1000;
+
+    private static final Logger AUDIT_LOG = LoggerFactory.getLogger("io.gravitee.policy.mtls.audit");
+    private static final AuditStream SHARED = new AuditStream(CAPACITY);
+
+    private final AuditRingBuffer<Reportable> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final Consumer<Reportable> sink;
+    private volatile boolean started;
+
+    AuditStream(int capacity) {
+        this(capacity, AuditStream::log);
+    }
+
+    AuditStream(int capacity, Consumer<Reportable> sink) {
+        this.buffer = new AuditRingBuffer<>(capacity);
+        this.sink = sink;
+    }
+
+    public static AuditStream shared() {
+        return SHARED;
+    }
+
+    /**
+     * Adds an event to the stream, without ever blocking.
+     *
+     * @return <code>false</code> if the buffer is full and the event has been dropped.
+     */
+    public boolean publish(Reportable event) {
+        if (!started) {
+            start();
+        }
+        if (!buffer.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full, since the gateway started.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Hands the buffered events to the sink, in batches. Synchronized as the buffer only supports a single consumer,
+     * the thread of the stream being the only caller outside of tests.
+     */
+    synchronized void flush() {
+        final List<Reportable> batch = new ArrayList<>(BATCH_SIZE);
+        do {
+            batch.clear();
+            Reportable event;
+            while (batch.size() < BATCH_SIZE && (event = buffer.poll()) != null) {
+                batch.add(event);
+            }
+            report(batch);
+        } while (batch.size() == BATCH_SIZE);
+    }
+
+    private void report(List<Reportable> batch) {
+        for (Reportable event : batch) {
+            try {
+                sink.accept(event);
+            } catch (Exception e) {
+                log.warn("Unable to report the audit event {}", event, e);
+            }
+        }
+    }
+
+    private static void log(Reportable event) {
+        AUDIT_LOG.info("{}", event);
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("gravitee-mtls-audit", true)
+            );
+            executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+}
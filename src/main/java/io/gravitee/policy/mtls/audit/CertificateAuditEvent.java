@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import io.gravitee.reporter.api.AbstractReportable;
+import lombok.Getter;
+
+/**
+ * Decision of the policy for a client certificate identity, written to the audit logger.
+ *
+ * @author GraviteeSource Team
+ */
+@Getter
+public class CertificateAuditEvent extends AbstractReportable {
+
+    private final String api;
+    private final String protocol;
+    private final String outcome;
+    private final String thumbprint;
+    private final String subject;
+
+    /**
+     * @param outcome <code>SUCCESS</code> or the error key of the rejection.
+     * @param thumbprint the thumbprint of the client certificate, <code>null</code> without certificate.
+     * @param subject the subject DN of the client certificate, <code>null</code> without certificate.
+     */
+    public CertificateAuditEvent(long timestamp, String api, String protocol, String outcome, String thumbprint, String subject) {
+        super(timestamp);
+        this.api = api;
+        this.protocol = protocol;
+        this.outcome = outcome;
+        this.thumbprint = thumbprint;
+        this.subject = subject;
+    }
+
+    @Override
+    public String toString() {
+        return "api=" + api + " protocol=" + protocol + " outcome=" + outcome + " thumbprint=" + thumbprint + " subject=" + subject;
+    }
+}
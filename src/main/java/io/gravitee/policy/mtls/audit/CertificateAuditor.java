@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import io.gravitee.policy.mtls.metrics.MtlsMetrics.Protocol;
+import java.time.Duration;
+
+/**
+ * Audits the identities a policy instance accepts or rejects. An identity is only reported once per deduplication
+ * window for a given outcome, so that a client calling thousands of times per second produces a single event, and a
+ * change of outcome is reported at once.
+ *
+ * @author GraviteeSource Team
+ */
+public class CertificateAuditor {
+
+    /**
+     * Upper bound of the number of identities remembered for deduplication.
+     */
+    static final long MAXIMUM_SIZE = 100_000;
+
+    private final AuditStream stream;
+    private final Cache<Key, Boolean> recent;
+
+    public CertificateAuditor(AuditStream stream, Duration deduplicationWindow) {
+        this(stream, deduplicationWindow, Ticker.systemTicker());
+    }
+
+    CertificateAuditor(AuditStream stream, Duration deduplicationWindow, Ticker ticker) {
+        this.stream = stream;
+        this.recent = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(deduplicationWindow)
+            .ticker(ticker)
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.AUDIT))
+            .build();
+    }
+
+    /**
+     * Remembers the identity and outcome for the deduplication window.
+     *
+     * @param thumbprint the thumbprint of the client certificate, <code>null</code> without certificate.
+     * @return <code>true</code> if the decision must be reported, i.e. it has not been within the window.
+     */
+    public boolean isNew(String thumbprint, String outcome, Protocol protocol) {
+        return recent.asMap().putIfAbsent(new Key(thumbprint, outcome, protocol.tag()), Boolean.TRUE) == null;
+    }
+
+    /**
+     * Publishes the event to the audit stream, without blocking. If the stream drops it, its identity and outcome are
+     * forgotten, so that the next decision is reported instead of being suppressed for the whole window.
+     */
+    public void publish(CertificateAuditEvent event) {
+        if (!stream.publish(event)) {
+            recent.invalidate(new Key(event.getThumbprint(), event.getOutcome(), event.getProtocol()));
+        }
+    }
+
+    private record Key(String thumbprint, String outcome, String protocol) {}
+}
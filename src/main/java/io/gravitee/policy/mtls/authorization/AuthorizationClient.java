@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Transport of authorization requests to an external entitlement service.
+ *
+ * @author GraviteeSource Team
+ */
+@FunctionalInterface
+public interface AuthorizationClient {
+    /**
+     * Asks the service whether client certificates are authorized. Must not block.
+     *
+     * @param thumbprints the thumbprints of the certificates, base64url encoded.
+     * @return the decision of the service for each thumbprint, <code>true</code> if the certificate is authorized. The
+     * status of a thumbprint without decision is unknown, as when the service can't be reached.
+     */
+    CompletionStage<Map<String, Boolean>> authorize(Collection<String> thumbprints);
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+/**
+ * Outcome of the authorization of a client certificate by the external service.
+ *
+ * @author GraviteeSource Team
+ */
+public enum AuthorizationStatus {
+    ALLOWED,
+    DENIED,
+    /**
+     * The service could not be reached or answered with an error.
+     */
+    UNKNOWN,
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Authorizes client certificates against an external service, without ever blocking the calling thread.
+ * <p>
+ * Decisions are cached by thumbprint, allowed ones for the positive TTL and denied ones for the negative TTL. Concurrent
+ * lookups for the same thumbprint share a single in-flight request, and the thumbprints missing from the cache within a
+ * short window are sent together in a single call, so that a cold start does not send one call per client to the service.
+ * Failures are only cached for a short time so that the service is not called for every request while it is failing.
+ * A thumbprint missing from the answer of the service is a failure too rather than a denial: a partial answer, e.g.
+ * from a service truncating large batches, must not lock legitimate clients out for the negative TTL.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class CertificateAuthorizer {
+
+    static final long FAILURE_CACHE_DURATION = TimeUnit.SECONDS.toMillis(10);
+
+    private final long timeout;
+    private final long positiveTtl;
+    private final long negativeTtl;
+    private final long batchWindow;
+    private final int maxBatchSize;
+    private final LongSupplier clock;
+    private final AsyncCache<String, AuthorizationResult> decisionCache;
+    private final Object lock = new Object();
+    private Batch pending;
+
+    /**
+     * @param timeout the maximum duration of a call to the service, in milliseconds.
+     * @param positiveTtl the duration an allowed certificate is cached, in milliseconds.
+     * @param negativeTtl the duration a denied certificate is cached, in milliseconds.
+     * @param batchWindow the maximum duration a lookup waits for others to be sent with, in milliseconds.
+     * @param maxBatchSize the maximum number of thumbprints sent in a single call.
+     */
+    public CertificateAuthorizer(long timeout, long positiveTtl, long negativeTtl, long batchWindow, int maxBatchSize) {
+        this(timeout, positiveTtl, negativeTtl, batchWindow, maxBatchSize, System::currentTimeMillis);
+    }
+
+    CertificateAuthorizer(long timeout, long positiveTtl, long negativeTtl, long batchWindow, int maxBatchSize, LongSupplier clock) {
+        this.timeout = timeout;
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+        this.batchWindow = Math.max(0, batchWindow);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.clock = clock;
+        this.decisionCache = Caffeine.newBuilder()
+            .maximumSize(CertificateCache.DEFAULT_MAXIMUM_SIZE)
+            .expireAfter(new ResultExpiry(clock))
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.AUTHORIZATION))
+            .buildAsync();
+    }
+
+    /**
+     * @return the cached status of the certificate, or <code>null</code> if it has to be looked up.
+     */
+    public AuthorizationStatus cachedStatus(String thumbprint) {
+        final CompletableFuture<AuthorizationResult> result = decisionCache.getIfPresent(thumbprint);
+        if (result != null && result.isDone() && !result.isCompletedExceptionally()) {
+            // The cache only sets the expiry of the entry once notified of the completion, which may not have happened yet.
+            final AuthorizationResult decision = result.join();
+            return decision.expiresAt() > clock.getAsLong() ? decision.status() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the status of the certificate, sharing the lookup with concurrent callers.
+     *
+     * @param thumbprint the thumbprint of the certificate.
+     * @param client the client to call the service with, may be <code>null</code> in which case the status is unknown.
+     */
+    public CompletionStage<AuthorizationStatus> status(String thumbprint, AuthorizationClient client) {
+        return decisionCache.get(thumbprint, (k, executor) -> lookup(k, client)).thenApply(AuthorizationResult::status);
+    }
+
+    private CompletableFuture<AuthorizationResult> lookup(String thumbprint, AuthorizationClient client) {
+        if (client == null) {
+            return CompletableFuture.completedFuture(failure());
+        }
+        final CompletableFuture<AuthorizationResult> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (lock) {
+            if (pending == null) {
+                final Batch batch = new Batch(client);
+                pending = batch;
+                CompletableFuture.delayedExecutor(batchWindow, TimeUnit.MILLISECONDS).execute(() -> flush(batch));
+            }
+            pending.lookups.put(thumbprint, result);
+            if (pending.lookups.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+            }
+        }
+        if (full != null) {
+            // Not sent on the calling thread, which is computing a cache entry.
+            final Batch batch = full;
+            ForkJoinPool.commonPool().execute(() -> send(batch));
+        }
+        return result;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                // Already sent when full.
+                return;
+            }
+            pending = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        try {
+            batch.client
+                .authorize(batch.lookups.keySet())
+                .toCompletableFuture()
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .whenComplete((decisions, error) -> {
+                    if (error != null) {
+                        log.debug("Unable to authorize {} client certificates", batch.lookups.size(), error);
+                    }
+                    for (Map.Entry<String, CompletableFuture<AuthorizationResult>> lookup : batch.lookups.entrySet()) {
+                        final Boolean allowed = error != null || decisions == null ? null : decisions.get(lookup.getKey());
+                        if (error == null && allowed == null) {
+                            log.debug("No authorization decision for client certificate {}", lookup.getKey());
+                        }
+                        lookup.getValue().complete(allowed != null ? decision(allowed) : failure());
+                    }
+                });
+        } catch (Exception e) {
+            log.debug("Unable to authorize {} client certificates", batch.lookups.size(), e);
+            batch.lookups.values().forEach(lookup -> lookup.complete(failure()));
+        }
+    }
+
+    private AuthorizationResult decision(boolean allowed) {
+        return allowed
+            ? new AuthorizationResult(AuthorizationStatus.ALLOWED, clock.getAsLong() + positiveTtl)
+            : new AuthorizationResult(AuthorizationStatus.DENIED, clock.getAsLong() + negativeTtl);
+    }
+
+    private AuthorizationResult failure() {
+        return new AuthorizationResult(AuthorizationStatus.UNKNOWN, clock.getAsLong() + Math.min(FAILURE_CACHE_DURATION, negativeTtl));
+    }
+
+    private static final class Batch {
+
+        private final AuthorizationClient client;
+        private final Map<String, CompletableFuture<AuthorizationResult>> lookups = new LinkedHashMap<>();
+
+        private Batch(AuthorizationClient client) {
+            this.client = client;
+        }
+    }
+
+    record AuthorizationResult(AuthorizationStatus status, long expiresAt) {}
+
+    private record ResultExpiry(LongSupplier clock) implements Expiry<String, AuthorizationResult> {
+        @Override
+        public long expireAfterCreate(String key, AuthorizationResult result, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, result.expiresAt() - clock.getAsLong()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, AuthorizationResult result, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, AuthorizationResult result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
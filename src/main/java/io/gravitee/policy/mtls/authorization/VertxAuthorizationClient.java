@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+import io.gravitee.policy.mtls.http.SharedHttpClients;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link AuthorizationClient} posting batches of thumbprints as JSON with the Vert.x instance of the gateway, through the
+ * HTTP client it shares with the other policy instances, see {@link SharedHttpClients}:
+ * <pre>
+ * POST {"thumbprints": ["...", "..."]}
+ * 200  {"decisions": {"...": true, "...": false}}
+ * </pre>
+ * Thumbprints without a boolean decision are left out of the result, their status being unknown.
+ *
+ * @author GraviteeSource Team
+ */
+public class VertxAuthorizationClient implements AuthorizationClient {
+
+    private static final String APPLICATION_JSON = "application/json";
+
+    private final HttpClient httpClient;
+    private final String url;
+    private final long timeout;
+
+    public VertxAuthorizationClient(Vertx vertx, String url, long timeout) {
+        this.httpClient = SharedHttpClients.of(vertx);
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletionStage<Map<String, Boolean>> authorize(Collection<String> thumbprints) {
+        final RequestOptions options = new RequestOptions()
+            .setMethod(HttpMethod.POST)
+            .setAbsoluteURI(url)
+            .setConnectTimeout(timeout)
+            .setIdleTimeout(timeout)
+            .putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+            .putHeader(HttpHeaders.ACCEPT, APPLICATION_JSON);
+        final Buffer body = new JsonObject().put("thumbprints", new JsonArray(thumbprints.stream().toList())).toBuffer();
+
+        return httpClient
+            .request(options)
+            .compose(httpRequest -> httpRequest.send(body))
+            .compose(httpResponse ->
+                httpResponse.statusCode() == 200
+                    ? httpResponse.body()
+                    : Future.failedFuture("Authorization service " + url + " answered with status " + httpResponse.statusCode())
+            )
+            .map(VertxAuthorizationClient::decisions)
+            .toCompletionStage();
+    }
+
+    private static Map<String, Boolean> decisions(Buffer body) {
+        final JsonObject decisions = body.toJsonObject().getJsonObject("decisions");
+        final Map<String, Boolean> result = new HashMap<>();
+        if (decisions != null) {
+            for (Map.Entry<String, Object> decision : decisions) {
+                if (decision.getValue() instanceof Boolean allowed) {
+                    result.put(decision.getKey(), allowed);
+                }
+            }
+        }
+        return result;
+    }
+}
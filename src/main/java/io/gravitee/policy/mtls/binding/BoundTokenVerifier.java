@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.binding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.certificate.Thumbprint;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import java.security.MessageDigest;
+import java.util.Base64;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Verifies that the bearer access token of a request is bound to the client certificate, as defined by RFC 8705: the
+ * <code>cnf.x5t#S256</code> claim of the JWT must be the SHA-256 thumbprint of the certificate.
+ * <p>
+ * The token is neither verified nor checked for expiry here: this is left to the policy validating it, the binding only
+ * proving that the token is presented by the client it was issued to. Clients send the same token over and over until it
+ * expires, so the bound thumbprint is decoded once per token and compared with the raw digest of the certificate, in
+ * constant time. As with forwarded certificates, tokens are cached by value and compared in full on a hit, and so are
+ * tokens which are not bound.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class BoundTokenVerifier {
+
+    /**
+     * Longest accepted access token, well above any JWT.
+     */
+    public static final int MAX_TOKEN_LENGTH = 16 * 1024;
+
+    /**
+     * Upper bound of the cumulative length of the cached tokens.
+     */
+    static final long MAXIMUM_WEIGHT = 16L * 1024 * 1024;
+
+    private static final String BEARER = "Bearer ";
+    private static final int SHA_256_LENGTH = 32;
+    private static final byte[] UNBOUND = new byte[0];
+
+    private final Cache<String, byte[]> boundThumbprints;
+
+    public BoundTokenVerifier() {
+        this.boundThumbprints = Caffeine.newBuilder()
+            .maximumWeight(MAXIMUM_WEIGHT)
+            .weigher((String token, byte[] thumbprint) -> token.length())
+            .expireAfterAccess(CertificateCache.DEFAULT_EXPIRE_AFTER_ACCESS)
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.BOUND_TOKEN))
+            .build();
+    }
+
+    /**
+     * @param authorization the value of the <code>Authorization</code> header, possibly <code>null</code>.
+     * @param thumbprint the SHA-256 thumbprint of the client certificate, possibly <code>null</code>.
+     * @return <code>true</code> if the header holds a bearer JWT bound to the certificate.
+     */
+    public boolean isBound(String authorization, Thumbprint thumbprint) {
+        if (
+            thumbprint == null ||
+            authorization == null ||
+            authorization.length() > BEARER.length() + MAX_TOKEN_LENGTH ||
+            !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())
+        ) {
+            return false;
+        }
+        final String token = authorization.substring(BEARER.length()).strip();
+        final byte[] boundThumbprint = boundThumbprints.get(token, BoundTokenVerifier::decodeBoundThumbprint);
+        return boundThumbprint != UNBOUND && MessageDigest.isEqual(boundThumbprint, thumbprint.digest());
+    }
+
+    private static byte[] decodeBoundThumbprint(String token) {
+        final int payloadStart = token.indexOf('.') + 1;
+        final int payloadEnd = token.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return UNBOUND;
+        }
+        try {
+            final Base64.Decoder decoder = Base64.getUrlDecoder();
+            final JsonObject claims = new JsonObject(Buffer.buffer(decoder.decode(token.substring(payloadStart, payloadEnd))));
+            final JsonObject confirmation = claims.getJsonObject("cnf");
+            final String x5t = confirmation != null ? confirmation.getString("x5t#S256") : null;
+            if (x5t == null) {
+                return UNBOUND;
+            }
+            final byte[] thumbprint = decoder.decode(x5t);
+            return thumbprint.length == SHA_256_LENGTH ? thumbprint : UNBOUND;
+        } catch (RuntimeException e) {
+            log.debug("Unable to read the confirmation claim of the access token: {}", e.getMessage());
+            return UNBOUND;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import javax.security.auth.x500.X500Principal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parsed view of the names of a certificate: subject and issuer distinguished names, DNS and URI subject alternative names.
+ *
+ * @param subjectDn the subject DN, in RFC 2253 format.
+ * @param issuerDn the issuer DN, in RFC 2253 format.
+ * @param canonicalIssuerDn the issuer DN, in canonical format, to compare DNs regardless of their encoding.
+ * @param dnsNames the DNS subject alternative names, lower-cased.
+ * @param uris the URI subject alternative names, SPIFFE IDs included.
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public record CertificateAttributes(String subjectDn, String issuerDn, String canonicalIssuerDn, List<String> dnsNames, List<String> uris) {
+    private static final int SAN_DNS_NAME = 2;
+    private static final int SAN_URI = 6;
+
+    public static CertificateAttributes parse(X509Certificate certificate) {
+        final X500Principal subject = certificate.getSubjectX500Principal();
+        final X500Principal issuer = certificate.getIssuerX500Principal();
+        final List<String> dnsNames = new ArrayList<>();
+        final List<String> uris = new ArrayList<>();
+
+        try {
+            final Collection<List<?>> subjectAlternativeNames = certificate.getSubjectAlternativeNames();
+            if (subjectAlternativeNames != null) {
+                for (List<?> san : subjectAlternativeNames) {
+                    final int type = (Integer) san.get(0);
+                    if (type == SAN_DNS_NAME) {
+                        dnsNames.add(((String) san.get(1)).toLowerCase(Locale.ROOT));
+                    } else if (type == SAN_URI) {
+                        uris.add((String) san.get(1));
+                    }
+                }
+            }
+        } catch (CertificateParsingException e) {
+            log.debug("Unable to parse the subject alternative names of the client certificate", e);
+        }
+
+        return new CertificateAttributes(
+            subject == null ? null : subject.getName(X500Principal.RFC2253),
+            issuer == null ? null : issuer.getName(X500Principal.RFC2253),
+            issuer == null ? null : issuer.getName(X500Principal.CANONICAL),
+            List.copyOf(dnsNames),
+            List.copyOf(uris)
+        );
+    }
+
+    /**
+     * @param dn a DN in RFC 2253 format.
+     * @return the value of the most specific CN of the DN, or <code>null</code> if it has none or can't be parsed.
+     */
+    public static String commonName(String dn) {
+        if (dn == null) {
+            return null;
+        }
+        try {
+            final List<Rdn> rdns = new LdapName(dn).getRdns();
+            // RDNs are listed from the least to the most specific one.
+            for (int i = rdns.size() - 1; i >= 0; i--) {
+                if ("CN".equalsIgnoreCase(rdns.get(i).getType())) {
+                    return rdns.get(i).getValue().toString();
+                }
+            }
+        } catch (InvalidNameException e) {
+            log.debug("Unable to parse the DN '{}'", dn, e);
+        }
+        return null;
+    }
+}
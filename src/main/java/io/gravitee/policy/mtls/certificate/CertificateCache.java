@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Caches a value derived from a client certificate, such as its thumbprint, for the lifetime of its TLS session.
+ * <p>
+ * The peer certificates of a TLS session never change, and the session always hands out the same {@link X509Certificate}
+ * instances (only the array is cloned). The cache is therefore keyed on the identity of the leaf certificate, with weak
+ * keys so that an entry disappears together with the session holding it.
+ *
+ * @param <V> the type of the cached value.
+ * @author GraviteeSource Team
+ */
+public class CertificateCache<V> {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final Duration DEFAULT_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(10);
+
+    private final Cache<X509Certificate, V> cache;
+
+    /**
+     * @param name the name of the cache, under which its statistics are also aggregated with the ones of the caches of the
+     * other policy instances, see {@link CacheStatistics}.
+     */
+    public CertificateCache(String name) {
+        this(name, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_ACCESS);
+    }
+
+    public CertificateCache(String name, long maximumSize, Duration expireAfterAccess) {
+        this.cache = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(expireAfterAccess)
+            .recordStats(() -> CacheStatistics.recordingTo(new ConcurrentStatsCounter(), name))
+            .build();
+    }
+
+    /**
+     * Returns the value associated to the given certificate, computing it only if it is not already known.
+     *
+     * @param certificate the leaf certificate of the TLS session.
+     * @param mappingFunction the function computing the value, may return <code>null</code> if it can't be computed.
+     * @return the value, or <code>null</code> if it can't be computed. A <code>null</code> result is never cached.
+     */
+    public V get(X509Certificate certificate, Function<X509Certificate, V> mappingFunction) {
+        return cache.get(certificate, mappingFunction);
+    }
+
+    public Stats stats() {
+        final var stats = cache.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), cache.estimatedSize());
+    }
+
+    public record Stats(long hitCount, long missCount, long size) {}
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gateway-wide store of what is derived from client certificates, shared by all the policy instances so that a
+ * certificate calling many APIs is parsed and digested once, and held once in memory.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the DER encoding of the certificate, and held weakly. Each policy instance
+ * accesses the store through a {@link View}, a bounded cache of the entries of the certificates it has recently seen,
+ * which holds them strongly until they expire from it. An entry is therefore kept for as long as a view uses it, and
+ * dropped once no view does anymore, e.g. after the API has been undeployed and its policy instance garbage collected:
+ * the memory of the store is bounded by the number of distinct client certificates, whatever the number of APIs.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class CertificateStore {
+
+    private static final ThumbprintDigester KEY_DIGESTER = new ThumbprintDigester(EnumSet.of(ThumbprintAlgorithm.SHA_256));
+    private static final CertificateStore SHARED = new CertificateStore();
+
+    private final Cache<Key, Entry> entries = Caffeine.newBuilder().weakValues().build();
+    private final StatsCounter stats = CacheStatistics.counter(CacheStatistics.CERTIFICATE_STORE);
+
+    CertificateStore() {}
+
+    public static CertificateStore shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param digester the digester of the thumbprints the policy instance needs.
+     * @return a new view of the store, for a policy instance.
+     */
+    public View view(ThumbprintDigester digester) {
+        return new View(this, digester);
+    }
+
+    /**
+     * @return the number of certificates in the store, once the entries no longer used have been dropped.
+     */
+    public long size() {
+        entries.cleanUp();
+        return entries.estimatedSize();
+    }
+
+    private Entry acquire(X509Certificate certificate, byte[] encoded) throws Exception {
+        final Key key = new Key(KEY_DIGESTER.digest(encoded).get(ThumbprintAlgorithm.SHA_256).digest());
+        final boolean[] created = new boolean[1];
+        final Entry entry = entries.get(key, k -> {
+            created[0] = true;
+            return new Entry(certificate);
+        });
+        if (created[0]) {
+            stats.recordMisses(1);
+        } else {
+            stats.recordHits(1);
+        }
+        return entry;
+    }
+
+    /**
+     * Access of a policy instance to the store.
+     * <p>
+     * Entries are cached by certificate, compared by their encoding, until they haven't been used for a while. The cache
+     * isn't keyed weakly on the certificate: the entry holds the certificate it was created from, so the key would never
+     * be collected anyway.
+     */
+    public static final class View {
+
+        private final CertificateStore store;
+        private final ThumbprintDigester digester;
+        private final Cache<X509Certificate, Entry> certificates;
+
+        private View(CertificateStore store, ThumbprintDigester digester) {
+            this.store = store;
+            this.digester = digester;
+            this.certificates = Caffeine.newBuilder()
+                .maximumSize(CertificateCache.DEFAULT_MAXIMUM_SIZE)
+                .expireAfterAccess(CertificateCache.DEFAULT_EXPIRE_AFTER_ACCESS)
+                .recordStats(() -> CacheStatistics.recordingTo(new ConcurrentStatsCounter(), CacheStatistics.THUMBPRINT))
+                .build();
+        }
+
+        /**
+         * Returns the entry of the given certificate, digested with the algorithms of the view.
+         *
+         * @param certificate the leaf certificate of the TLS session.
+         * @return the entry, or <code>null</code> if the certificate can't be encoded. A <code>null</code> result is never
+         * cached.
+         */
+        public Entry entry(X509Certificate certificate) {
+            return certificates.get(certificate, this::load);
+        }
+
+        public CertificateCache.Stats stats() {
+            final var stats = certificates.stats();
+            return new CertificateCache.Stats(stats.hitCount(), stats.missCount(), certificates.estimatedSize());
+        }
+
+        /**
+         * Drops all the entries of the view, so that the store no longer holds the ones only this view referenced. Only
+         * used by tests: otherwise, entries leave a view when they expire or together with the view itself.
+         */
+        void clear() {
+            certificates.invalidateAll();
+        }
+
+        private Entry load(X509Certificate certificate) {
+            try {
+                final byte[] encoded = certificate.getEncoded();
+                final Entry entry = store.acquire(certificate, encoded);
+                if (!digester.isCoveredBy(entry.thumbprints)) {
+                    entry.addThumbprints(digester.digest(encoded));
+                }
+                return entry;
+            } catch (Exception e) {
+                log.debug("Unable to generate thumbprint of the client certificate", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * What is known of a client certificate, each value being computed on first use by any policy instance.
+     */
+    public static final class Entry {
+
+        private static final Thumbprints NO_THUMBPRINTS = new Thumbprints(new Thumbprint[ThumbprintAlgorithm.values().length]);
+
+        private final X509Certificate certificate;
+        private volatile Thumbprints thumbprints = NO_THUMBPRINTS;
+        private volatile CertificateAttributes attributes;
+        private volatile CertificateValidity validity;
+        private volatile String commonName;
+        private volatile String serialNumber;
+
+        private Entry(X509Certificate certificate) {
+            this.certificate = certificate;
+        }
+
+        /**
+         * @return an entry which is not part of any store, for a certificate which can't be encoded.
+         */
+        static Entry unstored(X509Certificate certificate) {
+            return new Entry(certificate);
+        }
+
+        /**
+         * @return the thumbprints of the certificate, for at least the algorithms of the view it was obtained from.
+         */
+        public Thumbprints thumbprints() {
+            return thumbprints;
+        }
+
+        public CertificateAttributes attributes() {
+            CertificateAttributes current = attributes;
+            if (current == null) {
+                current = CertificateAttributes.parse(certificate);
+                attributes = current;
+            }
+            return current;
+        }
+
+        /**
+         * @return the validity period of the certificate, or <code>null</code> if it is not available.
+         */
+        public CertificateValidity validity() {
+            CertificateValidity current = validity;
+            if (current == null) {
+                current = CertificateValidity.of(certificate);
+                validity = current;
+            }
+            return current;
+        }
+
+        /**
+         * @return the most specific common name of the subject DN, or <code>null</code> if it has none.
+         */
+        public String commonName() {
+            String current = commonName;
+            if (current == null) {
+                current = CertificateAttributes.commonName(attributes().subjectDn());
+                commonName = current;
+            }
+            return current;
+        }
+
+        /**
+         * @return the serial number of the certificate, in lower-case hexadecimal.
+         */
+        public String serialNumber() {
+            String current = serialNumber;
+            if (current == null && certificate.getSerialNumber() != null) {
+                current = certificate.getSerialNumber().toString(16);
+                serialNumber = current;
+            }
+            return current;
+        }
+
+        private synchronized void addThumbprints(Thumbprints added) {
+            thumbprints = thumbprints.merge(added);
+        }
+    }
+
+    private record Key(byte[] digest) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(digest);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Validity period of a certificate, read once so that checking it is a comparison of <code>long</code> values, unlike
+ * {@link X509Certificate#checkValidity()} which allocates a date on every call.
+ *
+ * @param notBefore the start of the validity period, in milliseconds since the epoch.
+ * @param notAfter the end of the validity period, inclusive, in milliseconds since the epoch.
+ * @author GraviteeSource Team
+ */
+public record CertificateValidity(long notBefore, long notAfter) {
+    /**
+     * @return the validity period of the certificate, or <code>null</code> if it is not available.
+     */
+    public static CertificateValidity of(X509Certificate certificate) {
+        if (certificate.getNotBefore() == null || certificate.getNotAfter() == null) {
+            return null;
+        }
+        return new CertificateValidity(certificate.getNotBefore().getTime(), certificate.getNotAfter().getTime());
+    }
+
+    public boolean isExpiredAt(long now) {
+        return now > notAfter;
+    }
+
+    public boolean isNotYetValidAt(long now) {
+        return now < notBefore;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.nio.ByteBuffer;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.EnumSet;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thumbprint of the certificate at a given position of the client certificate chain, e.g. 1 for the issuing CA, used
+ * as security token so that all the certificates issued by the same CA share a single subscription.
+ * <p>
+ * A gateway only sees a handful of distinct intermediates, each one decoded again by every TLS handshake, so their
+ * thumbprints are memoized by DER encoding: a new instance of a known intermediate costs a hash of its bytes instead of a
+ * digest. The chain is only followed through certificates issued by one another: the DNs must match and each certificate
+ * must be signed by the next one, as the TLS handshake only checks the chain up to the first trusted certificate, which
+ * may be the client certificate itself. Checked links are memoized too, so that a signature is only verified once per
+ * pair of certificates.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class ChainThumbprints {
+
+    /**
+     * Upper bound of the number of memoized certificates, well above the number of CAs issuing client certificates.
+     */
+    static final long MAXIMUM_SIZE = 1_000;
+
+    private final ThumbprintAlgorithm algorithm;
+    private final ThumbprintDigester digester;
+    private final int position;
+    private final boolean fallback;
+    private final Cache<ByteBuffer, Thumbprint> thumbprints;
+    private final Cache<Link, Boolean> links;
+
+    /**
+     * @param algorithm the algorithm of the thumbprint.
+     * @param position the position of the certificate in the chain, 0 being the client certificate.
+     * @param fallback whether to use the last certificate of chains shorter than the position.
+     */
+    public ChainThumbprints(ThumbprintAlgorithm algorithm, int position, boolean fallback) {
+        this.algorithm = algorithm;
+        this.digester = new ThumbprintDigester(EnumSet.of(algorithm));
+        this.position = position;
+        this.fallback = fallback;
+        this.thumbprints = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterAccess(CertificateCache.DEFAULT_EXPIRE_AFTER_ACCESS)
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.CHAIN_THUMBPRINT))
+            .build();
+        this.links = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterAccess(CertificateCache.DEFAULT_EXPIRE_AFTER_ACCESS)
+            .build();
+    }
+
+    /**
+     * @return the thumbprint of the certificate at the configured position, or <code>null</code> if the chain is too short
+     * without fallback, or if a certificate up to that position did not sign the previous one.
+     */
+    public Thumbprint thumbprint(Certificate[] chain) {
+        final int index = fallback ? Math.min(position, chain.length - 1) : position;
+        if (index >= chain.length || !isLinked(chain, index)) {
+            return null;
+        }
+        final X509Certificate certificate = (X509Certificate) chain[index];
+        try {
+            return thumbprints.get(ByteBuffer.wrap(certificate.getEncoded()), this::digest);
+        } catch (CertificateEncodingException e) {
+            log.debug("Unable to encode the certificate at position {} of the client certificate chain", index, e);
+            return null;
+        }
+    }
+
+    private Thumbprint digest(ByteBuffer encoded) {
+        try {
+            return digester.digest(encoded.array()).get(algorithm);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to digest the certificate with " + algorithm, e);
+        }
+    }
+
+    private boolean isLinked(Certificate[] chain, int index) {
+        for (int i = 0; i < index; i++) {
+            if (
+                !(chain[i] instanceof X509Certificate subject) ||
+                !(chain[i + 1] instanceof X509Certificate issuer) ||
+                !subject.getIssuerX500Principal().equals(issuer.getSubjectX500Principal()) ||
+                !isSignedBy(subject, issuer)
+            ) {
+                return false;
+            }
+        }
+        return chain[index] instanceof X509Certificate;
+    }
+
+    private boolean isSignedBy(X509Certificate subject, X509Certificate issuer) {
+        try {
+            final Link link = new Link(ByteBuffer.wrap(subject.getEncoded()), ByteBuffer.wrap(issuer.getEncoded()));
+            return links.get(link, l -> verify(subject, issuer));
+        } catch (CertificateEncodingException e) {
+            log.debug("Unable to encode the client certificate chain", e);
+            return false;
+        }
+    }
+
+    private static boolean verify(X509Certificate subject, X509Certificate issuer) {
+        try {
+            subject.verify(issuer.getPublicKey());
+            return true;
+        } catch (Exception e) {
+            log.debug("{} is not signed by {}", subject.getSubjectX500Principal(), issuer.getSubjectX500Principal(), e);
+            return false;
+        }
+    }
+
+    private record Link(ByteBuffer subject, ByteBuffer issuer) {}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Client certificate of a request, published as an attribute of the execution context so that the other policies and
+ * EL expressions read its details without parsing the certificate of the TLS session themselves, e.g.
+ * <code>{#context.attributes['mtls.certificate'].subjectCn}</code>.
+ * <p>
+ * Nothing is computed until a detail is read, and then only once: the details are those of the entry of the certificate
+ * in the {@link CertificateStore}, shared by all the requests presenting the same certificate.
+ *
+ * @author GraviteeSource Team
+ */
+public final class ClientCertificate {
+
+    private final X509Certificate certificate;
+    private final CertificateStore.View store;
+    private final ThumbprintAlgorithm thumbprintAlgorithm;
+    private CertificateStore.Entry entry;
+
+    /**
+     * @param certificate the leaf certificate of the request.
+     * @param store the view of the store of the policy instance.
+     * @param thumbprintAlgorithm the algorithm of the thumbprint exposed, the one of the security token.
+     */
+    public ClientCertificate(X509Certificate certificate, CertificateStore.View store, ThumbprintAlgorithm thumbprintAlgorithm) {
+        this.certificate = certificate;
+        this.store = store;
+        this.thumbprintAlgorithm = thumbprintAlgorithm;
+    }
+
+    /**
+     * @return the thumbprint of the certificate, base64url encoded, or <code>null</code> if it can't be computed.
+     */
+    public String getThumbprint() {
+        final Thumbprint thumbprint = entry().thumbprints().get(thumbprintAlgorithm);
+        return thumbprint == null ? null : thumbprint.value();
+    }
+
+    /**
+     * @return the subject DN, in RFC 2253 format.
+     */
+    public String getSubjectDn() {
+        return entry().attributes().subjectDn();
+    }
+
+    /**
+     * @return the most specific common name of the subject DN, or <code>null</code> if it has none.
+     */
+    public String getSubjectCn() {
+        return entry().commonName();
+    }
+
+    /**
+     * @return the issuer DN, in RFC 2253 format.
+     */
+    public String getIssuerDn() {
+        return entry().attributes().issuerDn();
+    }
+
+    /**
+     * @return the serial number, in lower-case hexadecimal.
+     */
+    public String getSerialNumber() {
+        return entry().serialNumber();
+    }
+
+    /**
+     * @return the DNS subject alternative names, lower-cased.
+     */
+    public List<String> getDnsNames() {
+        return entry().attributes().dnsNames();
+    }
+
+    /**
+     * @return the URI subject alternative names, SPIFFE IDs included.
+     */
+    public List<String> getUris() {
+        return entry().attributes().uris();
+    }
+
+    /**
+     * @return the start of the validity period, in milliseconds since the epoch, or <code>null</code> if not available.
+     */
+    public Long getNotBefore() {
+        final CertificateValidity validity = entry().validity();
+        return validity == null ? null : validity.notBefore();
+    }
+
+    /**
+     * @return the end of the validity period, in milliseconds since the epoch, or <code>null</code> if not available.
+     */
+    public Long getNotAfter() {
+        final CertificateValidity validity = entry().validity();
+        return validity == null ? null : validity.notAfter();
+    }
+
+    private CertificateStore.Entry entry() {
+        // Requests are processed by one thread at a time: no synchronization needed.
+        if (entry == null) {
+            final CertificateStore.Entry stored = store.entry(certificate);
+            entry = stored != null ? stored : CertificateStore.Entry.unstored(certificate);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Immutable identity of an authenticated client certificate, computed once per Kafka connection and attached to it, so
+ * that re-authentications and per-message policies read it instead of the TLS session.
+ *
+ * @param thumbprint the thumbprint of the client certificate with the configured algorithm, base64url encoded, or
+ * <code>null</code> if it can't be computed.
+ * @param subjectDn the subject DN, in RFC 2253 format.
+ * @param issuerDn the issuer DN, in RFC 2253 format.
+ * @param dnsNames the DNS subject alternative names, lower-cased.
+ * @param uris the URI subject alternative names, SPIFFE IDs included.
+ * @param notBefore the start of the validity period, in milliseconds since the epoch.
+ * @param notAfter the end of the validity period, in milliseconds since the epoch.
+ * @author GraviteeSource Team
+ */
+public record ClientCertificatePrincipal(
+    String thumbprint,
+    String subjectDn,
+    String issuerDn,
+    List<String> dnsNames,
+    List<String> uris,
+    long notBefore,
+    long notAfter
+)
+    implements Principal {
+    public static ClientCertificatePrincipal of(String thumbprint, X509Certificate certificate, CertificateAttributes attributes) {
+        return new ClientCertificatePrincipal(
+            thumbprint,
+            attributes.subjectDn(),
+            attributes.issuerDn(),
+            attributes.dnsNames(),
+            attributes.uris(),
+            certificate.getNotBefore().getTime(),
+            certificate.getNotAfter().getTime()
+        );
+    }
+
+    @Override
+    public String getName() {
+        return subjectDn;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import java.util.Base64;
+
+/**
+ * Thumbprint of a certificate, keeping both the raw digest used for lookups and its base64url form used as security token.
+ *
+ * @param value the base64url encoded digest, without padding.
+ * @param digest the raw digest. Must not be modified.
+ * @author GraviteeSource Team
+ */
+public record Thumbprint(String value, byte[] digest) {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    public static Thumbprint of(byte[] digest) {
+        return new Thumbprint(ENCODER.encodeToString(digest), digest);
+    }
+}
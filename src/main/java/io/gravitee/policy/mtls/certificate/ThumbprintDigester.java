@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.EnumSet;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes the thumbprints of a certificate for a set of algorithms.
+ * <p>
+ * The certificate is DER-encoded once and its bytes are fed block by block to all the digests, so that each block is read
+ * once while it is hot in cache, whatever the number of algorithms. {@link MessageDigest} instances are kept per thread
+ * and shared by all the policies, so provider lookups only happen the first time a thread uses an algorithm.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class ThumbprintDigester {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final ThreadLocal<MessageDigest[]> DIGESTS = ThreadLocal.withInitial(() ->
+        new MessageDigest[ThumbprintAlgorithm.values().length]
+    );
+
+    private final ThumbprintAlgorithm[] algorithms;
+
+    public ThumbprintDigester(Collection<ThumbprintAlgorithm> algorithms) {
+        this.algorithms = EnumSet.copyOf(algorithms).toArray(new ThumbprintAlgorithm[0]);
+    }
+
+    /**
+     * @return the thumbprints of the certificate, or <code>null</code> if the certificate can't be encoded.
+     */
+    public Thumbprints digest(X509Certificate certificate) {
+        try {
+            return digest(certificate.getEncoded());
+        } catch (Exception e) {
+            log.debug("Unable to generate thumbprint of the client certificate", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the thumbprints of the DER-encoded certificate.
+     */
+    Thumbprints digest(byte[] encoded) throws NoSuchAlgorithmException {
+        final MessageDigest[] digests = digests();
+
+        for (int offset = 0; offset < encoded.length; offset += BLOCK_SIZE) {
+            final int length = Math.min(BLOCK_SIZE, encoded.length - offset);
+            for (MessageDigest digest : digests) {
+                digest.update(encoded, offset, length);
+            }
+        }
+
+        final Thumbprint[] thumbprints = new Thumbprint[ThumbprintAlgorithm.values().length];
+        for (int i = 0; i < algorithms.length; i++) {
+            thumbprints[algorithms[i].ordinal()] = Thumbprint.of(digests[i].digest());
+        }
+        return new Thumbprints(thumbprints);
+    }
+
+    /**
+     * @return <code>true</code> if the thumbprints include the ones of all the algorithms of the digester.
+     */
+    boolean isCoveredBy(Thumbprints thumbprints) {
+        for (ThumbprintAlgorithm algorithm : algorithms) {
+            if (thumbprints.get(algorithm) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MessageDigest[] digests() throws NoSuchAlgorithmException {
+        final MessageDigest[] perThread = DIGESTS.get();
+        final MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            final int index = algorithms[i].ordinal();
+            if (perThread[index] == null) {
+                perThread[index] = MessageDigest.getInstance(algorithms[i].getJcaName());
+            } else {
+                perThread[index].reset();
+            }
+            digests[i] = perThread[index];
+        }
+        return digests;
+    }
+}
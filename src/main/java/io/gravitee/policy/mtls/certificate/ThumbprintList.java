@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * List of certificate thumbprints which may mix several digest algorithms, the algorithm of each entry being deduced
+ * from its length. This eases migrations from one algorithm to another as both can be listed at the same time.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class ThumbprintList {
+
+    private final ThumbprintAlgorithm[] algorithms;
+    private final ThumbprintSet[] sets;
+    private final boolean empty;
+
+    private ThumbprintList(ThumbprintAlgorithm[] algorithms, ThumbprintSet[] sets) {
+        this.algorithms = algorithms;
+        this.sets = sets;
+        boolean empty = true;
+        for (ThumbprintSet set : sets) {
+            empty &= set.isEmpty();
+        }
+        this.empty = empty;
+    }
+
+    /**
+     * Builds a list from thumbprints given in any of the given algorithms. Invalid thumbprints, and thumbprints of an
+     * algorithm which is not given, are ignored.
+     *
+     * @param thumbprints the thumbprints, may be <code>null</code>.
+     * @param algorithms the algorithms the certificates are digested with.
+     */
+    public static ThumbprintList of(Collection<String> thumbprints, Collection<ThumbprintAlgorithm> algorithms) {
+        final ThumbprintAlgorithm[] candidates = algorithms.toArray(new ThumbprintAlgorithm[0]);
+        final List<List<String>> partitions = new ArrayList<>(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            partitions.add(new ArrayList<>());
+        }
+
+        if (thumbprints != null) {
+            for (String thumbprint : thumbprints) {
+                final int index = algorithmIndex(thumbprint, candidates);
+                if (index < 0) {
+                    log.warn("Ignoring invalid certificate thumbprint '{}'", thumbprint);
+                } else {
+                    partitions.get(index).add(thumbprint);
+                }
+            }
+        }
+
+        final List<ThumbprintAlgorithm> usedAlgorithms = new ArrayList<>();
+        final List<ThumbprintSet> sets = new ArrayList<>();
+        for (int i = 0; i < candidates.length; i++) {
+            if (!partitions.get(i).isEmpty()) {
+                usedAlgorithms.add(candidates[i]);
+                sets.add(ThumbprintSet.of(partitions.get(i), candidates[i].getDigestLength()));
+            }
+        }
+        return new ThumbprintList(usedAlgorithms.toArray(new ThumbprintAlgorithm[0]), sets.toArray(new ThumbprintSet[0]));
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param thumbprints the thumbprints of a certificate.
+     * @return <code>true</code> if any of the thumbprints belongs to the list.
+     */
+    public boolean contains(Thumbprints thumbprints) {
+        for (int i = 0; i < algorithms.length; i++) {
+            final Thumbprint thumbprint = thumbprints.get(algorithms[i]);
+            if (thumbprint != null && sets[i].contains(thumbprint.digest())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int algorithmIndex(String thumbprint, ThumbprintAlgorithm[] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (ThumbprintSet.decode(thumbprint, candidates[i].getDigestLength()) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
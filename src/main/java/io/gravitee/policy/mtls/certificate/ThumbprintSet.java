@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable set of certificate digests, meant to hold tens of thousands of thumbprints with a constant time and
+ * allocation free lookup.
+ * <p>
+ * Digests are packed as big-endian longs in a single open-addressing table, so an entry only costs its raw size instead
+ * of a <code>String</code> and a hash map node. Digests are uniformly distributed, their first word is used as hash.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class ThumbprintSet {
+
+    private static final ThumbprintSet EMPTY = new ThumbprintSet(0, 1, new long[0], 0, false);
+
+    private final int digestLength;
+    private final int words;
+    private final long[] table;
+    private final int mask;
+    private final int size;
+    private final boolean containsZero;
+
+    private ThumbprintSet(int digestLength, int words, long[] table, int size, boolean containsZero) {
+        this.digestLength = digestLength;
+        this.words = words;
+        this.table = table;
+        this.mask = table.length == 0 ? 0 : (table.length / words) - 1;
+        this.size = size;
+        this.containsZero = containsZero;
+    }
+
+    public static ThumbprintSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a set from thumbprints given either in base64url (as used for subscriptions) or in hexadecimal, with or
+     * without colon separators. Invalid thumbprints are ignored.
+     *
+     * @param thumbprints the thumbprints, may be <code>null</code>.
+     * @param digestLength the length in bytes of the digests, e.g. 32 for SHA-256.
+     */
+    public static ThumbprintSet of(Collection<String> thumbprints, int digestLength) {
+        if (thumbprints == null || thumbprints.isEmpty()) {
+            return EMPTY;
+        }
+
+        final int words = (digestLength + Long.BYTES - 1) / Long.BYTES;
+        final int slots = Integer.highestOneBit(Math.max(2, thumbprints.size() * 2 - 1)) << 1;
+        final long[] table = new long[slots * words];
+        final long[] entry = new long[words];
+        int size = 0;
+        boolean containsZero = false;
+
+        for (String thumbprint : thumbprints) {
+            final byte[] digest = decode(thumbprint, digestLength);
+            if (digest == null) {
+                log.warn("Ignoring invalid certificate thumbprint '{}'", thumbprint);
+                continue;
+            }
+            pack(digest, entry);
+            if (isZero(entry)) {
+                size += containsZero ? 0 : 1;
+                containsZero = true;
+                continue;
+            }
+            int slot = (int) mix(entry[0]) & (slots - 1);
+            while (!isZero(table, slot * words, words)) {
+                if (matches(table, slot * words, entry)) {
+                    break;
+                }
+                slot = (slot + 1) & (slots - 1);
+            }
+            if (isZero(table, slot * words, words)) {
+                System.arraycopy(entry, 0, table, slot * words, words);
+                size++;
+            }
+        }
+        return new ThumbprintSet(digestLength, words, table, size, containsZero);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param digest the raw digest of a certificate.
+     * @return <code>true</code> if the digest belongs to the set.
+     */
+    public boolean contains(byte[] digest) {
+        if (size == 0 || digest == null || digest.length != digestLength) {
+            return false;
+        }
+
+        final long first = word(digest, 0);
+        boolean zero = first == 0;
+        for (int w = 1; zero && w < words; w++) {
+            zero = word(digest, w) == 0;
+        }
+        if (zero) {
+            return containsZero;
+        }
+
+        int slot = (int) mix(first) & mask;
+        while (true) {
+            final int offset = slot * words;
+            if (isZero(table, offset, words)) {
+                return false;
+            }
+            if (table[offset] == first && matches(table, offset, digest)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    static byte[] decode(String thumbprint, int digestLength) {
+        if (thumbprint == null) {
+            return null;
+        }
+        final String value = thumbprint.strip().replace(":", "");
+        try {
+            final byte[] digest = value.length() == digestLength * 2 && isHex(value)
+                ? HexFormat.of().parseHex(value)
+                : Base64.getUrlDecoder().decode(value.replace('+', '-').replace('/', '_').replace("=", ""));
+            return digest.length == digestLength ? digest : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(long[] table, int offset, byte[] digest) {
+        for (int w = 1; w < words; w++) {
+            if (table[offset + w] != word(digest, w)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(long[] table, int offset, long[] entry) {
+        for (int w = 0; w < entry.length; w++) {
+            if (table[offset + w] != entry[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(long[] table, int offset, int words) {
+        for (int w = 0; w < words; w++) {
+            if (table[offset + w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(long[] entry) {
+        return isZero(entry, 0, entry.length);
+    }
+
+    private static void pack(byte[] digest, long[] entry) {
+        for (int w = 0; w < entry.length; w++) {
+            entry[w] = word(digest, w);
+        }
+    }
+
+    /**
+     * Reads the big-endian word at the given index, zero-padded when the digest length is not a multiple of 8.
+     */
+    private static long word(byte[] digest, int index) {
+        final int start = index * Long.BYTES;
+        final int end = Math.min(start + Long.BYTES, digest.length);
+        long word = 0;
+        for (int i = start; i < end; i++) {
+            word = (word << 8) | (digest[i] & 0xFF);
+        }
+        return word << (Long.BYTES - (end - start)) * 8;
+    }
+
+    private static long mix(long word) {
+        return word ^ (word >>> 32);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+
+/**
+ * Thumbprints of a certificate for each of the algorithms it has been digested with.
+ *
+ * @author GraviteeSource Team
+ */
+public final class Thumbprints {
+
+    private final Thumbprint[] thumbprints;
+
+    Thumbprints(Thumbprint[] thumbprints) {
+        this.thumbprints = thumbprints;
+    }
+
+    /**
+     * @return the thumbprint for the given algorithm, or <code>null</code> if the certificate has not been digested with it.
+     */
+    public Thumbprint get(ThumbprintAlgorithm algorithm) {
+        return thumbprints[algorithm.ordinal()];
+    }
+
+    /**
+     * @return the thumbprints of both instances, the ones of this instance taking precedence.
+     */
+    Thumbprints merge(Thumbprints other) {
+        final Thumbprint[] merged = thumbprints.clone();
+        for (int i = 0; i < merged.length; i++) {
+            if (merged[i] == null) {
+                merged[i] = other.thumbprints[i];
+            }
+        }
+        return new Thumbprints(merged);
+    }
+}
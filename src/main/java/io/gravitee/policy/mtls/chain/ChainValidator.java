@@ -0,0 +1,353 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.chain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.configuration.KeyUsage;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.CertPathValidator;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Validates the client certificate chain against the trust anchors of the API, in addition to the truststore of the
+ * server, with optional path length and key usage constraints.
+ * <p>
+ * PKIX validation costs milliseconds per chain, so outcomes are cached by chain, keyed by the sequence of the SHA-256
+ * digests of its certificates. A successful validation is cached until the earliest expiration of the certificates of
+ * the chain, a failed one for a short time only. The parameters are built once and cloned for each validation, whereas
+ * validators and certificate factories are not documented as thread-safe, so each thread has its own.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class ChainValidator {
+
+    static final long FAILURE_CACHE_DURATION = TimeUnit.SECONDS.toMillis(60);
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<CertPathValidator> PKIX = ThreadLocal.withInitial(() -> {
+        try {
+            return CertPathValidator.getInstance("PKIX");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<CertificateFactory> X509 = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * Validators of all the policy instances, by trust anchors and constraints, so that APIs trusting the same CAs share
+     * their validation outcomes. Validators are dropped once no policy instance uses them.
+     */
+    private static final Cache<SharedKey, ChainValidator> SHARED = Caffeine.newBuilder().weakValues().build();
+
+    private final Set<X509Certificate> anchorCertificates;
+    private final PKIXParameters parameters;
+    private final int maxPathLength;
+    private final LongSupplier clock;
+    private final CertificateCache<byte[]> digestCache = new CertificateCache<>(CacheStatistics.CHAIN_DIGEST);
+    private final Cache<ChainKey, Validation> validationCache;
+
+    /**
+     * @param trustAnchors the PEM bundle of the trusted certificates.
+     * @param maxPathLength the maximum number of intermediate certificates between the client certificate and the trust
+     * anchor, or a negative value for no limit.
+     * @param keyUsages the key usages the client certificate must have, if it has the extension.
+     * @param extendedKeyUsages the OIDs of the extended key usages the client certificate must have, if it has the extension.
+     * @throws IllegalArgumentException if the bundle contains no certificate or an invalid one.
+     */
+    public ChainValidator(String trustAnchors, int maxPathLength, Collection<KeyUsage> keyUsages, Collection<String> extendedKeyUsages) {
+        this(parseAnchors(trustAnchors), maxPathLength, keyUsages, extendedKeyUsages, System::currentTimeMillis);
+    }
+
+    /**
+     * @param trustAnchors the trusted certificates, e.g. read from a file.
+     * @see #ChainValidator(String, int, Collection, Collection)
+     */
+    public ChainValidator(
+        Collection<X509Certificate> trustAnchors,
+        int maxPathLength,
+        Collection<KeyUsage> keyUsages,
+        Collection<String> extendedKeyUsages
+    ) {
+        this(trustAnchors, maxPathLength, keyUsages, extendedKeyUsages, System::currentTimeMillis);
+    }
+
+    ChainValidator(
+        String trustAnchors,
+        int maxPathLength,
+        Collection<KeyUsage> keyUsages,
+        Collection<String> extendedKeyUsages,
+        LongSupplier clock
+    ) {
+        this(parseAnchors(trustAnchors), maxPathLength, keyUsages, extendedKeyUsages, clock);
+    }
+
+    ChainValidator(
+        Collection<X509Certificate> trustAnchors,
+        int maxPathLength,
+        Collection<KeyUsage> keyUsages,
+        Collection<String> extendedKeyUsages,
+        LongSupplier clock
+    ) {
+        if (trustAnchors.isEmpty()) {
+            throw new IllegalArgumentException("No trust anchor");
+        }
+        this.maxPathLength = maxPathLength;
+        this.clock = clock;
+        try {
+            this.anchorCertificates = Set.copyOf(trustAnchors);
+            final Set<TrustAnchor> anchors = new HashSet<>();
+            for (X509Certificate anchor : anchorCertificates) {
+                anchors.add(new TrustAnchor(anchor, null));
+            }
+            this.parameters = new PKIXParameters(anchors);
+            // Revocation is checked separately, against the CRLs and with OCSP.
+            this.parameters.setRevocationEnabled(false);
+            this.parameters.setTargetCertConstraints(targetConstraints(keyUsages, extendedKeyUsages));
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalArgumentException("Invalid trust anchors: " + e.getMessage(), e);
+        }
+        this.validationCache = Caffeine.newBuilder()
+            .maximumSize(CertificateCache.DEFAULT_MAXIMUM_SIZE)
+            .expireAfter(new ValidationExpiry(clock))
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.CHAIN_VALIDATION))
+            .build();
+    }
+
+    /**
+     * @return the validator of the given trust anchors and constraints shared by all the policy instances, created if none
+     * is in use.
+     * @see #ChainValidator(Collection, int, Collection, Collection)
+     */
+    public static ChainValidator shared(
+        Collection<X509Certificate> trustAnchors,
+        int maxPathLength,
+        Collection<KeyUsage> keyUsages,
+        Collection<String> extendedKeyUsages
+    ) {
+        final SharedKey key = new SharedKey(
+            Set.copyOf(trustAnchors),
+            maxPathLength,
+            keyUsages == null ? Set.of() : Set.copyOf(keyUsages),
+            extendedKeyUsages == null ? Set.of() : Set.copyOf(extendedKeyUsages)
+        );
+        return SHARED.get(key, k -> new ChainValidator(k.trustAnchors(), k.maxPathLength(), k.keyUsages(), k.extendedKeyUsages()));
+    }
+
+    /**
+     * @param chain the certificates presented by the client, starting with its own.
+     * @return <code>true</code> if the chain leads to one of the trust anchors and satisfies the constraints.
+     */
+    public boolean isTrusted(Certificate[] chain) {
+        if (chain.length == 0) {
+            return false;
+        }
+        final ChainKey key = keyOf(chain);
+        if (key == null) {
+            return false;
+        }
+        return validationCache.get(key, k -> validate(chain)).valid();
+    }
+
+    /**
+     * @return <code>true</code> if the outcome of {@link #isTrusted(Certificate[])} for the chain is already known, i.e. if
+     * checking it won't run a PKIX validation.
+     */
+    public boolean isCached(Certificate[] chain) {
+        if (chain.length == 0) {
+            return true;
+        }
+        final ChainKey key = keyOf(chain);
+        return key == null || validationCache.getIfPresent(key) != null;
+    }
+
+    long validationCacheSize() {
+        validationCache.cleanUp();
+        return validationCache.estimatedSize();
+    }
+
+    private ChainKey keyOf(Certificate[] chain) {
+        final byte[] digests = new byte[chain.length * 32];
+        for (int i = 0; i < chain.length; i++) {
+            if (!(chain[i] instanceof X509Certificate certificate)) {
+                return null;
+            }
+            final byte[] digest = digestCache.get(certificate, ChainValidator::digest);
+            if (digest == null) {
+                return null;
+            }
+            System.arraycopy(digest, 0, digests, i * 32, 32);
+        }
+        return new ChainKey(digests);
+    }
+
+    Validation validate(Certificate[] chain) {
+        final long now = clock.getAsLong();
+        final List<X509Certificate> path = new ArrayList<>(chain.length);
+        for (Certificate certificate : chain) {
+            path.add((X509Certificate) certificate);
+        }
+        // A client may also send the root, which is the trust anchor and not part of the path.
+        while (path.size() > 1 && anchorCertificates.contains(path.get(path.size() - 1))) {
+            path.remove(path.size() - 1);
+        }
+        final X509Certificate leaf = path.get(0);
+        if (maxPathLength >= 0 && path.size() - 1 > maxPathLength) {
+            log.debug("Certificate chain of {} exceeds the maximum path length", leaf.getSubjectX500Principal());
+            return failure(now);
+        }
+
+        try {
+            final PKIXParameters validationParameters = (PKIXParameters) parameters.clone();
+            validationParameters.setDate(new Date(now));
+            PKIX.get().validate(X509.get().generateCertPath(path), validationParameters);
+        } catch (GeneralSecurityException e) {
+            log.debug("Untrusted certificate chain of {}: {}", leaf.getSubjectX500Principal(), e.getMessage());
+            return failure(now);
+        }
+
+        long expiresAt = Long.MAX_VALUE;
+        for (X509Certificate certificate : path) {
+            expiresAt = Math.min(expiresAt, certificate.getNotAfter().getTime());
+        }
+        return new Validation(true, expiresAt);
+    }
+
+    private static Validation failure(long now) {
+        return new Validation(false, now + FAILURE_CACHE_DURATION);
+    }
+
+    /**
+     * @return the certificates of the PEM bundle.
+     * @throws IllegalArgumentException if the bundle contains an invalid certificate.
+     */
+    public static List<X509Certificate> parseAnchors(String pem) {
+        final List<X509Certificate> anchors = new ArrayList<>();
+        try {
+            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            final byte[] bytes = pem.getBytes(StandardCharsets.US_ASCII);
+            for (Certificate certificate : factory.generateCertificates(new ByteArrayInputStream(bytes))) {
+                anchors.add((X509Certificate) certificate);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid trust anchors: " + e.getMessage(), e);
+        }
+        return anchors;
+    }
+
+    private static X509CertSelector targetConstraints(Collection<KeyUsage> keyUsages, Collection<String> extendedKeyUsages)
+        throws IOException {
+        final X509CertSelector selector = new X509CertSelector();
+        if (keyUsages != null && !keyUsages.isEmpty()) {
+            final boolean[] bits = new boolean[KeyUsage.values().length];
+            for (KeyUsage keyUsage : keyUsages) {
+                bits[keyUsage.ordinal()] = true;
+            }
+            selector.setKeyUsage(bits);
+        }
+        if (extendedKeyUsages != null && !extendedKeyUsages.isEmpty()) {
+            selector.setExtendedKeyUsage(Set.copyOf(extendedKeyUsages));
+        }
+        return selector;
+    }
+
+    private static byte[] digest(X509Certificate certificate) {
+        try {
+            return SHA_256.get().digest(certificate.getEncoded());
+        } catch (CertificateEncodingException e) {
+            return null;
+        }
+    }
+
+    record Validation(boolean valid, long expiresAt) {}
+
+    private record ChainKey(byte[] digests) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ChainKey other && Arrays.equals(digests, other.digests);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(digests);
+        }
+
+        @Override
+        public String toString() {
+            return "ChainKey[" + digests.length / 32 + " certificates]";
+        }
+    }
+
+    private record ValidationExpiry(LongSupplier clock) implements Expiry<ChainKey, Validation> {
+        @Override
+        public long expireAfterCreate(ChainKey key, Validation validation, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, validation.expiresAt() - clock.getAsLong()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ChainKey key, Validation validation, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, validation, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ChainKey key, Validation validation, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private record SharedKey(
+        Set<X509Certificate> trustAnchors,
+        int maxPathLength,
+        Set<KeyUsage> keyUsages,
+        Set<String> extendedKeyUsages
+    ) {}
+}
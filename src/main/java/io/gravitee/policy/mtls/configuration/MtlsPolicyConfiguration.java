@@ -16,6 +16,8 @@
 package io.gravitee.policy.mtls.configuration;
 
 import io.gravitee.policy.api.PolicyConfiguration;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -27,4 +29,241 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor
-public class MtlsPolicyConfiguration implements PolicyConfiguration {}
+public class MtlsPolicyConfiguration implements PolicyConfiguration {
+
+    /**
+     * Where the client certificate of HTTP requests is read from. Kafka connections always use their TLS session.
+     */
+    private CertificateSource certificateSource = CertificateSource.TLS_SESSION;
+
+    /**
+     * Header the client certificate is forwarded in by the TLS-terminating load balancer, with {@link CertificateSource#HEADER}.
+     */
+    private String certificateHeader = "Client-Cert";
+
+    /**
+     * IP addresses or CIDR blocks of the proxies allowed to forward the client certificate in a header, required with
+     * {@link CertificateSource#HEADER}. Requests carrying an <code>X-Forwarded-For</code> header are rejected, as their peer
+     * address can be spoofed.
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /**
+     * PEM bundle of the certificates the client certificate chain must lead to, in addition to the truststore of the
+     * server. No chain validation when empty.
+     */
+    private String trustAnchors;
+
+    /**
+     * Local file of trust anchors (PEM or DER), in addition to {@link #trustAnchors}, reloaded when it changes.
+     */
+    private String trustAnchorsFile;
+
+    /**
+     * Maximum number of intermediate certificates between the client certificate and the trust anchor. No limit when
+     * <code>null</code>.
+     */
+    private Integer maxPathLength;
+
+    /**
+     * Key usages the client certificate must have, when it has the extension.
+     */
+    private List<KeyUsage> requiredKeyUsages = new ArrayList<>();
+
+    /**
+     * OIDs of the extended key usages the client certificate must have, when it has the extension, e.g.
+     * <code>1.3.6.1.5.5.7.3.2</code> for TLS client authentication.
+     */
+    private List<String> requiredExtendedKeyUsages = new ArrayList<>();
+
+    /**
+     * Algorithm of the thumbprint used as security token to look up the subscription. Must match the algorithm used by
+     * the gateway to index the client certificates of subscriptions.
+     */
+    private ThumbprintAlgorithm thumbprintAlgorithm = ThumbprintAlgorithm.SHA_256;
+
+    /**
+     * Other algorithms the client certificate is digested with, so that allowed and denied thumbprints can be given with
+     * them, e.g. while migrating from one algorithm to another.
+     */
+    private List<ThumbprintAlgorithm> additionalThumbprintAlgorithms = new ArrayList<>();
+
+    /**
+     * Position in the client certificate chain of the certificate whose thumbprint is the security token, e.g. 1 to look up
+     * a single subscription for all the certificates issued by the same intermediate CA. 0 for the client certificate.
+     */
+    private int subscriptionChainPosition;
+
+    /**
+     * Uses the last certificate of the chain, the closest to the trust anchor, when the chain presented by the client is
+     * shorter than {@link #subscriptionChainPosition}. The token is invalid otherwise.
+     */
+    private boolean subscriptionChainFallback;
+
+    /**
+     * Thumbprints of the only client certificates allowed to call the API. Any certificate is allowed when empty.
+     */
+    private List<String> allowedThumbprints = new ArrayList<>();
+
+    /**
+     * Local file of allowed thumbprints or PEM certificates, one per line, in addition to {@link #allowedThumbprints} and
+     * reloaded when it changes. Only the listed certificates are allowed, even if the file is empty or unreadable.
+     */
+    private String allowedThumbprintsFile;
+
+    /**
+     * Thumbprints of the client certificates rejected by the policy.
+     */
+    private List<String> deniedThumbprints = new ArrayList<>();
+
+    /**
+     * Local file of denied thumbprints or PEM certificates, one per line, in addition to {@link #deniedThumbprints} and
+     * reloaded when it changes.
+     */
+    private String deniedThumbprintsFile;
+
+    /**
+     * Interval, in seconds, at which the thumbprint and trust anchor files are checked for changes.
+     */
+    private long certificateFilesRefreshInterval = 60;
+
+    /**
+     * Regular expressions, one of which must match the whole subject DN (RFC 2253) of the client certificate.
+     */
+    private List<String> subjectDnPatterns = new ArrayList<>();
+
+    /**
+     * DNs, one of which must be the issuer DN of the client certificate.
+     */
+    private List<String> issuerDns = new ArrayList<>();
+
+    /**
+     * Exact or wildcard (<code>*.example.com</code>) DNS names, one of which must match a DNS SAN of the client certificate.
+     */
+    private List<String> sanDnsNames = new ArrayList<>();
+
+    /**
+     * URIs, one of which must be a URI SAN of the client certificate.
+     */
+    private List<String> sanUris = new ArrayList<>();
+
+    /**
+     * SPIFFE IDs or SPIFFE trust domains, one of which must match the SPIFFE ID of the client certificate.
+     */
+    private List<String> spiffeIds = new ArrayList<>();
+
+    /**
+     * Rejects client certificates outside their validity period, and the requests of Kafka connections authenticated with
+     * a certificate which has expired since.
+     */
+    private boolean validityCheckEnabled;
+
+    /**
+     * Validates the certificate chains which are not cached yet on a bounded pool of worker threads, rather than on the
+     * event loop. Requests are rejected with a 503 status when the pool is saturated.
+     */
+    private boolean offloadEnabled;
+
+    /**
+     * Limits the rate of the requests, and of the Kafka authentications, of each client certificate.
+     */
+    private boolean rateLimitEnabled;
+
+    /**
+     * Sustained number of requests per second allowed for each client certificate.
+     */
+    private double rateLimitRequestsPerSecond = 100;
+
+    /**
+     * Number of requests a client certificate can send at once, above the sustained rate.
+     */
+    private long rateLimitBurst = 100;
+
+    /**
+     * Rejects the HTTP requests whose bearer access token is not bound to the client certificate, i.e. whose
+     * <code>cnf.x5t#S256</code> claim (RFC 8705) is not the SHA-256 thumbprint of the certificate.
+     */
+    private boolean certificateBoundTokenRequired;
+
+    /**
+     * URL of the external service the client certificates are authorized with. No external authorization when empty.
+     */
+    private String authorizationUrl;
+
+    /**
+     * Maximum duration, in milliseconds, of a call to the authorization service.
+     */
+    private long authorizationTimeout = 2000;
+
+    /**
+     * Duration, in seconds, an authorized certificate is cached.
+     */
+    private long authorizationPositiveTtl = 300;
+
+    /**
+     * Duration, in seconds, a rejected certificate is cached.
+     */
+    private long authorizationNegativeTtl = 30;
+
+    /**
+     * Maximum duration, in milliseconds, a certificate waits for others to be authorized with in a single call.
+     */
+    private long authorizationBatchWindow = 5;
+
+    /**
+     * Maximum number of certificates authorized in a single call.
+     */
+    private int authorizationMaxBatchSize = 100;
+
+    /**
+     * Outcome when the authorization service can't be reached, e.g. on timeout.
+     */
+    private AuthorizationFailureMode authorizationFailureMode = AuthorizationFailureMode.HARD_FAIL;
+
+    /**
+     * Logs the accepted and rejected client certificate identities asynchronously, at info level on the
+     * <code>io.gravitee.policy.mtls.audit</code> logger. The events are not sent to the reporters of the gateway.
+     */
+    private boolean auditEnabled;
+
+    /**
+     * Duration, in seconds, during which the same decision for the same client certificate is only reported once.
+     */
+    private long auditDeduplicationWindow = 60;
+
+    /**
+     * Local directory of CRL files (DER or PEM) the client certificate chain is checked against. No revocation checking
+     * when empty.
+     */
+    private String crlDirectory;
+
+    /**
+     * Interval, in seconds, at which the CRL directory is checked for changes.
+     */
+    private long crlRefreshInterval = 60;
+
+    /**
+     * Checks the revocation status of the client certificate with OCSP.
+     */
+    private boolean ocspEnabled;
+
+    /**
+     * URL of the OCSP responder to use instead of the one of the client certificate (Authority Information Access).
+     */
+    private String ocspResponderUrl;
+
+    /**
+     * Maximum duration, in milliseconds, of an OCSP lookup.
+     */
+    private long ocspTimeout = 2000;
+
+    /**
+     * Outcome when the revocation status can't be determined, e.g. on timeout.
+     */
+    private OcspFailureMode ocspFailureMode = OcspFailureMode.SOFT_FAIL;
+
+    /**
+     * Maximum duration, in seconds, an OCSP status is cached, even if the response is valid longer.
+     */
+    private long ocspMaxCacheDuration = 3600;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.configuration;
+
+import lombok.Getter;
+
+/**
+ * Digest algorithms available to compute the thumbprint of a client certificate.
+ *
+ * @author GraviteeSource Team
+ */
+@Getter
+public enum ThumbprintAlgorithm {
+    SHA_1("SHA-1", 20),
+    SHA_256("SHA-256", 32),
+    SHA_512("SHA-512", 64);
+
+    private final String jcaName;
+    private final int digestLength;
+
+    ThumbprintAlgorithm(String jcaName, int digestLength) {
+        this.jcaName = jcaName;
+        this.digestLength = digestLength;
+    }
+}
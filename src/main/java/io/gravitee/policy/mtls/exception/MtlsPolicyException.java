@@ -23,4 +23,19 @@ public class MtlsPolicyException extends Exception {
     public MtlsPolicyException(String message) {
         super(message);
     }
+
+    /**
+     * Creates an exception without stack trace nor suppression, meant to be created once and thrown many times on hot
+     * rejection paths where the stack trace would carry no information.
+     *
+     * @param message the detail message.
+     * @return an immutable exception that can be safely shared.
+     */
+    public static MtlsPolicyException stackless(String message) {
+        return new MtlsPolicyException(message, false);
+    }
+
+    private MtlsPolicyException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
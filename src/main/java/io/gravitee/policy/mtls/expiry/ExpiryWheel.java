@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.expiry;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Notifies long-lived targets, such as Kafka connections, when the certificate they were authenticated with expires.
+ * <p>
+ * All the expirations are scheduled on a single hashed timer wheel with a one second tick, so that scheduling costs a
+ * constant time and no thread or timer is allocated per target. Policies have no hook to know when a connection is
+ * closed: targets are only weakly referenced, and an expiration further than the horizon is first scheduled at the
+ * horizon and then rescheduled, so that the entries of targets garbage collected in the meantime are dropped early
+ * instead of staying in the wheel until the certificate expires.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class ExpiryWheel {
+
+    static final long HORIZON = TimeUnit.HOURS.toMillis(1);
+
+    private static final ExpiryWheel SHARED = new ExpiryWheel(
+        new HashedWheelTimer(new DefaultThreadFactory("gravitee-mtls-expiry", true), 1, TimeUnit.SECONDS, 512),
+        System::currentTimeMillis,
+        HORIZON
+    );
+
+    private final Timer timer;
+    private final LongSupplier clock;
+    private final long horizon;
+
+    ExpiryWheel(Timer timer, LongSupplier clock, long horizon) {
+        this.timer = timer;
+        this.clock = clock;
+        this.horizon = horizon;
+    }
+
+    public static ExpiryWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedules the notification of the target once the given instant is passed.
+     *
+     * @param target the object to notify, only weakly referenced.
+     * @param expiresAt the last valid instant, in milliseconds since the epoch.
+     * @param onExpiry the action to run on expiry, on the thread of the wheel. Must not capture the target, which is given
+     * as argument.
+     */
+    public <T> void schedule(T target, long expiresAt, Consumer<T> onExpiry) {
+        schedule(new Entry<>(new WeakReference<>(target), expiresAt, onExpiry));
+    }
+
+    private void schedule(Entry<?> entry) {
+        final long delay = Math.min(entry.expiresAt - clock.getAsLong() + 1, horizon);
+        timer.newTimeout(entry, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private final class Entry<T> implements TimerTask {
+
+        private final WeakReference<T> target;
+        private final long expiresAt;
+        private final Consumer<T> onExpiry;
+
+        private Entry(WeakReference<T> target, long expiresAt, Consumer<T> onExpiry) {
+            this.target = target;
+            this.expiresAt = expiresAt;
+            this.onExpiry = onExpiry;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            final T current = target.get();
+            if (current == null) {
+                return;
+            }
+            if (clock.getAsLong() <= expiresAt) {
+                schedule(this);
+                return;
+            }
+            try {
+                onExpiry.accept(current);
+            } catch (Exception e) {
+                log.warn("Unable to process the expiry of {}", current, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import io.gravitee.policy.mtls.certificate.Thumbprint;
+import io.gravitee.policy.mtls.certificate.ThumbprintDigester;
+import io.gravitee.policy.mtls.certificate.Thumbprints;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Streaming readers of the certificate files of the policy, which may hold hundreds of thousands of entries: files are
+ * read line by line or certificate by certificate, never as a whole.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CertificateFiles {
+
+    private static final String PEM_BEGIN = "-----BEGIN CERTIFICATE-----";
+    private static final String PEM_END = "-----END CERTIFICATE-----";
+
+    private CertificateFiles() {}
+
+    /**
+     * Reads a list of thumbprints, one per line, possibly mixed with PEM certificates whose thumbprint is computed. Blank
+     * lines and lines starting with <code>#</code> are ignored.
+     *
+     * @param path the file to read.
+     * @param digester the digester of the certificates of the file.
+     * @param algorithm the algorithm of the thumbprints computed for the certificates of the file.
+     * @return the thumbprints, validated later by {@link io.gravitee.policy.mtls.certificate.ThumbprintList}.
+     */
+    public static List<String> readThumbprints(Path path, ThumbprintDigester digester, ThumbprintAlgorithm algorithm)
+        throws IOException, CertificateException {
+        final List<String> thumbprints = new ArrayList<>();
+        final CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            StringBuilder pem = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String trimmed = line.strip();
+                if (pem != null) {
+                    if (trimmed.equals(PEM_END)) {
+                        thumbprints.add(thumbprintOf(factory, pem, digester, algorithm));
+                        pem = null;
+                    } else {
+                        pem.append(trimmed);
+                    }
+                } else if (trimmed.equals(PEM_BEGIN)) {
+                    pem = new StringBuilder();
+                } else if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                    thumbprints.add(trimmed);
+                }
+            }
+            if (pem != null) {
+                throw new CertificateException("Unterminated PEM certificate in " + path);
+            }
+        }
+        return thumbprints;
+    }
+
+    /**
+     * Reads a bundle of certificates, PEM or DER encoded, one certificate at a time.
+     */
+    public static List<X509Certificate> readCertificates(Path path) throws IOException, CertificateException {
+        final CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        final List<X509Certificate> certificates = new ArrayList<>();
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+            for (Certificate certificate : factory.generateCertificates(is)) {
+                certificates.add((X509Certificate) certificate);
+            }
+        }
+        return certificates;
+    }
+
+    private static String thumbprintOf(
+        CertificateFactory factory,
+        CharSequence base64,
+        ThumbprintDigester digester,
+        ThumbprintAlgorithm algorithm
+    ) throws CertificateException {
+        final byte[] der = Base64.getMimeDecoder().decode(base64.toString());
+        final X509Certificate certificate = (X509Certificate) factory.generateCertificate(new ByteArrayInputStream(der));
+        final Thumbprints thumbprints = digester.digest(certificate);
+        final Thumbprint thumbprint = thumbprints == null ? null : thumbprints.get(algorithm);
+        if (thumbprint == null) {
+            throw new CertificateException("Unable to compute the thumbprint of " + certificate.getSubjectX500Principal());
+        }
+        return thumbprint.value();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import io.gravitee.policy.mtls.certificate.ThumbprintList;
+import io.gravitee.policy.mtls.chain.ChainValidator;
+import java.security.cert.Certificate;
+
+/**
+ * Snapshot of the thumbprint lists and of the chain validator of a policy, replaced as a whole when one of their files
+ * changes so that a request never sees a partially reloaded state.
+ *
+ * @param allowedThumbprints the thumbprints of the only certificates allowed.
+ * @param allowListEnabled whether the allow list applies, even if empty.
+ * @param deniedThumbprints the thumbprints of the rejected certificates.
+ * @param chainValidator the validator of the client certificate chain, <code>null</code> if there is none or if its
+ * trust anchors could not be loaded.
+ * @param chainValidationRequired whether trust anchors are configured, in which case a missing validator rejects every
+ * certificate.
+ * @author GraviteeSource Team
+ */
+public record CertificateLists(
+    ThumbprintList allowedThumbprints,
+    boolean allowListEnabled,
+    ThumbprintList deniedThumbprints,
+    ChainValidator chainValidator,
+    boolean chainValidationRequired
+) {
+    /**
+     * @param chain the certificates presented by the client, starting with its own.
+     * @return <code>true</code> if no chain validation is required or if the chain is trusted.
+     */
+    public boolean isTrusted(Certificate[] chain) {
+        if (!chainValidationRequired) {
+            return true;
+        }
+        return chainValidator != null && chainValidator.isTrusted(chain);
+    }
+
+    /**
+     * @return <code>true</code> if {@link #isTrusted(Certificate[])} answers without validating the chain.
+     */
+    public boolean isTrustCached(Certificate[] chain) {
+        return !chainValidationRequired || chainValidator == null || chainValidator.isCached(chain);
+    }
+
+    CertificateLists withAllowedThumbprints(ThumbprintList allowedThumbprints) {
+        return new CertificateLists(allowedThumbprints, allowListEnabled, deniedThumbprints, chainValidator, chainValidationRequired);
+    }
+
+    CertificateLists withDeniedThumbprints(ThumbprintList deniedThumbprints) {
+        return new CertificateLists(allowedThumbprints, allowListEnabled, deniedThumbprints, chainValidator, chainValidationRequired);
+    }
+
+    CertificateLists withChainValidator(ChainValidator chainValidator) {
+        return new CertificateLists(allowedThumbprints, allowListEnabled, deniedThumbprints, chainValidator, chainValidationRequired);
+    }
+}
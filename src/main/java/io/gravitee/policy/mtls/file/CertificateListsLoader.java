@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import io.gravitee.policy.mtls.certificate.ThumbprintDigester;
+import io.gravitee.policy.mtls.certificate.ThumbprintList;
+import io.gravitee.policy.mtls.chain.ChainValidator;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the {@link CertificateLists} of a policy from its configuration, merging the inline thumbprints and trust
+ * anchors with the ones of the configured files, and rebuilds them when a file changes.
+ * <p>
+ * Files are read on the thread of the {@link FileWatcher}, never on an event loop. If a file can't be read, the entries
+ * previously loaded from it are kept, or none on the first load: an allow list then rejects every certificate rather
+ * than allowing every one, and so does a chain validator without trust anchors.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class CertificateListsLoader {
+
+    private final MtlsPolicyConfiguration configuration;
+    private final Set<ThumbprintAlgorithm> algorithms;
+    private final ThumbprintDigester digester;
+    private final ThumbprintAlgorithm algorithm;
+    private final Path allowedThumbprintsFile;
+    private final Path deniedThumbprintsFile;
+    private final Path trustAnchorsFile;
+
+    /**
+     * @param configuration the configuration of the policy.
+     * @param algorithms the algorithms the client certificates are digested with.
+     * @param digester the digester of the certificates found in the thumbprint files.
+     * @param algorithm the algorithm of the thumbprints computed for the certificates found in the thumbprint files.
+     */
+    public CertificateListsLoader(
+        MtlsPolicyConfiguration configuration,
+        Set<ThumbprintAlgorithm> algorithms,
+        ThumbprintDigester digester,
+        ThumbprintAlgorithm algorithm
+    ) {
+        this.configuration = configuration;
+        this.algorithms = algorithms;
+        this.digester = digester;
+        this.algorithm = algorithm;
+        this.allowedThumbprintsFile = pathOf(configuration.getAllowedThumbprintsFile());
+        this.deniedThumbprintsFile = pathOf(configuration.getDeniedThumbprintsFile());
+        this.trustAnchorsFile = pathOf(configuration.getTrustAnchorsFile());
+    }
+
+    /**
+     * @return the lists built from the inline configuration and the current content of the files.
+     * @throws IllegalArgumentException if the inline trust anchors are invalid.
+     */
+    public CertificateLists load() {
+        final List<String> allowed = configuration.getAllowedThumbprints();
+        final boolean trustAnchorsConfigured = hasText(configuration.getTrustAnchors()) || trustAnchorsFile != null;
+        final CertificateLists empty = new CertificateLists(
+            ThumbprintList.of(allowed, algorithms),
+            // An allow-list made of invalid thumbprints only must reject everything, not allow everything.
+            (allowed != null && !allowed.isEmpty()) || allowedThumbprintsFile != null,
+            ThumbprintList.of(configuration.getDeniedThumbprints(), algorithms),
+            null,
+            trustAnchorsConfigured
+        );
+        CertificateLists lists = empty;
+        if (allowedThumbprintsFile != null) {
+            lists = reload(lists, allowedThumbprintsFile);
+        }
+        if (deniedThumbprintsFile != null) {
+            lists = reload(lists, deniedThumbprintsFile);
+        }
+        if (trustAnchorsFile != null) {
+            lists = reload(lists, trustAnchorsFile);
+        } else if (trustAnchorsConfigured) {
+            lists = lists.withChainValidator(chainValidator(ChainValidator.parseAnchors(configuration.getTrustAnchors())));
+        }
+        return lists;
+    }
+
+    /**
+     * Rebuilds the part of the lists coming from the given file.
+     *
+     * @return the new lists, or the current ones if the file can't be read.
+     */
+    public CertificateLists reload(CertificateLists current, Path file) {
+        try {
+            if (file.equals(allowedThumbprintsFile)) {
+                final ThumbprintList allowed = thumbprintList(configuration.getAllowedThumbprints(), file);
+                log.info("Loaded allowed thumbprints from {}", file);
+                return current.withAllowedThumbprints(allowed);
+            }
+            if (file.equals(deniedThumbprintsFile)) {
+                final ThumbprintList denied = thumbprintList(configuration.getDeniedThumbprints(), file);
+                log.info("Loaded denied thumbprints from {}", file);
+                return current.withDeniedThumbprints(denied);
+            }
+            if (file.equals(trustAnchorsFile)) {
+                final List<X509Certificate> anchors = new ArrayList<>(CertificateFiles.readCertificates(file));
+                if (hasText(configuration.getTrustAnchors())) {
+                    anchors.addAll(ChainValidator.parseAnchors(configuration.getTrustAnchors()));
+                }
+                final ChainValidator validator = chainValidator(anchors);
+                log.info("Loaded {} trust anchors from {}", anchors.size(), file);
+                return current.withChainValidator(validator);
+            }
+        } catch (Exception e) {
+            log.error("Unable to load {}, keeping the entries already loaded", file, e);
+        }
+        return current;
+    }
+
+    /**
+     * Watches the configured files, reloading the lists of the target when one of them changes.
+     *
+     * @param target the owner of the lists, only weakly referenced.
+     * @param onChange the action reloading the lists of the target from the changed file.
+     */
+    public <T> void watch(T target, BiConsumer<T, Path> onChange) {
+        final Duration interval = Duration.ofSeconds(configuration.getCertificateFilesRefreshInterval());
+        for (Path file : new Path[] { allowedThumbprintsFile, deniedThumbprintsFile, trustAnchorsFile }) {
+            if (file != null) {
+                FileWatcher.watch(target, file, interval, onChange);
+            }
+        }
+    }
+
+    private ThumbprintList thumbprintList(Collection<String> inline, Path file) throws Exception {
+        final List<String> thumbprints = CertificateFiles.readThumbprints(file, digester, algorithm);
+        if (inline != null) {
+            thumbprints.addAll(inline);
+        }
+        return ThumbprintList.of(thumbprints, algorithms);
+    }
+
+    private ChainValidator chainValidator(Collection<X509Certificate> anchors) {
+        return ChainValidator.shared(
+            anchors,
+            configuration.getMaxPathLength() != null ? configuration.getMaxPathLength() : -1,
+            configuration.getRequiredKeyUsages(),
+            configuration.getRequiredExtendedKeyUsages()
+        );
+    }
+
+    private static Path pathOf(String file) {
+        return hasText(file) ? Path.of(file) : null;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
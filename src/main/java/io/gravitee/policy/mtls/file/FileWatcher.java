@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls files or directories and notifies a target when their content changes, i.e. when a file is added, removed or
+ * has a different size or modification time.
+ * <p>
+ * All the watches share a single daemon thread, on which the targets are notified, so heavy reloads never run on an
+ * event loop. Policies have no lifecycle hook to stop a watch: the target is only weakly referenced and the watch is
+ * cancelled once the target has been garbage collected, e.g. after the API has been undeployed.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class FileWatcher {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "gravitee-mtls-file-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileWatcher() {}
+
+    /**
+     * Watches a file or a directory (not recursively).
+     *
+     * @param target the object to notify, only weakly referenced.
+     * @param path the file or directory to watch.
+     * @param interval the polling interval.
+     * @param onChange the action to run on change. Must not capture the target, which is given as first argument.
+     * @return the handle of the watch, which can be cancelled.
+     */
+    public static <T> ScheduledFuture<?> watch(T target, Path path, Duration interval, BiConsumer<T, Path> onChange) {
+        final Watch<T> watch = new Watch<>(new WeakReference<>(target), path, onChange, snapshot(path));
+        final long millis = Math.max(1, interval.toMillis());
+        watch.future = SCHEDULER.scheduleWithFixedDelay(watch, millis, millis, TimeUnit.MILLISECONDS);
+        return watch.future;
+    }
+
+    /**
+     * @return the state of the path, to be compared with a later one to detect changes.
+     */
+    static List<FileState> snapshot(Path path) {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                final List<FileState> states = new ArrayList<>();
+                files.sorted(Comparator.naturalOrder()).forEach(file -> {
+                    final FileState state = state(file);
+                    if (state != null) {
+                        states.add(state);
+                    }
+                });
+                return states;
+            } catch (IOException e) {
+                log.debug("Unable to list directory {}", path, e);
+                return List.of();
+            }
+        }
+        final FileState state = state(path);
+        return state == null ? List.of() : List.of(state);
+    }
+
+    private static FileState state(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? new FileState(file, attributes.size(), attributes.lastModifiedTime().toMillis()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    record FileState(Path path, long size, long lastModified) {}
+
+    private static final class Watch<T> implements Runnable {
+
+        private final WeakReference<T> target;
+        private final Path path;
+        private final BiConsumer<T, Path> onChange;
+        private List<FileState> lastSnapshot;
+        private volatile ScheduledFuture<?> future;
+
+        private Watch(WeakReference<T> target, Path path, BiConsumer<T, Path> onChange, List<FileState> snapshot) {
+            this.target = target;
+            this.path = path;
+            this.onChange = onChange;
+            this.lastSnapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            final T current = target.get();
+            if (current == null) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            final List<FileState> snapshot = snapshot(path);
+            if (snapshot.equals(lastSnapshot)) {
+                return;
+            }
+            lastSnapshot = snapshot;
+            try {
+                onChange.accept(current, path);
+            } catch (Exception e) {
+                log.warn("Unable to reload {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.forwarded;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.io.ByteArrayInputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses the client certificate forwarded in a header by a TLS-terminating load balancer. Supported values are:
+ * <ul>
+ *     <li>a PEM certificate, possibly URL-encoded (e.g. <code>$ssl_client_escaped_cert</code> of NGINX) or folded on
+ *     several lines,</li>
+ *     <li>an RFC 9440 <code>Client-Cert</code> byte sequence (<code>:&lt;base64 DER&gt;:</code>),</li>
+ *     <li>a base64 DER certificate.</li>
+ * </ul>
+ * <p>
+ * Parsed certificates are cached by header value, so that a client calling again with the same certificate gets the
+ * same {@link X509Certificate} instance, and all the caches keyed on it, such as the thumbprint one, keep hitting. The key
+ * is the header value itself: its hash selects the entry and the value is compared in full on a hit, as a certificate
+ * only matched by hash could be impersonated with a colliding header. Invalid values are cached as well.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class ForwardedCertificateParser {
+
+    /**
+     * Longest accepted header value, well above any client certificate.
+     */
+    public static final int MAX_HEADER_LENGTH = 16 * 1024;
+
+    /**
+     * Upper bound of the cumulative length of the cached header values.
+     */
+    static final long MAXIMUM_WEIGHT = 16L * 1024 * 1024;
+
+    private static final String PEM_BEGIN = "-----BEGIN CERTIFICATE-----";
+    private static final String PEM_END = "-----END CERTIFICATE-----";
+    private static final Certificate[] INVALID = new Certificate[0];
+
+    private final Cache<String, Certificate[]> cache;
+
+    public ForwardedCertificateParser() {
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(MAXIMUM_WEIGHT)
+            .weigher((String value, Certificate[] certificates) -> value.length())
+            .expireAfterAccess(CertificateCache.DEFAULT_EXPIRE_AFTER_ACCESS)
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.FORWARDED_CERTIFICATE))
+            .build();
+    }
+
+    /**
+     * @param value the value of the header.
+     * @return the forwarded certificate as a one-element chain, shared by all the requests with the same header value, or
+     * <code>null</code> if the value is not a certificate.
+     */
+    public Certificate[] parse(String value) {
+        if (value.length() > MAX_HEADER_LENGTH) {
+            return null;
+        }
+        final Certificate[] certificates = cache.get(value, ForwardedCertificateParser::decodeChain);
+        return certificates == INVALID ? null : certificates;
+    }
+
+    private static Certificate[] decodeChain(String value) {
+        try {
+            return new Certificate[] { decode(value) };
+        } catch (CertificateException | IllegalArgumentException e) {
+            log.debug("Invalid forwarded client certificate: {}", e.getMessage());
+            return INVALID;
+        }
+    }
+
+    static X509Certificate decode(String value) throws CertificateException {
+        String text = value.strip();
+        if (text.indexOf('%') >= 0) {
+            // A '+' is an encoded space with form encoding only, otherwise it is a literal base64 character.
+            final boolean formEncoded = text.contains("BEGIN+CERTIFICATE");
+            text = URLDecoder.decode(formEncoded ? text : text.replace("+", "%2B"), StandardCharsets.UTF_8);
+        }
+
+        final String base64;
+        final int begin = text.indexOf(PEM_BEGIN);
+        if (begin >= 0) {
+            final int end = text.indexOf(PEM_END, begin);
+            if (end < 0) {
+                throw new CertificateException("Unterminated PEM certificate");
+            }
+            base64 = text.substring(begin + PEM_BEGIN.length(), end);
+        } else if (text.length() > 1 && text.charAt(0) == ':' && text.charAt(text.length() - 1) == ':') {
+            base64 = text.substring(1, text.length() - 1);
+        } else {
+            base64 = text;
+        }
+
+        // The MIME decoder skips the line breaks, and the spaces or tabs some proxies fold PEM certificates with.
+        final byte[] der = Base64.getMimeDecoder().decode(base64);
+        if (der.length == 0) {
+            throw new CertificateException("Empty certificate");
+        }
+        final Certificate certificate = CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(der));
+        if (!(certificate instanceof X509Certificate x509Certificate)) {
+            throw new CertificateException("Not an X.509 certificate");
+        }
+        return x509Certificate;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.forwarded;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches the peer address of a request against the IP addresses and CIDR blocks of the proxies trusted to forward the
+ * client certificate. IPv4 addresses, the common case, are parsed and matched without allocating.
+ *
+ * @author GraviteeSource Team
+ */
+public final class TrustedProxies {
+
+    private final int[] ipv4Networks;
+    private final int[] ipv4Masks;
+    private final List<Ipv6Block> ipv6Blocks;
+
+    private TrustedProxies(int[] ipv4Networks, int[] ipv4Masks, List<Ipv6Block> ipv6Blocks) {
+        this.ipv4Networks = ipv4Networks;
+        this.ipv4Masks = ipv4Masks;
+        this.ipv6Blocks = ipv6Blocks;
+    }
+
+    /**
+     * @param entries IP addresses or CIDR blocks, e.g. <code>10.0.0.0/8</code> or <code>fd00::/8</code>.
+     * @throws IllegalArgumentException if there is no entry, as trusting any peer would let clients forward any
+     * certificate, or if an entry is not an IP address or a CIDR block.
+     */
+    public static TrustedProxies of(Collection<String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("At least one trusted proxy is required to read forwarded certificates");
+        }
+
+        final List<Integer> networks = new ArrayList<>();
+        final List<Integer> masks = new ArrayList<>();
+        final List<Ipv6Block> ipv6Blocks = new ArrayList<>();
+        for (String entry : entries) {
+            final String trimmed = entry.strip();
+            final int slash = trimmed.indexOf('/');
+            final InetAddress address = parseLiteral(slash < 0 ? trimmed : trimmed.substring(0, slash));
+            final int maxPrefix = address instanceof Inet4Address ? 32 : 128;
+            final int prefix;
+            try {
+                prefix = slash < 0 ? maxPrefix : Integer.parseInt(trimmed.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + entry);
+            }
+            if (address == null || prefix < 0 || prefix > maxPrefix) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + entry);
+            }
+
+            if (address instanceof Inet4Address) {
+                final int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+                networks.add(toInt(address.getAddress()) & mask);
+                masks.add(mask);
+            } else {
+                ipv6Blocks.add(new Ipv6Block(address.getAddress(), prefix));
+            }
+        }
+        return new TrustedProxies(
+            networks.stream().mapToInt(Integer::intValue).toArray(),
+            masks.stream().mapToInt(Integer::intValue).toArray(),
+            List.copyOf(ipv6Blocks)
+        );
+    }
+
+    /**
+     * @param address the peer address of the request, as an IP literal.
+     * @return <code>true</code> if the address belongs to a trusted proxy.
+     */
+    public boolean isTrusted(String address) {
+        if (address == null) {
+            return false;
+        }
+        final long ipv4 = parseIpv4(address);
+        if (ipv4 >= 0) {
+            return isTrustedIpv4((int) ipv4);
+        }
+        if (address.indexOf(':') < 0) {
+            return false;
+        }
+        final InetAddress inetAddress = parseLiteral(address);
+        if (inetAddress instanceof Inet4Address) {
+            // IPv4-mapped IPv6 address.
+            return isTrustedIpv4(toInt(inetAddress.getAddress()));
+        }
+        if (inetAddress != null) {
+            final byte[] bytes = inetAddress.getAddress();
+            for (Ipv6Block block : ipv6Blocks) {
+                if (block.contains(bytes)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isTrustedIpv4(int address) {
+        for (int i = 0; i < ipv4Networks.length; i++) {
+            if ((address & ipv4Masks[i]) == ipv4Networks[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the dotted-quad IPv4 address as an unsigned value, or <code>-1</code> if it is not one.
+     */
+    static long parseIpv4(String address) {
+        final int length = address.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * Parses IP literals only, host names are never resolved.
+     */
+    private static InetAddress parseLiteral(String literal) {
+        String address = literal;
+        if (address.startsWith("[") && address.endsWith("]")) {
+            address = address.substring(1, address.length() - 1);
+        }
+        final int zone = address.indexOf('%');
+        if (zone >= 0) {
+            address = address.substring(0, zone);
+        }
+        if (address.isEmpty() || (parseIpv4(address) < 0 && address.indexOf(':') < 0)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static int toInt(byte[] bytes) {
+        return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+    }
+
+    private record Ipv6Block(byte[] network, int prefix) {
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            final int fullBytes = prefix / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            final int remainingBits = prefix % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            final int mask = 0xFF << (8 - remainingBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
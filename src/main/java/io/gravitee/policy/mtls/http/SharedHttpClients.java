@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+
+/**
+ * HTTP clients shared by all the instances of the policy, one per Vert.x instance.
+ * <p>
+ * A policy instance is created on each deployment of its API, so a client per instance would leak a connection pool on
+ * every redeployment. The clients are created with the default options, timeouts being set on each request instead, and
+ * are closed together with their Vert.x instance.
+ *
+ * @author GraviteeSource Team
+ */
+public class SharedHttpClients {
+
+    private static final Cache<Vertx, HttpClient> CLIENTS = Caffeine.newBuilder().weakKeys().build();
+
+    private SharedHttpClients() {}
+
+    /**
+     * @return the client of the Vert.x instance, created on first use.
+     */
+    public static HttpClient of(Vertx vertx) {
+        return CLIENTS.get(vertx, Vertx::createHttpClient);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.metrics;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statistics of the internal caches, aggregated by cache name over all the policy instances. Policy instances come and go
+ * with API deployments, so their caches record into counters which live as long as the gateway and can be exposed as
+ * monotonic metrics.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CacheStatistics {
+
+    public static final String THUMBPRINT = "thumbprint";
+    public static final String CERTIFICATE_STORE = "certificate-store";
+    public static final String CHAIN_THUMBPRINT = "chain-thumbprint";
+    public static final String CRL_KEY = "crl-key";
+    public static final String OCSP_KEY = "ocsp-key";
+    public static final String OCSP_STATUS = "ocsp-status";
+    public static final String FORWARDED_CERTIFICATE = "forwarded-certificate";
+    public static final String CHAIN_DIGEST = "chain-digest";
+    public static final String CHAIN_VALIDATION = "chain-validation";
+    public static final String RATE_LIMIT = "rate-limit";
+    public static final String AUTHORIZATION = "authorization";
+    public static final String BOUND_TOKEN = "bound-token";
+    public static final String AUDIT = "audit";
+
+    static final List<String> CACHES = List.of(
+        THUMBPRINT,
+        CERTIFICATE_STORE,
+        CHAIN_THUMBPRINT,
+        CRL_KEY,
+        OCSP_KEY,
+        OCSP_STATUS,
+        FORWARDED_CERTIFICATE,
+        CHAIN_DIGEST,
+        CHAIN_VALIDATION,
+        RATE_LIMIT,
+        AUTHORIZATION,
+        BOUND_TOKEN,
+        AUDIT
+    );
+
+    private static final Map<String, StatsCounter> COUNTERS = new ConcurrentHashMap<>();
+
+    private CacheStatistics() {}
+
+    /**
+     * @return the counter aggregating the statistics of all the caches with the given name.
+     */
+    public static StatsCounter counter(String cache) {
+        return COUNTERS.computeIfAbsent(cache, name -> new ConcurrentStatsCounter());
+    }
+
+    /**
+     * @return a counter recording both into the given local counter and into the aggregated counter of the cache name.
+     */
+    public static StatsCounter recordingTo(StatsCounter local, String cache) {
+        return new TeeStatsCounter(local, counter(cache));
+    }
+
+    private record TeeStatsCounter(StatsCounter local, StatsCounter aggregated) implements StatsCounter {
+        @Override
+        public void recordHits(int count) {
+            local.recordHits(count);
+            aggregated.recordHits(count);
+        }
+
+        @Override
+        public void recordMisses(int count) {
+            local.recordMisses(count);
+            aggregated.recordMisses(count);
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTime) {
+            local.recordLoadSuccess(loadTime);
+            aggregated.recordLoadSuccess(loadTime);
+        }
+
+        @Override
+        public void recordLoadFailure(long loadTime) {
+            local.recordLoadFailure(loadTime);
+            aggregated.recordLoadFailure(loadTime);
+        }
+
+        @Override
+        public void recordEviction(int weight, RemovalCause cause) {
+            local.recordEviction(weight, cause);
+            aggregated.recordEviction(weight, cause);
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return local.snapshot();
+        }
+    }
+}
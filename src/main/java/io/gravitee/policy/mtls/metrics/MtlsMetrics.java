@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.metrics;
+
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.gravitee.policy.mtls.audit.AuditStream;
+import io.gravitee.policy.mtls.offload.CertificateWorker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.micrometer.backends.BackendRegistries;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the policy: decisions by outcome and protocol, latency of each phase and hit ratio of the internal caches.
+ * <p>
+ * All the meters are registered up-front, so that recording is a map lookup on a constant key and a counter increment or
+ * a timer record, without building tags or allocating on the request path.
+ *
+ * @author GraviteeSource Team
+ */
+public final class MtlsMetrics {
+
+    public static final String SUCCESS = "SUCCESS";
+
+    static final String DECISIONS = "gravitee.policy.mtls.decisions";
+    static final String PHASE_DURATION = "gravitee.policy.mtls.phase.duration";
+    static final String CACHE_REQUESTS = "gravitee.policy.mtls.cache.requests";
+    static final String CACHE_HIT_RATIO = "gravitee.policy.mtls.cache.hit.ratio";
+    static final String AUDIT_DROPPED = "gravitee.policy.mtls.audit.dropped";
+    static final String WORKER_QUEUE_DEPTH = "gravitee.policy.mtls.worker.queue.depth";
+    static final String WORKER_WAIT = "gravitee.policy.mtls.worker.wait";
+    static final String WORKER_REJECTED = "gravitee.policy.mtls.worker.rejected";
+
+    public enum Protocol {
+        HTTP,
+        KAFKA;
+
+        private final String tag = name().toLowerCase();
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Phase {
+        EXTRACT_SECURITY_TOKEN("extractSecurityToken"),
+        ON_REQUEST("onRequest"),
+        AUTHENTICATE("authenticate");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Map<MeterRegistry, MtlsMetrics> INSTANCES = new HashMap<>();
+
+    private final Map<String, Counter>[] decisions;
+    private final Timer[][] phases;
+
+    @SuppressWarnings("unchecked")
+    private MtlsMetrics(MeterRegistry registry, Collection<String> outcomes) {
+        decisions = new Map[Protocol.values().length];
+        phases = new Timer[Protocol.values().length][Phase.values().length];
+        for (Protocol protocol : Protocol.values()) {
+            final Map<String, Counter> counters = new HashMap<>();
+            counters.put(SUCCESS, decisionCounter(registry, protocol, SUCCESS));
+            for (String outcome : outcomes) {
+                counters.put(outcome, decisionCounter(registry, protocol, outcome));
+            }
+            decisions[protocol.ordinal()] = counters;
+            for (Phase phase : Phase.values()) {
+                phases[protocol.ordinal()][phase.ordinal()] = Timer.builder(PHASE_DURATION)
+                    .description("Duration of the mTLS policy phases")
+                    .tag("protocol", protocol.tag)
+                    .tag("phase", phase.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            }
+        }
+        for (String cache : CacheStatistics.CACHES) {
+            registerCache(registry, cache, CacheStatistics.counter(cache));
+        }
+        FunctionCounter.builder(AUDIT_DROPPED, AuditStream.shared(), AuditStream::dropped)
+            .description("Audit events dropped because the audit buffer was full")
+            .register(registry);
+        registerWorker(registry, CertificateWorker.shared());
+    }
+
+    /**
+     * @param outcomes the error keys the policy can reject with.
+     * @return the metrics registered in the registry of the gateway, or in the global registry when gateway metrics are
+     * disabled.
+     */
+    public static MtlsMetrics create(Collection<String> outcomes) {
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        return of(registry != null ? registry : Metrics.globalRegistry, outcomes);
+    }
+
+    /**
+     * @return the metrics registered in the given registry, shared by all the policy instances using it.
+     */
+    public static MtlsMetrics of(MeterRegistry registry, Collection<String> outcomes) {
+        synchronized (INSTANCES) {
+            return INSTANCES.computeIfAbsent(registry, r -> new MtlsMetrics(r, outcomes));
+        }
+    }
+
+    /**
+     * Counts a decision.
+     *
+     * @param outcome {@link #SUCCESS} or the error key of the rejection.
+     */
+    public void decision(Protocol protocol, String outcome) {
+        final Counter counter = decisions[protocol.ordinal()].get(outcome);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} when the phase started.
+     */
+    public void phase(Protocol protocol, Phase phase, long startNanos) {
+        phases[protocol.ordinal()][phase.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter decisionCounter(MeterRegistry registry, Protocol protocol, String outcome) {
+        return Counter.builder(DECISIONS)
+            .description("Decisions of the mTLS policy")
+            .tag("protocol", protocol.tag)
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    private static void registerWorker(MeterRegistry registry, CertificateWorker worker) {
+        Gauge.builder(WORKER_QUEUE_DEPTH, worker, CertificateWorker::queueDepth)
+            .description("Certificate checks waiting for a worker thread")
+            .register(registry);
+        FunctionTimer.builder(WORKER_WAIT, worker, CertificateWorker::started, CertificateWorker::waitNanos, TimeUnit.NANOSECONDS)
+            .description("Time the certificate checks waited for a worker thread")
+            .register(registry);
+        FunctionCounter.builder(WORKER_REJECTED, worker, CertificateWorker::rejected)
+            .description("Certificate checks refused because the worker queue was full")
+            .register(registry);
+    }
+
+    private static void registerCache(MeterRegistry registry, String cache, StatsCounter counter) {
+        FunctionCounter.builder(CACHE_REQUESTS, counter, c -> c.snapshot().hitCount())
+            .description("Requests to the internal caches of the mTLS policy")
+            .tag("cache", cache)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder(CACHE_REQUESTS, counter, c -> c.snapshot().missCount())
+            .description("Requests to the internal caches of the mTLS policy")
+            .tag("cache", cache)
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder(CACHE_HIT_RATIO, counter, c -> c.snapshot().hitRate())
+            .description("Hit ratio of the internal caches of the mTLS policy since the gateway started")
+            .tag("cache", cache)
+            .register(registry);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.offload;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of worker threads running the CPU-heavy checks of client certificates, such as PKIX validations, away
+ * from the event loops. It is shared by all the policy instances, so that the number of threads doesn't grow with the
+ * number of APIs.
+ * <p>
+ * When every client reconnects at once, e.g. after a load balancer failover, the queue of pending checks fills up in
+ * a few milliseconds. Past its capacity, checks are refused at once rather than queued: a request waiting behind
+ * thousands of others would time out anyway, and refusing it keeps the latency of the others flat.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CertificateWorker {
+
+    static final int QUEUE_CAPACITY = 1024;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final CertificateWorker SHARED = new CertificateWorker(
+        Math.max(2, Runtime.getRuntime().availableProcessors()),
+        QUEUE_CAPACITY,
+        System::nanoTime
+    );
+
+    private final ThreadPoolExecutor executor;
+    private final LongSupplier nanoClock;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    CertificateWorker(int threads, int queueCapacity, LongSupplier nanoClock) {
+        this.executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new DefaultThreadFactory("gravitee-mtls-worker", true),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+        this.nanoClock = nanoClock;
+    }
+
+    public static CertificateWorker shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs the task on a worker thread.
+     *
+     * @return the outcome of the task, or <code>null</code> if the queue is full and the task has been refused.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long submittedAt = nanoClock.getAsLong();
+        try {
+            executor.execute(() -> {
+                waitNanos.add(nanoClock.getAsLong() - submittedAt);
+                started.increment();
+                try {
+                    future.complete(task.get());
+                } catch (Throwable t) {
+                    // Errors as well, the request would never resume otherwise.
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return null;
+        }
+        return future;
+    }
+
+    /**
+     * @return the number of tasks waiting for a worker thread.
+     */
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of tasks refused because the queue was full.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of tasks which started running.
+     */
+    public long started() {
+        return started.sum();
+    }
+
+    /**
+     * @return the cumulative time, in nanoseconds, the started tasks waited in the queue.
+     */
+    public double waitNanos() {
+        return waitNanos.sum();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter keyed by client identity, implemented with the generic cell rate algorithm (GCRA): the state
+ * of a bucket is a single <code>long</code>, the theoretical arrival time of the next request, updated with a CAS, so that
+ * acquiring never locks nor allocates once the bucket exists.
+ * <p>
+ * Buckets live in a concurrent cache evicting the ones idle for longer than the time to refill a full bucket: such a
+ * bucket is full, exactly like a new one, so expiry never changes a decision. The cache is also bounded in size, and
+ * evicting a bucket for size may drop one which is not full yet, giving that client a fresh burst: the bound is far
+ * above the number of clients expected to be active at once, so that it only protects the memory of the gateway.
+ *
+ * @author GraviteeSource Team
+ */
+public class RateLimiter {
+
+    static final long MAXIMUM_BUCKETS = 100_000;
+
+    private final long emissionInterval;
+    private final long tolerance;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    /**
+     * @param requestsPerSecond the sustained rate.
+     * @param burst the number of requests allowed at once, i.e. the capacity of the bucket.
+     */
+    public RateLimiter(double requestsPerSecond, long burst) {
+        this(requestsPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimiter(double requestsPerSecond, long burst, LongSupplier nanoClock) {
+        if (!(requestsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + requestsPerSecond + " requests per second, burst " + burst);
+        }
+        this.emissionInterval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.tolerance = emissionInterval * burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_BUCKETS)
+            .expireAfterAccess(Duration.ofNanos(tolerance))
+            .ticker(nanoClock::getAsLong)
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.RATE_LIMIT))
+            .build();
+    }
+
+    /**
+     * @param key the identity of the client.
+     * @return <code>true</code> if the request is allowed, <code>false</code> if the bucket of the client is empty.
+     */
+    public boolean tryAcquire(String key) {
+        final AtomicLong theoreticalArrivalTime = buckets.get(key, RateLimiter::newBucket);
+        final long now = nanoClock.getAsLong();
+        while (true) {
+            final long current = theoreticalArrivalTime.get();
+            final long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + emissionInterval;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private static AtomicLong newBucket(String key) {
+        return new AtomicLong(Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only index of revoked serial numbers grouped by issuer, kept off-heap in a memory-mapped file.
+ * <p>
+ * The file starts with a header (magic, issuer count, entry count) followed by the issuers sorted by key, each with the
+ * position, count and width of its serial numbers. Serial numbers of an issuer are fixed-width records (length byte then
+ * the bytes, zero padded) sorted by length then bytes. Lookups are two binary searches on the mapped buffer and do not
+ * allocate.
+ *
+ * @author GraviteeSource Team
+ */
+public final class CrlIndex {
+
+    static final int MAGIC = 0x4d43524c;
+    static final int HEADER_SIZE = 16;
+    static final int ISSUER_SIZE = 32;
+
+    private static final CrlIndex EMPTY = new CrlIndex(ByteBuffer.allocate(0), 0, 0);
+
+    private final ByteBuffer buffer;
+    private final int issuerCount;
+    private final long size;
+
+    private CrlIndex(ByteBuffer buffer, int issuerCount, long size) {
+        this.buffer = buffer;
+        this.issuerCount = issuerCount;
+        this.size = size;
+    }
+
+    public static CrlIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps an index file written by {@link CrlIndexBuilder}. The file can be deleted once mapped.
+     */
+    static CrlIndex map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Invalid CRL index " + file);
+            }
+            return new CrlIndex(buffer, buffer.getInt(4), buffer.getLong(8));
+        }
+    }
+
+    /**
+     * @return the number of revoked serial numbers.
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isRevoked(RevocationKey key) {
+        if (issuerCount == 0) {
+            return false;
+        }
+        final int issuer = findIssuer(key.issuerHigh(), key.issuerLow());
+        if (issuer < 0) {
+            return false;
+        }
+        final int offset = HEADER_SIZE + issuer * ISSUER_SIZE;
+        return containsSerial(buffer.getInt(offset + 16), buffer.getInt(offset + 20), buffer.getInt(offset + 24), key.serial());
+    }
+
+    private int findIssuer(long high, long low) {
+        int lower = 0;
+        int upper = issuerCount - 1;
+        while (lower <= upper) {
+            final int middle = (lower + upper) >>> 1;
+            final int offset = HEADER_SIZE + middle * ISSUER_SIZE;
+            int comparison = Long.compare(buffer.getLong(offset), high);
+            if (comparison == 0) {
+                comparison = Long.compare(buffer.getLong(offset + 8), low);
+            }
+            if (comparison < 0) {
+                lower = middle + 1;
+            } else if (comparison > 0) {
+                upper = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containsSerial(int recordsOffset, int count, int width, byte[] serial) {
+        if (serial.length >= width) {
+            return false;
+        }
+        int lower = 0;
+        int upper = count - 1;
+        while (lower <= upper) {
+            final int middle = (lower + upper) >>> 1;
+            final int comparison = compare(recordsOffset + middle * width, serial);
+            if (comparison < 0) {
+                lower = middle + 1;
+            } else if (comparison > 0) {
+                upper = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int compare(int recordOffset, byte[] serial) {
+        final int length = buffer.get(recordOffset) & 0xff;
+        if (length != serial.length) {
+            return Integer.compare(length, serial.length);
+        }
+        for (int i = 0; i < length; i++) {
+            final int comparison = Integer.compare(buffer.get(recordOffset + 1 + i) & 0xff, serial[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Same order as the records of the index, used to sort them when building it.
+     */
+    static int compareSerials(byte[] first, byte[] second) {
+        if (first.length != second.length) {
+            return Integer.compare(first.length, second.length);
+        }
+        return Arrays.compareUnsigned(first, second);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds a {@link CrlIndex} from the CRL files (DER or PEM) of a directory.
+ * <p>
+ * CRLs are walked with a {@link DerReader} to only extract the issuer and the serial numbers of the revoked certificates,
+ * DER files being memory-mapped so that large CRLs are never fully loaded on the heap. CRL signatures are not verified:
+ * the directory is expected to only contain CRLs downloaded from trusted sources.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public final class CrlIndexBuilder {
+
+    private static final String PEM_BEGIN = "-----BEGIN X509 CRL-----";
+    private static final String PEM_END = "-----END X509 CRL-----";
+    private static final int MAX_SERIAL_LENGTH = 0xff;
+    private static final byte[] PADDING = new byte[MAX_SERIAL_LENGTH];
+
+    private final Map<Issuer, List<byte[]>> serialsByIssuer = new TreeMap<>();
+
+    private CrlIndexBuilder() {}
+
+    /**
+     * Builds the index of all the CRL files of the directory. Files which are not valid CRLs are ignored.
+     */
+    public static CrlIndex build(Path directory) throws IOException {
+        final CrlIndexBuilder builder = new CrlIndexBuilder();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                try {
+                    builder.addFile(file);
+                } catch (Exception e) {
+                    log.warn("Ignoring invalid CRL file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return builder.write();
+    }
+
+    private void addFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isPem(buffer)) {
+                final String pem = StandardCharsets.US_ASCII.decode(buffer).toString();
+                int begin = pem.indexOf(PEM_BEGIN);
+                while (begin >= 0) {
+                    final int end = pem.indexOf(PEM_END, begin);
+                    if (end < 0) {
+                        throw new IOException("Unterminated PEM block");
+                    }
+                    final byte[] der = Base64.getMimeDecoder().decode(pem.substring(begin + PEM_BEGIN.length(), end));
+                    addCrl(ByteBuffer.wrap(der));
+                    begin = pem.indexOf(PEM_BEGIN, end);
+                }
+            } else {
+                addCrl(buffer);
+            }
+        }
+    }
+
+    private static boolean isPem(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            final byte b = buffer.get(i);
+            if (!Character.isWhitespace(b)) {
+                return b == '-';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks a DER encoded CertificateList (RFC 5280, section 5.1).
+     */
+    void addCrl(ByteBuffer crl) throws IOException {
+        try {
+            final DerReader tbsCertList = new DerReader(crl).next(DerReader.SEQUENCE).enter().next(DerReader.SEQUENCE).enter();
+            if (tbsCertList.peekTag() == DerReader.INTEGER) {
+                tbsCertList.next();
+            }
+            tbsCertList.next(DerReader.SEQUENCE);
+            tbsCertList.next(DerReader.SEQUENCE);
+            final ByteBuffer issuerDigest = RevocationKey.issuerDigest(
+                crl.slice(tbsCertList.elementOffset(), tbsCertList.valueOffset() + tbsCertList.valueLength() - tbsCertList.elementOffset())
+            );
+            final Issuer issuer = new Issuer(issuerDigest.getLong(0), issuerDigest.getLong(Long.BYTES));
+            tbsCertList.next();
+            final int nextTag = tbsCertList.peekTag();
+            if (nextTag == DerReader.UTC_TIME || nextTag == DerReader.GENERALIZED_TIME) {
+                tbsCertList.next();
+            }
+
+            final List<byte[]> serials = serialsByIssuer.computeIfAbsent(issuer, i -> new ArrayList<>());
+            if (tbsCertList.peekTag() == DerReader.SEQUENCE) {
+                final DerReader revokedCertificates = tbsCertList.next().enter();
+                while (revokedCertificates.hasNext()) {
+                    final byte[] serial = RevocationKey.serial(
+                        revokedCertificates.next(DerReader.SEQUENCE).enter().next(DerReader.INTEGER).value()
+                    );
+                    if (serial.length < MAX_SERIAL_LENGTH) {
+                        serials.add(serial);
+                    }
+                }
+            }
+        } catch (IllegalStateException | NoSuchAlgorithmException e) {
+            throw new IOException("Invalid CRL: " + e.getMessage(), e);
+        }
+    }
+
+    private CrlIndex write() throws IOException {
+        final Path file = Files.createTempFile("gravitee-mtls-crl-", ".idx");
+        try {
+            long size = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                final List<int[]> layouts = new ArrayList<>(serialsByIssuer.size());
+                int recordsOffset = CrlIndex.HEADER_SIZE + serialsByIssuer.size() * CrlIndex.ISSUER_SIZE;
+                for (List<byte[]> serials : serialsByIssuer.values()) {
+                    serials.sort(CrlIndex::compareSerials);
+                    dedupe(serials);
+                    int width = 2;
+                    for (byte[] serial : serials) {
+                        width = Math.max(width, serial.length + 1);
+                    }
+                    layouts.add(new int[] { recordsOffset, serials.size(), width });
+                    recordsOffset = Math.addExact(recordsOffset, Math.multiplyExact(serials.size(), width));
+                    size += serials.size();
+                }
+
+                out.writeInt(CrlIndex.MAGIC);
+                out.writeInt(serialsByIssuer.size());
+                out.writeLong(size);
+                int i = 0;
+                for (Issuer issuer : serialsByIssuer.keySet()) {
+                    final int[] layout = layouts.get(i++);
+                    out.writeLong(issuer.high());
+                    out.writeLong(issuer.low());
+                    out.writeInt(layout[0]);
+                    out.writeInt(layout[1]);
+                    out.writeInt(layout[2]);
+                    out.writeInt(0);
+                }
+                i = 0;
+                for (List<byte[]> serials : serialsByIssuer.values()) {
+                    final int width = layouts.get(i++)[2];
+                    for (byte[] serial : serials) {
+                        out.writeByte(serial.length);
+                        out.write(serial);
+                        out.write(PADDING, 0, width - 1 - serial.length);
+                    }
+                }
+            }
+            return CrlIndex.map(file);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static void dedupe(List<byte[]> sorted) {
+        int kept = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (kept == 0 || CrlIndex.compareSerials(sorted.get(kept - 1), sorted.get(i)) != 0) {
+                sorted.set(kept++, sorted.get(i));
+            }
+        }
+        sorted.subList(kept, sorted.size()).clear();
+    }
+
+    private record Issuer(long high, long low) implements Comparable<Issuer> {
+        @Override
+        public int compareTo(Issuer other) {
+            final int comparison = Long.compare(high, other.high);
+            return comparison != 0 ? comparison : Long.compare(low, other.low);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.file.FileWatcher;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks certificates against the CRLs of a local directory.
+ * <p>
+ * The index is built once when the checker is created, then rebuilt in the background whenever the files of the
+ * directory change, the new index replacing the previous one only once fully built. If a rebuild fails, the previous
+ * index is kept.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class CrlRevocationChecker {
+
+    private final Path directory;
+    private final CertificateCache<RevocationKey> keyCache = new CertificateCache<>(CacheStatistics.CRL_KEY);
+    private volatile CrlIndex index;
+
+    public CrlRevocationChecker(Path directory, Duration refreshInterval) {
+        this.directory = directory;
+        this.index = load(directory, CrlIndex.empty());
+        FileWatcher.watch(this, directory, refreshInterval, (checker, path) -> checker.reload());
+    }
+
+    /**
+     * @return <code>true</code> if the certificate is listed in one of the CRLs of its issuer.
+     */
+    public boolean isRevoked(X509Certificate certificate) {
+        final CrlIndex current = index;
+        if (current.size() == 0) {
+            return false;
+        }
+        final RevocationKey key = keyCache.get(certificate, RevocationKey::of);
+        return key != null && current.isRevoked(key);
+    }
+
+    /**
+     * @return the number of revoked certificates currently indexed.
+     */
+    public long size() {
+        return index.size();
+    }
+
+    void reload() {
+        index = load(directory, index);
+    }
+
+    private static CrlIndex load(Path directory, CrlIndex current) {
+        try {
+            final CrlIndex loaded = CrlIndexBuilder.build(directory);
+            log.info("Loaded {} revoked certificates from {}", loaded.size(), directory);
+            return loaded;
+        } catch (Exception e) {
+            log.error("Unable to load CRLs from {}, keeping the {} revoked certificates already loaded", directory, current.size(), e);
+            return current;
+        }
+    }
+}
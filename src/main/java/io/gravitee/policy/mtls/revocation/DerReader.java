@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Minimal forward-only DER reader working on absolute positions of a buffer, so that large structures such as CRLs can
+ * be walked without materializing them.
+ *
+ * @author GraviteeSource Team
+ */
+final class DerReader {
+
+    static final int INTEGER = 0x02;
+    static final int BIT_STRING = 0x03;
+    static final int OCTET_STRING = 0x04;
+    static final int OBJECT_IDENTIFIER = 0x06;
+    static final int ENUMERATED = 0x0a;
+    static final int SEQUENCE = 0x30;
+    static final int UTC_TIME = 0x17;
+    static final int GENERALIZED_TIME = 0x18;
+    static final int CONTEXT_0 = 0xa0;
+
+    private final ByteBuffer buffer;
+    private int position;
+    private int limit;
+
+    private int tag;
+    private int elementOffset;
+    private int valueOffset;
+    private int valueLength;
+
+    DerReader(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    DerReader(ByteBuffer buffer, int position, int limit) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * @return the tag of the next element, without consuming it, or <code>-1</code> if there is no more element.
+     */
+    int peekTag() {
+        return hasNext() ? buffer.get(position) & 0xff : -1;
+    }
+
+    /**
+     * Reads the header of the next element, whose value is then described by {@link #tag()}, {@link #valueOffset()} and
+     * {@link #valueLength()}, and moves after the whole element.
+     */
+    DerReader next() {
+        if (!hasNext()) {
+            throw new IllegalStateException("Unexpected end of DER structure");
+        }
+        int offset = position;
+        elementOffset = offset;
+        tag = buffer.get(offset++) & 0xff;
+        if ((tag & 0x1f) == 0x1f) {
+            throw new IllegalStateException("Unsupported high tag number");
+        }
+        int length = buffer.get(offset++) & 0xff;
+        if (length > 0x7f) {
+            final int bytes = length & 0x7f;
+            if (bytes == 0 || bytes > 4) {
+                throw new IllegalStateException("Unsupported DER length");
+            }
+            length = 0;
+            for (int i = 0; i < bytes; i++) {
+                length = (length << 8) | (buffer.get(offset++) & 0xff);
+            }
+        }
+        if (length < 0 || offset + length > limit) {
+            throw new IllegalStateException("DER element exceeds its container");
+        }
+        valueOffset = offset;
+        valueLength = length;
+        position = offset + length;
+        return this;
+    }
+
+    /**
+     * Reads the next element and checks its tag.
+     */
+    DerReader next(int expectedTag) {
+        next();
+        if (tag != expectedTag) {
+            throw new IllegalStateException(
+                "Unexpected DER tag " + Integer.toHexString(tag) + ", expecting " + Integer.toHexString(expectedTag)
+            );
+        }
+        return this;
+    }
+
+    /**
+     * @return a reader over the value of the last element read.
+     */
+    DerReader enter() {
+        return new DerReader(buffer, valueOffset, valueOffset + valueLength);
+    }
+
+    int tag() {
+        return tag;
+    }
+
+    int valueOffset() {
+        return valueOffset;
+    }
+
+    int valueLength() {
+        return valueLength;
+    }
+
+    /**
+     * @return the offset of the header of the last element read.
+     */
+    int elementOffset() {
+        return elementOffset;
+    }
+
+    /**
+     * @return a copy of the value of the last element read.
+     */
+    byte[] value() {
+        final byte[] value = new byte[valueLength];
+        buffer.get(valueOffset, value);
+        return value;
+    }
+
+    /**
+     * @return <code>true</code> if the value of the last element read is equal to the given bytes.
+     */
+    boolean valueEquals(byte[] bytes) {
+        if (valueLength != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(valueOffset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+}
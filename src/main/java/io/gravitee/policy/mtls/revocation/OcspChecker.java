@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.gravitee.policy.mtls.certificate.CertificateCache;
+import io.gravitee.policy.mtls.metrics.CacheStatistics;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks the revocation status of certificates with OCSP, without ever blocking the calling thread.
+ * <p>
+ * Statuses are cached by issuer and serial number until the <code>nextUpdate</code> of the OCSP response, capped by a
+ * maximum duration. Concurrent lookups for the same certificate share a single in-flight request. Undetermined statuses
+ * are only cached for a short time so that the responder is not called for every request while it is failing.
+ * <p>
+ * Responses are verified by the JDK PKIX revocation checker, with the issuer as trust anchor: signature by the issuer
+ * or by a delegated responder, certificate identifier and freshness. As checking a signature takes far longer than an
+ * event loop may be held, verifications run on the executor of the status cache rather than on the thread receiving the
+ * response.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+public class OcspChecker {
+
+    static final long FAILURE_CACHE_DURATION = TimeUnit.SECONDS.toMillis(10);
+
+    private final String responderUrl;
+    private final long timeout;
+    private final long maxCacheDuration;
+    private final LongSupplier clock;
+    private final CertificateCache<RevocationKey> keyCache = new CertificateCache<>(CacheStatistics.OCSP_KEY);
+    private final AsyncCache<RevocationKey, OcspResult> statusCache;
+
+    /**
+     * @param responderUrl the URL of the responder to use instead of the one of the certificates, may be <code>null</code>.
+     * @param timeout the maximum duration of a lookup, in milliseconds.
+     * @param maxCacheDuration the maximum duration a status is cached, in milliseconds.
+     */
+    public OcspChecker(String responderUrl, long timeout, long maxCacheDuration) {
+        this(responderUrl, timeout, maxCacheDuration, System::currentTimeMillis);
+    }
+
+    OcspChecker(String responderUrl, long timeout, long maxCacheDuration, LongSupplier clock) {
+        this.responderUrl = responderUrl == null || responderUrl.isBlank() ? null : responderUrl;
+        this.timeout = timeout;
+        this.maxCacheDuration = maxCacheDuration;
+        this.clock = clock;
+        this.statusCache = Caffeine.newBuilder()
+            .maximumSize(CertificateCache.DEFAULT_MAXIMUM_SIZE)
+            .expireAfter(new ResultExpiry(clock))
+            .recordStats(() -> CacheStatistics.counter(CacheStatistics.OCSP_STATUS))
+            .buildAsync();
+    }
+
+    /**
+     * @return the cached status of the certificate, or <code>null</code> if it has to be looked up.
+     */
+    public OcspStatus cachedStatus(X509Certificate certificate) {
+        final RevocationKey key = keyCache.get(certificate, RevocationKey::of);
+        if (key == null) {
+            return OcspStatus.UNKNOWN;
+        }
+        final CompletableFuture<OcspResult> result = statusCache.getIfPresent(key);
+        if (result != null && result.isDone() && !result.isCompletedExceptionally()) {
+            return result.join().status();
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the status of the certificate, sharing the lookup with concurrent callers.
+     *
+     * @param certificate the certificate to check.
+     * @param issuer the issuer of the certificate, may be <code>null</code> in which case the status is unknown.
+     * @param client the client to call the responder with.
+     */
+    public CompletionStage<OcspStatus> status(X509Certificate certificate, X509Certificate issuer, OcspClient client) {
+        final RevocationKey key = keyCache.get(certificate, RevocationKey::of);
+        if (key == null) {
+            return CompletableFuture.completedFuture(OcspStatus.UNKNOWN);
+        }
+        return statusCache.get(key, (k, executor) -> lookup(certificate, issuer, client, executor)).thenApply(OcspResult::status);
+    }
+
+    private CompletableFuture<OcspResult> lookup(
+        X509Certificate certificate,
+        X509Certificate issuer,
+        OcspClient client,
+        Executor executor
+    ) {
+        if (issuer == null) {
+            log.debug("Unable to check OCSP status of {}: issuer certificate not presented", certificate.getSubjectX500Principal());
+            return CompletableFuture.completedFuture(failure());
+        }
+        final String url = responderUrl != null ? responderUrl : OcspMessages.responderUrl(certificate);
+        if (url == null || client == null) {
+            log.debug("Unable to check OCSP status of {}: no responder", certificate.getSubjectX500Principal());
+            return CompletableFuture.completedFuture(failure());
+        }
+        try {
+            return client
+                .post(url, OcspMessages.request(certificate, issuer))
+                .toCompletableFuture()
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .handleAsync(
+                    (response, error) -> {
+                        if (error != null) {
+                            log.debug("Unable to get OCSP status of {} from {}", certificate.getSubjectX500Principal(), url, error);
+                            return failure();
+                        }
+                        return verify(response, certificate, issuer);
+                    },
+                    executor
+                );
+        } catch (Exception e) {
+            log.debug("Unable to build OCSP request for {}", certificate.getSubjectX500Principal(), e);
+            return CompletableFuture.completedFuture(failure());
+        }
+    }
+
+    OcspResult verify(byte[] response, X509Certificate certificate, X509Certificate issuer) {
+        final long now = clock.getAsLong();
+        OcspStatus status;
+        try {
+            final CertPathValidator validator = CertPathValidator.getInstance("PKIX");
+            final PKIXRevocationChecker revocationChecker = (PKIXRevocationChecker) validator.getRevocationChecker();
+            revocationChecker.setOptions(
+                EnumSet.of(PKIXRevocationChecker.Option.ONLY_END_ENTITY, PKIXRevocationChecker.Option.NO_FALLBACK)
+            );
+            revocationChecker.setOcspResponses(Map.of(certificate, response));
+
+            final PKIXParameters parameters = new PKIXParameters(Set.of(new TrustAnchor(issuer, null)));
+            parameters.setRevocationEnabled(false);
+            parameters.addCertPathChecker(revocationChecker);
+            parameters.setDate(new Date(now));
+
+            validator.validate(CertificateFactory.getInstance("X.509").generateCertPath(List.of(certificate)), parameters);
+            status = OcspStatus.GOOD;
+        } catch (CertPathValidatorException e) {
+            status = e.getReason() == CertPathValidatorException.BasicReason.REVOKED ? OcspStatus.REVOKED : OcspStatus.UNKNOWN;
+            if (status == OcspStatus.UNKNOWN) {
+                log.debug("Invalid OCSP response for {}", certificate.getSubjectX500Principal(), e);
+            }
+        } catch (Exception e) {
+            log.debug("Unable to verify OCSP response for {}", certificate.getSubjectX500Principal(), e);
+            status = OcspStatus.UNKNOWN;
+        }
+
+        if (status == OcspStatus.UNKNOWN) {
+            return failure();
+        }
+        long expiresAt = now + maxCacheDuration;
+        final long nextUpdate = OcspMessages.nextUpdate(response, certificate.getSerialNumber().toByteArray());
+        if (nextUpdate != OcspMessages.NO_NEXT_UPDATE) {
+            expiresAt = Math.min(expiresAt, nextUpdate);
+        }
+        return new OcspResult(status, expiresAt);
+    }
+
+    private OcspResult failure() {
+        return new OcspResult(OcspStatus.UNKNOWN, clock.getAsLong() + Math.min(FAILURE_CACHE_DURATION, maxCacheDuration));
+    }
+
+    record OcspResult(OcspStatus status, long expiresAt) {}
+
+    private record ResultExpiry(LongSupplier clock) implements Expiry<RevocationKey, OcspResult> {
+        @Override
+        public long expireAfterCreate(RevocationKey key, OcspResult result, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, result.expiresAt() - clock.getAsLong()));
+        }
+
+        @Override
+        public long expireAfterUpdate(RevocationKey key, OcspResult result, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(RevocationKey key, OcspResult result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
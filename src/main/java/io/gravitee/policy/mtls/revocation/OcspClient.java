@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Transport of OCSP requests to responders.
+ *
+ * @author GraviteeSource Team
+ */
+@FunctionalInterface
+public interface OcspClient {
+    /**
+     * Sends a DER encoded OCSP request to a responder. Must not block.
+     *
+     * @param url the URL of the responder.
+     * @param request the DER encoded OCSPRequest.
+     * @return the DER encoded OCSPResponse.
+     */
+    CompletionStage<byte[]> post(String url, byte[] request);
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Encoding and decoding of the parts of OCSP messages (RFC 6960) the policy needs. Responses are verified by the JDK
+ * PKIX revocation checker, this class only extracts their validity period.
+ *
+ * @author GraviteeSource Team
+ */
+final class OcspMessages {
+
+    static final long NO_NEXT_UPDATE = -1;
+
+    private static final String AUTHORITY_INFO_ACCESS = "1.3.6.1.5.5.7.1.1";
+    private static final byte[] ID_AD_OCSP = { 0x2b, 0x06, 0x01, 0x05, 0x05, 0x07, 0x30, 0x01 };
+    private static final int URI_NAME = 0x86;
+    private static final byte[] SHA1_ALGORITHM = { 0x30, 0x09, 0x06, 0x05, 0x2b, 0x0e, 0x03, 0x02, 0x1a, 0x05, 0x00 };
+    private static final DateTimeFormatter GENERALIZED_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private OcspMessages() {}
+
+    /**
+     * @return the first OCSP responder URL of the Authority Information Access extension, or <code>null</code>.
+     */
+    static String responderUrl(X509Certificate certificate) {
+        final byte[] extension = certificate.getExtensionValue(AUTHORITY_INFO_ACCESS);
+        if (extension == null) {
+            return null;
+        }
+        try {
+            final DerReader outer = new DerReader(ByteBuffer.wrap(extension)).next(DerReader.OCTET_STRING);
+            final DerReader accessDescriptions = outer.enter().next(DerReader.SEQUENCE).enter();
+            while (accessDescriptions.hasNext()) {
+                final DerReader accessDescription = accessDescriptions.next(DerReader.SEQUENCE).enter();
+                final boolean ocsp = accessDescription.next(DerReader.OBJECT_IDENTIFIER).valueEquals(ID_AD_OCSP);
+                if (ocsp && accessDescription.next().tag() == URI_NAME) {
+                    return new String(accessDescription.value(), StandardCharsets.US_ASCII);
+                }
+            }
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * @return a DER encoded OCSPRequest for the certificate, without nonce so that responses can be cached by responders.
+     */
+    static byte[] request(X509Certificate certificate, X509Certificate issuer) throws NoSuchAlgorithmException {
+        final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        final byte[] issuerNameHash = sha1.digest(issuer.getSubjectX500Principal().getEncoded());
+
+        final byte[] publicKeyInfo = issuer.getPublicKey().getEncoded();
+        final DerReader subjectPublicKey = new DerReader(ByteBuffer.wrap(publicKeyInfo)).next(DerReader.SEQUENCE).enter();
+        subjectPublicKey.next(DerReader.SEQUENCE);
+        subjectPublicKey.next(DerReader.BIT_STRING);
+        // The first byte of a BIT STRING is the number of unused bits, not part of the key.
+        sha1.update(publicKeyInfo, subjectPublicKey.valueOffset() + 1, subjectPublicKey.valueLength() - 1);
+        final byte[] issuerKeyHash = sha1.digest();
+
+        final byte[] certId = tlv(
+            DerReader.SEQUENCE,
+            SHA1_ALGORITHM,
+            tlv(DerReader.OCTET_STRING, issuerNameHash),
+            tlv(DerReader.OCTET_STRING, issuerKeyHash),
+            tlv(DerReader.INTEGER, certificate.getSerialNumber().toByteArray())
+        );
+        final byte[] requestList = tlv(DerReader.SEQUENCE, tlv(DerReader.SEQUENCE, certId));
+        return tlv(DerReader.SEQUENCE, tlv(DerReader.SEQUENCE, requestList));
+    }
+
+    /**
+     * @param response a DER encoded OCSPResponse.
+     * @param serial the serial number of the certificate, as encoded in a DER INTEGER.
+     * @return the nextUpdate, in milliseconds since epoch, of the single response about the certificate, or
+     * {@link #NO_NEXT_UPDATE} if none.
+     */
+    static long nextUpdate(byte[] response, byte[] serial) {
+        try {
+            final DerReader ocspResponse = new DerReader(ByteBuffer.wrap(response)).next(DerReader.SEQUENCE).enter();
+            ocspResponse.next(DerReader.ENUMERATED);
+            final DerReader responseBytes = ocspResponse.next(DerReader.CONTEXT_0).enter().next(DerReader.SEQUENCE).enter();
+            responseBytes.next(DerReader.OBJECT_IDENTIFIER);
+            final DerReader basicResponse = responseBytes.next(DerReader.OCTET_STRING).enter().next(DerReader.SEQUENCE).enter();
+            final DerReader responseData = basicResponse.next(DerReader.SEQUENCE).enter();
+            if (responseData.peekTag() == DerReader.CONTEXT_0) {
+                responseData.next();
+            }
+            responseData.next();
+            responseData.next(DerReader.GENERALIZED_TIME);
+
+            final DerReader responses = responseData.next(DerReader.SEQUENCE).enter();
+            while (responses.hasNext()) {
+                final DerReader singleResponse = responses.next(DerReader.SEQUENCE).enter();
+                final DerReader certId = singleResponse.next(DerReader.SEQUENCE).enter();
+                certId.next(DerReader.SEQUENCE);
+                certId.next(DerReader.OCTET_STRING);
+                certId.next(DerReader.OCTET_STRING);
+                if (!certId.next(DerReader.INTEGER).valueEquals(serial)) {
+                    continue;
+                }
+                singleResponse.next();
+                singleResponse.next(DerReader.GENERALIZED_TIME);
+                if (singleResponse.peekTag() != DerReader.CONTEXT_0) {
+                    return NO_NEXT_UPDATE;
+                }
+                final DerReader nextUpdate = singleResponse.next().enter().next(DerReader.GENERALIZED_TIME);
+                final String time = new String(nextUpdate.value(), StandardCharsets.US_ASCII);
+                return LocalDateTime.parse(time.substring(0, 14), GENERALIZED_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+        } catch (RuntimeException e) {
+            return NO_NEXT_UPDATE;
+        }
+        return NO_NEXT_UPDATE;
+    }
+
+    private static byte[] tlv(int tag, byte[]... values) {
+        int length = 0;
+        for (byte[] value : values) {
+            length += value.length;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+        out.write(tag);
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            final int bytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write(length >>> (i * 8));
+            }
+        }
+        for (byte[] value : values) {
+            out.writeBytes(value);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+/**
+ * Identifies a certificate for revocation lookups: the 128 first bits of the SHA-256 of the DER encoded issuer name, and
+ * the serial number without its leading zero bytes.
+ * <p>
+ * Keys are compared by value, serial numbers included, so they can be used as cache keys.
+ *
+ * @author GraviteeSource Team
+ */
+public record RevocationKey(long issuerHigh, long issuerLow, byte[] serial) {
+    /**
+     * @return the key of the certificate, or <code>null</code> if it can't be computed.
+     */
+    public static RevocationKey of(X509Certificate certificate) {
+        try {
+            final byte[] issuer = certificate.getIssuerX500Principal().getEncoded();
+            final ByteBuffer digest = issuerDigest(ByteBuffer.wrap(issuer));
+            return new RevocationKey(digest.getLong(0), digest.getLong(Long.BYTES), serial(certificate.getSerialNumber().toByteArray()));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static ByteBuffer issuerDigest(ByteBuffer encodedName) throws NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(encodedName);
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return (
+            o instanceof RevocationKey other &&
+            issuerHigh == other.issuerHigh &&
+            issuerLow == other.issuerLow &&
+            Arrays.equals(serial, other.serial)
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(issuerHigh ^ issuerLow) + Arrays.hashCode(serial);
+    }
+
+    /**
+     * @param integer the two's-complement bytes of the serial number, as found in a DER INTEGER.
+     * @return the bytes without leading zeros, keeping at least one byte.
+     */
+    static byte[] serial(byte[] integer) {
+        int start = 0;
+        while (start < integer.length - 1 && integer[start] == 0) {
+            start++;
+        }
+        return start == 0 ? integer : Arrays.copyOfRange(integer, start, integer.length);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import io.gravitee.policy.mtls.http.SharedHttpClients;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link OcspClient} sending requests over HTTP POST with the Vert.x instance of the gateway, through the HTTP client it
+ * shares with the other policy instances, see {@link SharedHttpClients}.
+ *
+ * @author GraviteeSource Team
+ */
+public class VertxOcspClient implements OcspClient {
+
+    private static final String OCSP_REQUEST = "application/ocsp-request";
+    private static final String OCSP_RESPONSE = "application/ocsp-response";
+
+    private final HttpClient httpClient;
+    private final long timeout;
+
+    public VertxOcspClient(Vertx vertx, long timeout) {
+        this.httpClient = SharedHttpClients.of(vertx);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletionStage<byte[]> post(String url, byte[] request) {
+        final RequestOptions options = new RequestOptions()
+            .setMethod(HttpMethod.POST)
+            .setAbsoluteURI(url)
+            .setConnectTimeout(timeout)
+            .setIdleTimeout(timeout)
+            .putHeader(HttpHeaders.CONTENT_TYPE, OCSP_REQUEST)
+            .putHeader(HttpHeaders.ACCEPT, OCSP_RESPONSE);
+
+        return httpClient
+            .request(options)
+            .compose(httpRequest -> httpRequest.send(Buffer.buffer(request)))
+            .compose(httpResponse ->
+                httpResponse.statusCode() == 200
+                    ? httpResponse.body()
+                    : Future.failedFuture("OCSP responder " + url + " answered with status " + httpResponse.statusCode())
+            )
+            .map(Buffer::getBytes)
+            .toCompletionStage();
+    }
+}
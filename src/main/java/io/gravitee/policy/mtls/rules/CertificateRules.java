@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.rules;
+
+import io.gravitee.policy.mtls.certificate.CertificateAttributes;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Rules on the names of the client certificate, compiled once from the configuration of the policy.
+ * <p>
+ * Each kind of rule which is configured must be satisfied, and is satisfied as soon as one of its values matches:
+ * <ul>
+ *     <li>subject DN patterns: regular expressions matching the whole subject DN in RFC 2253 format,</li>
+ *     <li>issuer DNs: exact issuer DNs, compared in canonical form,</li>
+ *     <li>SAN DNS names: exact or wildcard DNS names,</li>
+ *     <li>SAN URIs: exact URIs,</li>
+ *     <li>SPIFFE IDs: exact SPIFFE IDs, or trust domains (<code>spiffe://example.org</code>) matching any of their IDs.</li>
+ * </ul>
+ *
+ * @author GraviteeSource Team
+ */
+public final class CertificateRules {
+
+    private static final String SPIFFE_SCHEME = "spiffe://";
+
+    private final List<Pattern> subjectDnPatterns;
+    private final Set<String> issuerDns;
+    private final DnsNameMatcher dnsNames;
+    private final Set<String> uris;
+    private final Set<String> spiffeIds;
+    private final List<String> spiffeTrustDomains;
+
+    private CertificateRules(
+        List<Pattern> subjectDnPatterns,
+        Set<String> issuerDns,
+        DnsNameMatcher dnsNames,
+        Set<String> uris,
+        Set<String> spiffeIds,
+        List<String> spiffeTrustDomains
+    ) {
+        this.subjectDnPatterns = subjectDnPatterns;
+        this.issuerDns = issuerDns;
+        this.dnsNames = dnsNames;
+        this.uris = uris;
+        this.spiffeIds = spiffeIds;
+        this.spiffeTrustDomains = spiffeTrustDomains;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rule is invalid, rather than silently ignoring a restriction.
+     */
+    public static CertificateRules compile(MtlsPolicyConfiguration configuration) {
+        final List<Pattern> subjectDnPatterns = new ArrayList<>();
+        for (String pattern : nonNull(configuration.getSubjectDnPatterns())) {
+            subjectDnPatterns.add(Pattern.compile(pattern));
+        }
+
+        final Set<String> issuerDns = new HashSet<>();
+        for (String issuerDn : nonNull(configuration.getIssuerDns())) {
+            issuerDns.add(new X500Principal(issuerDn).getName(X500Principal.CANONICAL));
+        }
+
+        final Set<String> spiffeIds = new HashSet<>();
+        final List<String> spiffeTrustDomains = new ArrayList<>();
+        for (String spiffeId : nonNull(configuration.getSpiffeIds())) {
+            if (!spiffeId.startsWith(SPIFFE_SCHEME) || spiffeId.length() == SPIFFE_SCHEME.length()) {
+                throw new IllegalArgumentException("Invalid SPIFFE ID: " + spiffeId);
+            }
+            if (spiffeId.indexOf('/', SPIFFE_SCHEME.length()) < 0) {
+                spiffeTrustDomains.add(spiffeId + "/");
+            } else {
+                spiffeIds.add(spiffeId);
+            }
+        }
+
+        return new CertificateRules(
+            List.copyOf(subjectDnPatterns),
+            Set.copyOf(issuerDns),
+            DnsNameMatcher.compile(configuration.getSanDnsNames()),
+            Set.copyOf(nonNull(configuration.getSanUris())),
+            Set.copyOf(spiffeIds),
+            List.copyOf(spiffeTrustDomains)
+        );
+    }
+
+    public boolean isEmpty() {
+        return (
+            subjectDnPatterns.isEmpty() &&
+            issuerDns.isEmpty() &&
+            dnsNames.isEmpty() &&
+            uris.isEmpty() &&
+            spiffeIds.isEmpty() &&
+            spiffeTrustDomains.isEmpty()
+        );
+    }
+
+    public boolean matches(CertificateAttributes attributes) {
+        return (
+            matchesSubjectDn(attributes.subjectDn()) &&
+            (issuerDns.isEmpty() || issuerDns.contains(attributes.canonicalIssuerDn())) &&
+            matchesDnsNames(attributes.dnsNames()) &&
+            matchesUris(attributes.uris()) &&
+            matchesSpiffeIds(attributes.uris())
+        );
+    }
+
+    private boolean matchesSubjectDn(String subjectDn) {
+        if (subjectDnPatterns.isEmpty()) {
+            return true;
+        }
+        if (subjectDn == null) {
+            return false;
+        }
+        for (Pattern pattern : subjectDnPatterns) {
+            if (pattern.matcher(subjectDn).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesDnsNames(List<String> names) {
+        if (dnsNames.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (dnsNames.matches(names.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesUris(List<String> names) {
+        if (uris.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (uris.contains(names.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesSpiffeIds(List<String> names) {
+        if (spiffeIds.isEmpty() && spiffeTrustDomains.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            final String name = names.get(i);
+            if (!name.startsWith(SPIFFE_SCHEME)) {
+                continue;
+            }
+            if (spiffeIds.contains(name)) {
+                return true;
+            }
+            for (int j = 0; j < spiffeTrustDomains.size(); j++) {
+                if (name.startsWith(spiffeTrustDomains.get(j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static <T> Collection<T> nonNull(Collection<T> collection) {
+        return collection == null ? List.of() : collection;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.rules;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Matches DNS names against exact names and wildcard names (<code>*.example.com</code>) compiled into a trie of labels,
+ * walked from the top-level domain. As defined by RFC 6125, a wildcard only stands for exactly one leftmost label.
+ * <p>
+ * Labels of each node are kept sorted in arrays and looked up by binary search on regions of the matched name, so that
+ * matching never allocates.
+ *
+ * @author GraviteeSource Team
+ */
+public final class DnsNameMatcher {
+
+    private static final DnsNameMatcher EMPTY = new DnsNameMatcher(new Builder().freeze(), 0);
+
+    private final Node root;
+    private final int size;
+
+    private DnsNameMatcher(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param names exact names or wildcard names, case-insensitive.
+     * @throws IllegalArgumentException if a name is empty or uses a wildcard elsewhere than as the leftmost label.
+     */
+    public static DnsNameMatcher compile(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return EMPTY;
+        }
+
+        final Builder root = new Builder();
+        for (String name : names) {
+            String normalized = stripTrailingDot(name.strip().toLowerCase(Locale.ROOT));
+            boolean wildcard = false;
+            if (normalized.startsWith("*.")) {
+                wildcard = true;
+                normalized = normalized.substring(2);
+            }
+            if (normalized.isEmpty() || normalized.contains("*")) {
+                throw new IllegalArgumentException("Invalid DNS name pattern: " + name);
+            }
+
+            Builder node = root;
+            final String[] labels = normalized.split("\\.", -1);
+            for (int i = labels.length - 1; i >= 0; i--) {
+                if (labels[i].isEmpty()) {
+                    throw new IllegalArgumentException("Invalid DNS name pattern: " + name);
+                }
+                node = node.children.computeIfAbsent(labels[i], label -> new Builder());
+            }
+            if (wildcard) {
+                node.wildcard = true;
+            } else {
+                node.terminal = true;
+            }
+        }
+        return new DnsNameMatcher(root.freeze(), names.size());
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param name a lower-cased DNS name.
+     * @return <code>true</code> if the name matches one of the compiled names.
+     */
+    public boolean matches(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+
+        Node node = root;
+        int end = name.charAt(name.length() - 1) == '.' ? name.length() - 1 : name.length();
+        while (end > 0) {
+            final int dot = name.lastIndexOf('.', end - 1);
+            final int start = dot + 1;
+            final boolean leftmost = dot < 0;
+            if (leftmost && node.wildcard && end > start) {
+                return true;
+            }
+            node = node.child(name, start, end);
+            if (node == null) {
+                return false;
+            }
+            if (leftmost) {
+                return node.terminal;
+            }
+            end = dot;
+        }
+        return false;
+    }
+
+    private static String stripTrailingDot(String name) {
+        return name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private static final class Builder {
+
+        private final Map<String, Builder> children = new TreeMap<>();
+        private boolean terminal;
+        private boolean wildcard;
+
+        private Node freeze() {
+            final String[] labels = children.keySet().toArray(new String[0]);
+            final Node[] nodes = new Node[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                nodes[i] = children.get(labels[i]).freeze();
+            }
+            return new Node(labels, nodes, terminal, wildcard);
+        }
+    }
+
+    private record Node(String[] labels, Node[] children, boolean terminal, boolean wildcard) {
+        Node child(String name, int start, int end) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compare(labels[mid], name, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Same ordering as {@link String#compareTo(String)}, between a label and a region of a name.
+         */
+        private static int compare(String label, String name, int start, int end) {
+            final int length = Math.min(label.length(), end - start);
+            for (int i = 0; i < length; i++) {
+                final int diff = label.charAt(i) - name.charAt(start + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return label.length() - (end - start);
+        }
+    }
+}
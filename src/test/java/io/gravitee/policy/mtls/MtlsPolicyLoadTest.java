@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.apim.gateway.tests.sdk.AbstractPolicyTest;
+import io.gravitee.apim.gateway.tests.sdk.annotations.DeployApi;
+import io.gravitee.apim.gateway.tests.sdk.annotations.GatewayTest;
+import io.gravitee.apim.gateway.tests.sdk.configuration.GatewayConfigurationBuilder;
+import io.gravitee.apim.gateway.tests.sdk.connector.EndpointBuilder;
+import io.gravitee.apim.gateway.tests.sdk.connector.EntrypointBuilder;
+import io.gravitee.apim.gateway.tests.sdk.parameters.GatewayDynamicConfig;
+import io.gravitee.node.api.certificate.KeyStoreLoader;
+import io.gravitee.plugin.endpoint.EndpointConnectorPlugin;
+import io.gravitee.plugin.endpoint.http.proxy.HttpProxyEndpointConnectorFactory;
+import io.gravitee.plugin.entrypoint.EntrypointConnectorPlugin;
+import io.gravitee.plugin.entrypoint.http.proxy.HttpProxyEntrypointConnectorFactory;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.policy.mtls.load.LoadDriver;
+import io.gravitee.policy.mtls.load.LoadReport;
+import io.gravitee.policy.mtls.load.TestCertificateAuthority;
+import io.gravitee.policy.mtls.load.TestCertificateAuthority.IssuedCertificate;
+import io.vertx.rxjava3.core.Vertx;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * End-to-end load test of the policy on a local gateway, to compare its throughput and latency overhead from one release
+ * to the next. Unlike the JMH benchmarks, the figures include the TLS handshakes and session handling of the gateway.
+ * <p>
+ * Many clients, each with its own client certificate, call the same backend through an API with the policy and through
+ * an API without it, over HTTP/1.1 keep-alive connections, HTTP/2 connections and a fresh connection per request. Run
+ * with <code>mvn -Pload test [-Dmtls.load.clients=100] [-Dmtls.load.duration=20]</code>; the report is written to
+ * <code>target/mtls-load-result.json</code> and logged as a table.
+ *
+ * @author GraviteeSource Team
+ */
+@Slf4j
+@GatewayTest
+@DeployApi({ "/apis/v4/load-api.json", "/apis/v4/load-api-without-policy.json" })
+@EnabledIfSystemProperty(named = "mtls.load", matches = "true")
+public class MtlsPolicyLoadTest extends AbstractPolicyTest<MtlsPolicy, MtlsPolicyConfiguration> {
+
+    private static final int CLIENTS = Integer.getInteger("mtls.load.clients", 100);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("mtls.load.warmup", 5));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("mtls.load.duration", 20));
+    private static final Path REPORT = Path.of(System.getProperty("mtls.load.report", "target/mtls-load-result.json"));
+    private static final String BASELINE_PATH = "/baseline";
+    private static final String POLICY_PATH = "/mtls";
+
+    private static final TestCertificateAuthority AUTHORITY = new TestCertificateAuthority("Gravitee mTLS load test CA");
+
+    @Override
+    public void configureEntrypoints(Map<String, EntrypointConnectorPlugin<?, ?>> entrypoints) {
+        entrypoints.putIfAbsent("http-proxy", EntrypointBuilder.build("http-proxy", HttpProxyEntrypointConnectorFactory.class));
+    }
+
+    @Override
+    public void configureEndpoints(Map<String, EndpointConnectorPlugin<?, ?>> endpoints) {
+        endpoints.putIfAbsent("http-proxy", EndpointBuilder.build("http-proxy", HttpProxyEndpointConnectorFactory.class));
+    }
+
+    @SneakyThrows
+    @Override
+    protected void configureGateway(GatewayConfigurationBuilder config) {
+        final Path truststore = Files.createTempFile("mtls-load-ca", ".pem");
+        truststore.toFile().deleteOnExit();
+        Files.writeString(truststore, AUTHORITY.getCertificatePem());
+        config
+            .httpSecured(true)
+            .set("http.alpn", "true")
+            .set("http.ssl.clientAuth", "request")
+            .set("http.ssl.keystore.type", KeyStoreLoader.CERTIFICATE_FORMAT_SELF_SIGNED)
+            .set("http.ssl.truststore.path", truststore.toString())
+            .set("http.ssl.truststore.type", "pem");
+    }
+
+    @Test
+    @SneakyThrows
+    protected void should_measure_the_overhead_of_the_policy(Vertx vertx, GatewayDynamicConfig.HttpConfig httpConfig) {
+        wiremock.stubFor(get("/endpoint").willReturn(ok("backend response")));
+        final List<IssuedCertificate> certificates = IntStream.range(0, CLIENTS)
+            .mapToObj(i -> AUTHORITY.issue("load-client-" + i))
+            .toList();
+        final LoadDriver driver = new LoadDriver(vertx, httpConfig.httpPort(), certificates);
+
+        // Both APIs are warmed up before any measurement, so that the first measured run isn't penalized by the JIT.
+        driver.run(LoadDriver.Mode.HTTP_1_1_KEEP_ALIVE, BASELINE_PATH, WARMUP, Duration.ZERO);
+        driver.run(LoadDriver.Mode.HTTP_1_1_KEEP_ALIVE, POLICY_PATH, WARMUP, Duration.ZERO);
+
+        final LoadReport report = new LoadReport(CLIENTS, DURATION);
+        for (LoadDriver.Mode mode : LoadDriver.Mode.values()) {
+            report.add(driver.run(mode, BASELINE_PATH, WARMUP, DURATION), driver.run(mode, POLICY_PATH, WARMUP, DURATION));
+        }
+        log.info("{}{}", System.lineSeparator(), report.table());
+        report.write(REPORT);
+
+        assertThat(report.results()).allSatisfy(result -> {
+            assertThat(result.errors()).isZero();
+            assertThat(result.requests()).isPositive();
+        });
+    }
+}
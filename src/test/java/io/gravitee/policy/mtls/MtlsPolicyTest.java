@@ -16,22 +16,58 @@
 package io.gravitee.policy.mtls;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.gravitee.common.http.HttpStatusCode;
+import io.gravitee.gateway.api.http.HttpHeaderNames;
+import io.gravitee.gateway.api.http.HttpHeaders;
+import io.gravitee.gateway.reactive.api.ExecutionFailure;
 import io.gravitee.gateway.reactive.api.context.TlsSession;
+import io.gravitee.gateway.reactive.api.context.kafka.KafkaConnectionContext;
+import io.gravitee.gateway.reactive.api.context.kafka.KafkaExecutionContext;
 import io.gravitee.gateway.reactive.api.policy.SecurityToken;
 import io.gravitee.gateway.reactive.core.context.AbstractRequest;
 import io.gravitee.gateway.reactive.core.context.AbstractResponse;
 import io.gravitee.gateway.reactive.core.context.DefaultExecutionContext;
 import io.gravitee.gateway.reactive.core.context.interruption.InterruptionFailureException;
+import io.gravitee.policy.mtls.authorization.AuthorizationClient;
+import io.gravitee.policy.mtls.certificate.ClientCertificate;
+import io.gravitee.policy.mtls.certificate.ClientCertificatePrincipal;
+import io.gravitee.policy.mtls.configuration.AuthorizationFailureMode;
+import io.gravitee.policy.mtls.configuration.CertificateSource;
 import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.policy.mtls.configuration.OcspFailureMode;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import io.gravitee.policy.mtls.exception.MtlsPolicyException;
+import io.gravitee.policy.mtls.metrics.MtlsMetrics;
 import io.gravitee.reporter.api.v4.metric.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.DisplayNameGeneration;
@@ -39,6 +75,7 @@ import org.junit.jupiter.api.DisplayNameGenerator;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 /**
@@ -164,6 +201,90 @@ class MtlsPolicyTest {
                     return true;
                 });
         }
+
+        @Test
+        void should_extract_token_with_configured_thumbprint_algorithm() throws Exception {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setThumbprintAlgorithm(ThumbprintAlgorithm.SHA_512);
+            configuration.setAdditionalThumbprintAlgorithms(List.of(ThumbprintAlgorithm.SHA_1));
+            final String expected = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(MessageDigest.getInstance("SHA-512").digest("a-certificate".getBytes()));
+            final DefaultExecutionContext ctx = prepareContext(
+                new AbstractRequest() {
+                    @SneakyThrows
+                    @Override
+                    public TlsSession tlsSession() {
+                        final TlsSession tlsSession = mock(TlsSession.class);
+                        final X509Certificate certificate = mock(X509Certificate.class);
+                        when(certificate.getEncoded()).thenReturn("a-certificate".getBytes());
+                        when(tlsSession.getPeerCertificates()).thenReturn(List.of(certificate).toArray(new Certificate[0]));
+                        return tlsSession;
+                    }
+                }
+            );
+
+            new MtlsPolicy(configuration)
+                .extractSecurityToken(ctx)
+                .test()
+                .assertComplete()
+                .assertValue(securityToken -> {
+                    assertThat(securityToken.getTokenValue()).isEqualTo(expected);
+                    return true;
+                });
+        }
+    }
+
+    @Nested
+    class ThumbprintCaching {
+
+        @Test
+        @SneakyThrows
+        void should_compute_thumbprint_once_per_tls_session() {
+            final TlsSession tlsSession = mock(TlsSession.class);
+            final X509Certificate certificate = mock(X509Certificate.class);
+            when(certificate.getEncoded()).thenReturn("a-certificate".getBytes());
+            when(tlsSession.getPeerCertificates()).thenAnswer(invocation -> new Certificate[] { certificate });
+
+            for (int i = 0; i < 3; i++) {
+                final DefaultExecutionContext ctx = prepareContext(
+                    new AbstractRequest() {
+                        @Override
+                        public TlsSession tlsSession() {
+                            return tlsSession;
+                        }
+                    }
+                );
+                cut.extractSecurityToken(ctx).test().assertComplete().assertValueCount(1);
+            }
+
+            verify(certificate, times(1)).getEncoded();
+            assertThat(cut.thumbprintCacheStats().missCount()).isEqualTo(1);
+            assertThat(cut.thumbprintCacheStats().hitCount()).isEqualTo(2);
+        }
+
+        @Test
+        @SneakyThrows
+        void should_not_cache_thumbprint_when_digest_computation_exception() {
+            final TlsSession tlsSession = mock(TlsSession.class);
+            final X509Certificate certificate = mock(X509Certificate.class);
+            when(certificate.getEncoded()).thenThrow(CertificateEncodingException.class);
+            when(tlsSession.getPeerCertificates()).thenAnswer(invocation -> new Certificate[] { certificate });
+            final DefaultExecutionContext ctx = prepareContext(
+                new AbstractRequest() {
+                    @Override
+                    public TlsSession tlsSession() {
+                        return tlsSession;
+                    }
+                }
+            );
+
+            cut.extractSecurityToken(ctx).test().assertComplete().assertValue(SecurityToken::isInvalid);
+            cut.extractSecurityToken(ctx).test().assertComplete().assertValue(SecurityToken::isInvalid);
+
+            verify(certificate, times(2)).getEncoded();
+            assertThat(cut.thumbprintCacheStats().size()).isZero();
+        }
     }
 
     @Nested
@@ -263,6 +384,22 @@ class MtlsPolicyTest {
                 });
         }
 
+        @Test
+        void should_not_leak_changes_of_a_failure_to_the_next_rejection() {
+            final List<ExecutionFailure> failures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                cut
+                    .onRequest(prepareContext(new AbstractRequest() {}))
+                    .test()
+                    .assertError(t -> failures.add(((InterruptionFailureException) t).getExecutionFailure()));
+                failures.get(0).message("Enriched by the gateway");
+            }
+
+            assertThat(failures).hasSize(2);
+            assertThat(failures.get(1)).isNotSameAs(failures.get(0));
+            assertThat(failures.get(1).message()).isEqualTo(MtlsPolicy.FAILURE_MESSAGE);
+        }
+
         @Test
         void should_continue_request_if_certificate_exist() {
             final DefaultExecutionContext ctx = prepareContext(
@@ -282,6 +419,868 @@ class MtlsPolicyTest {
         }
     }
 
+    @Nested
+    class ThumbprintLists {
+
+        private static final byte[] ENCODED_CERTIFICATE = "a-certificate".getBytes();
+
+        @Test
+        void should_answer_with_401_when_certificate_is_denied() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setDeniedThumbprints(List.of(thumbprintOf(ENCODED_CERTIFICATE)));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(ENCODED_CERTIFICATE)))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_DENIED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_answer_with_401_when_certificate_is_not_allowed() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setAllowedThumbprints(List.of(thumbprintOf("another-certificate".getBytes())));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(ENCODED_CERTIFICATE)))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_NOT_ALLOWED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_answer_with_401_when_allowed_thumbprints_are_all_invalid() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setAllowedThumbprints(List.of("not-a-thumbprint"));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(ENCODED_CERTIFICATE)))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_NOT_ALLOWED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_continue_request_when_certificate_is_allowed() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setAllowedThumbprints(List.of(thumbprintOf(ENCODED_CERTIFICATE)));
+            configuration.setDeniedThumbprints(List.of(thumbprintOf("another-certificate".getBytes())));
+
+            new MtlsPolicy(configuration).onRequest(prepareContext(requestWithCertificate(ENCODED_CERTIFICATE))).test().assertComplete();
+        }
+
+        @Test
+        void should_match_thumbprints_of_additional_algorithms() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setAdditionalThumbprintAlgorithms(List.of(ThumbprintAlgorithm.SHA_1));
+            configuration.setDeniedThumbprints(List.of(thumbprintOf(ENCODED_CERTIFICATE, "SHA-1")));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(ENCODED_CERTIFICATE)))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_DENIED
+                    );
+                    return true;
+                });
+        }
+
+        private static String thumbprintOf(byte[] encoded) {
+            return thumbprintOf(encoded, "SHA-256");
+        }
+
+        @SneakyThrows
+        private static String thumbprintOf(byte[] encoded, String algorithm) {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(encoded));
+        }
+
+        @SneakyThrows
+        private static AbstractRequest requestWithCertificate(byte[] encoded) {
+            final X509Certificate certificate = mock(X509Certificate.class);
+            when(certificate.getEncoded()).thenReturn(encoded);
+            return MtlsPolicyTest.requestWithCertificate(certificate);
+        }
+    }
+
+    @Nested
+    class NameRules {
+
+        @Test
+        void should_answer_with_401_when_certificate_does_not_match_rules() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setSanDnsNames(List.of("*.partners.gravitee.io"));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_NOT_MATCHING
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_continue_request_when_certificate_matches_rules() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setSanDnsNames(List.of("*.benchmark.gravitee.io"));
+            configuration.setSpiffeIds(List.of("spiffe://benchmark.gravitee.io/client"));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_certificate_is_not_x509() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setSubjectDnPatterns(List.of(".*"));
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(mock(Certificate.class))))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_INVALID
+                    );
+                    return true;
+                });
+        }
+    }
+
+    @Nested
+    class ValidationSharing {
+
+        @Test
+        @SneakyThrows
+        void should_read_peer_certificates_once_per_request() {
+            final TlsSession tlsSession = mock(TlsSession.class);
+            final X509Certificate certificate = mock(X509Certificate.class);
+            when(certificate.getEncoded()).thenReturn("a-certificate".getBytes());
+            when(tlsSession.getPeerCertificates()).thenAnswer(invocation -> new Certificate[] { certificate });
+            final DefaultExecutionContext ctx = prepareContext(
+                new AbstractRequest() {
+                    @Override
+                    public TlsSession tlsSession() {
+                        return tlsSession;
+                    }
+                }
+            );
+
+            cut.extractSecurityToken(ctx).test().assertComplete().assertValueCount(1);
+            cut.onRequest(ctx).test().assertComplete();
+
+            verify(tlsSession, times(1)).getPeerCertificates();
+        }
+
+        @Test
+        @SneakyThrows
+        void should_reuse_failed_validation_between_phases() {
+            final TlsSession tlsSession = mock(TlsSession.class);
+            when(tlsSession.getPeerCertificates()).thenThrow(SSLPeerUnverifiedException.class);
+            final DefaultExecutionContext ctx = prepareContext(
+                new AbstractRequest() {
+                    @Override
+                    public TlsSession tlsSession() {
+                        return tlsSession;
+                    }
+                }
+            );
+
+            cut.extractSecurityToken(ctx).test().assertComplete().assertNoValues();
+            cut
+                .onRequest(ctx)
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_INVALID
+                    );
+                    return true;
+                });
+
+            verify(tlsSession, times(1)).getPeerCertificates();
+        }
+    }
+
+    @Nested
+    class Revocation {
+
+        @TempDir
+        Path crlDirectory;
+
+        @Test
+        void should_answer_with_401_when_a_certificate_of_the_chain_is_revoked() throws Exception {
+            try (InputStream is = MtlsPolicyTest.class.getResourceAsStream("/crl/rsa-2048-intermediate.crl")) {
+                Files.write(crlDirectory.resolve("intermediate.crl"), is.readAllBytes());
+            }
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setCrlDirectory(crlDirectory.toString());
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_REVOKED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_continue_request_when_no_certificate_of_the_chain_is_revoked() throws Exception {
+            try (InputStream is = MtlsPolicyTest.class.getResourceAsStream("/crl/rsa-2048-intermediate.crl")) {
+                Files.write(crlDirectory.resolve("intermediate.crl"), is.readAllBytes());
+            }
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setCrlDirectory(crlDirectory.toString());
+
+            new MtlsPolicy(configuration).onRequest(prepareContext(requestWithChain("rsa-4096"))).test().assertComplete();
+        }
+    }
+
+    @Nested
+    class ChainValidation {
+
+        @Test
+        void should_continue_request_when_chain_leads_to_trust_anchor() {
+            new MtlsPolicy(configurationTrusting("rsa-2048-root"))
+                .onRequest(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_chain_does_not_lead_to_trust_anchor() {
+            new MtlsPolicy(configurationTrusting("ec-p256-root"))
+                .onRequest(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_UNTRUSTED
+                    );
+                    return true;
+                });
+        }
+
+        @SneakyThrows
+        private static MtlsPolicyConfiguration configurationTrusting(String anchor) {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            try (InputStream is = MtlsPolicyTest.class.getResourceAsStream("/benchmark/" + anchor + ".pem")) {
+                configuration.setTrustAnchors(new String(is.readAllBytes(), StandardCharsets.US_ASCII));
+            }
+            return configuration;
+        }
+    }
+
+    @Nested
+    class Ocsp {
+
+        @Test
+        void should_answer_with_401_when_status_is_unknown_in_hard_fail_mode() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setOcspEnabled(true);
+            configuration.setOcspFailureMode(OcspFailureMode.HARD_FAIL);
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_REVOCATION_UNKNOWN
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_continue_request_when_status_is_unknown_in_soft_fail_mode() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setOcspEnabled(true);
+            configuration.setOcspFailureMode(OcspFailureMode.SOFT_FAIL);
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertComplete();
+        }
+    }
+
+    @Nested
+    class ForwardedCertificate {
+
+        private static final String HEADER = "X-Client-Cert";
+        private static final List<String> TRUSTED_PROXIES = List.of("10.0.0.0/8");
+
+        @Test
+        void should_extract_token_from_forwarded_certificate() throws Exception {
+            final X509Certificate certificate = loadCertificate("/benchmark/rsa-2048-leaf.pem");
+            final String thumbprint = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+
+            headerPolicy(TRUSTED_PROXIES)
+                .extractSecurityToken(prepareContext(requestWithHeader("10.0.0.1", pemOf("rsa-2048-leaf"))))
+                .test()
+                .assertValue(token -> {
+                    assertThat(token.getTokenType()).isEqualTo(SecurityToken.TokenType.CERTIFICATE.name());
+                    assertThat(token.getTokenValue()).isEqualTo(thumbprint);
+                    return true;
+                });
+        }
+
+        @Test
+        void should_reuse_thumbprint_of_same_forwarded_certificate() {
+            final MtlsPolicy policy = headerPolicy(TRUSTED_PROXIES);
+            final String pem = pemOf("rsa-2048-leaf");
+
+            policy.extractSecurityToken(prepareContext(requestWithHeader("10.0.0.1", pem))).test().assertValueCount(1);
+            policy
+                .extractSecurityToken(prepareContext(requestWithHeader("10.0.0.2", new String(pem.toCharArray()))))
+                .test()
+                .assertValueCount(1);
+
+            assertThat(policy.thumbprintCacheStats().missCount()).isEqualTo(1);
+            assertThat(policy.thumbprintCacheStats().hitCount()).isEqualTo(1);
+        }
+
+        @Test
+        void should_continue_request_when_forwarded_by_trusted_proxy() {
+            headerPolicy(TRUSTED_PROXIES)
+                .onRequest(prepareContext(requestWithHeader("10.1.2.3", pemOf("rsa-2048-leaf"))))
+                .test()
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_forwarded_by_untrusted_peer() {
+            assertOnRequestFailure(
+                headerPolicy(TRUSTED_PROXIES),
+                requestWithHeader("203.0.113.7", pemOf("rsa-2048-leaf")),
+                MtlsPolicy.CLIENT_CERTIFICATE_UNTRUSTED_PROXY
+            );
+        }
+
+        @Test
+        void should_answer_with_401_when_peer_is_spoofed_with_x_forwarded_for() {
+            // The gateway reports the first X-Forwarded-For entry as remote address.
+            final AbstractRequest request = requestWithHeader("10.0.0.1", pemOf("rsa-2048-leaf"));
+            request.headers().set(HttpHeaderNames.X_FORWARDED_FOR, "10.0.0.1, 203.0.113.7");
+
+            assertOnRequestFailure(headerPolicy(TRUSTED_PROXIES), request, MtlsPolicy.CLIENT_CERTIFICATE_UNTRUSTED_PROXY);
+        }
+
+        @Test
+        void should_refuse_forwarded_certificates_without_trusted_proxies() {
+            assertThatThrownBy(() -> headerPolicy(List.of())).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void should_answer_with_401_when_header_is_missing() {
+            assertOnRequestFailure(
+                headerPolicy(TRUSTED_PROXIES),
+                requestWithHeader("10.0.0.1", null),
+                MtlsPolicy.CLIENT_CERTIFICATE_MISSING
+            );
+        }
+
+        @Test
+        void should_answer_with_401_when_header_is_not_a_certificate() {
+            assertOnRequestFailure(
+                headerPolicy(TRUSTED_PROXIES),
+                requestWithHeader("10.0.0.1", "not-a-certificate"),
+                MtlsPolicy.CLIENT_CERTIFICATE_INVALID
+            );
+        }
+
+        private static MtlsPolicy headerPolicy(List<String> trustedProxies) {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setCertificateSource(CertificateSource.HEADER);
+            configuration.setCertificateHeader(HEADER);
+            configuration.setTrustedProxies(trustedProxies);
+            return new MtlsPolicy(configuration);
+        }
+
+        private static void assertOnRequestFailure(MtlsPolicy policy, AbstractRequest request, String errorKey) {
+            policy
+                .onRequest(prepareContext(request))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(errorKey);
+                    return true;
+                });
+        }
+
+        @SneakyThrows
+        private static String pemOf(String name) {
+            try (InputStream is = MtlsPolicyTest.class.getResourceAsStream("/benchmark/" + name + ".pem")) {
+                return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        private static AbstractRequest requestWithHeader(String remoteAddress, String value) {
+            final HttpHeaders headers = HttpHeaders.create();
+            if (value != null) {
+                headers.set(HEADER, value);
+            }
+            return new AbstractRequest() {
+                @Override
+                public HttpHeaders headers() {
+                    return headers;
+                }
+
+                @Override
+                public String remoteAddress() {
+                    return remoteAddress;
+                }
+            };
+        }
+    }
+
+    @Nested
+    class KafkaPrincipal {
+
+        @Test
+        @SneakyThrows
+        void should_attach_principal_once_per_connection() {
+            final X509Certificate certificate = loadCertificate("/benchmark/rsa-2048-leaf.pem");
+            final TlsSession tlsSession = mock(TlsSession.class);
+            when(tlsSession.getPeerCertificates()).thenReturn(new Certificate[] { certificate });
+            final KafkaConnectionContext ctx = kafkaContext(tlsSession);
+
+            cut.authenticate(ctx).test().assertComplete();
+            final ClientCertificatePrincipal principal = ctx.getAttribute(MtlsPolicy.ATTR_CLIENT_CERTIFICATE_PRINCIPAL);
+            cut.authenticate(ctx).test().assertComplete();
+            cut.extractSecurityToken(ctx).test().assertValue(token -> token.getTokenValue().equals(principal.thumbprint()));
+
+            assertThat(principal.getName()).isEqualTo("O=Gravitee,CN=client.benchmark.gravitee.io");
+            assertThat(principal.thumbprint()).isEqualTo(
+                Base64.getUrlEncoder()
+                    .withoutPadding()
+                    .encodeToString(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()))
+            );
+            assertThat(principal.notAfter()).isEqualTo(certificate.getNotAfter().getTime());
+            assertThat(ctx.<ClientCertificatePrincipal>getAttribute(MtlsPolicy.ATTR_CLIENT_CERTIFICATE_PRINCIPAL)).isSameAs(principal);
+            verify(ctx, times(1)).tlsSession();
+            verify(tlsSession, times(1)).getPeerCertificates();
+        }
+
+        @Test
+        void should_not_attach_principal_to_rejected_connection() {
+            final KafkaConnectionContext ctx = kafkaContext(null);
+
+            cut.authenticate(ctx).test().assertError(MtlsPolicyException.class);
+
+            assertThat(ctx.<ClientCertificatePrincipal>getAttribute(MtlsPolicy.ATTR_CLIENT_CERTIFICATE_PRINCIPAL)).isNull();
+        }
+
+        private static KafkaConnectionContext kafkaContext(TlsSession tlsSession) {
+            final KafkaConnectionContext ctx = mock(KafkaConnectionContext.class);
+            final Map<String, Object> attributes = new HashMap<>();
+            final Map<String, Object> internalAttributes = new HashMap<>();
+            lenient().when(ctx.tlsSession()).thenReturn(tlsSession);
+            lenient()
+                .doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ctx)
+                .setAttribute(anyString(), any());
+            lenient().when(ctx.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+            lenient()
+                .doAnswer(invocation -> internalAttributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(ctx)
+                .setInternalAttribute(anyString(), any());
+            lenient()
+                .when(ctx.getInternalAttribute(anyString()))
+                .thenAnswer(invocation -> internalAttributes.get(invocation.<String>getArgument(0)));
+            return ctx;
+        }
+    }
+
+    @Nested
+    class Validity {
+
+        private final MtlsPolicy policy = new MtlsPolicy(validityCheckConfiguration());
+
+        @Test
+        void should_continue_request_when_certificate_is_valid() {
+            policy
+                .onRequest(prepareContext(requestWithCertificate(certificateValidBetween(-60_000, 60_000))))
+                .test()
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_certificate_is_expired() {
+            policy
+                .onRequest(prepareContext(requestWithCertificate(certificateValidBetween(-120_000, -60_000))))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_EXPIRED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_answer_with_401_when_certificate_is_not_yet_valid() {
+            policy
+                .onRequest(prepareContext(requestWithCertificate(certificateValidBetween(60_000, 120_000))))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_NOT_YET_VALID
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_reject_requests_of_kafka_connection_once_certificate_expired() throws Exception {
+            final X509Certificate certificate = certificateValidBetween(-60_000, 500);
+            final TlsSession tlsSession = mock(TlsSession.class);
+            when(tlsSession.getPeerCertificates()).thenReturn(new Certificate[] { certificate });
+            final KafkaConnectionContext connection = KafkaPrincipal.kafkaContext(tlsSession);
+            final KafkaExecutionContext request = mock(KafkaExecutionContext.class);
+            when(request.connectionContext()).thenReturn(connection);
+
+            policy.authenticate(connection).test().assertComplete();
+            policy.onRequest(request).test().assertComplete();
+
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (!policy.onRequest(request).materialize().blockingGet().isOnError() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            policy.onRequest(request).test().assertError(MtlsPolicyException.class);
+        }
+
+        private static MtlsPolicyConfiguration validityCheckConfiguration() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setValidityCheckEnabled(true);
+            return configuration;
+        }
+
+        private static X509Certificate certificateValidBetween(long notBeforeOffset, long notAfterOffset) {
+            final long now = System.currentTimeMillis();
+            final X509Certificate certificate = mock(X509Certificate.class);
+            lenient().when(certificate.getNotBefore()).thenReturn(new Date(now + notBeforeOffset));
+            lenient().when(certificate.getNotAfter()).thenReturn(new Date(now + notAfterOffset));
+            return certificate;
+        }
+    }
+
+    @Nested
+    class RateLimiting {
+
+        @Test
+        void should_answer_with_429_once_the_bucket_of_the_certificate_is_empty() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setRateLimitEnabled(true);
+            configuration.setRateLimitRequestsPerSecond(0.001);
+            configuration.setRateLimitBurst(2);
+            final MtlsPolicy policy = new MtlsPolicy(configuration);
+            final X509Certificate certificate = loadCertificate("/benchmark/rsa-2048-leaf.pem");
+
+            policy.onRequest(prepareContext(requestWithCertificate(certificate))).test().assertComplete();
+            policy.onRequest(prepareContext(requestWithCertificate(certificate))).test().assertComplete();
+            policy
+                .onRequest(prepareContext(requestWithCertificate(certificate)))
+                .test()
+                .assertError(t -> {
+                    final ExecutionFailure failure = ((InterruptionFailureException) t).getExecutionFailure();
+                    assertThat(failure.statusCode()).isEqualTo(HttpStatusCode.TOO_MANY_REQUESTS_429);
+                    assertThat(failure.key()).isEqualTo(MtlsPolicy.CLIENT_CERTIFICATE_RATE_LIMITED);
+                    return true;
+                });
+            policy
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertComplete();
+        }
+    }
+
+    @Nested
+    class Offload {
+
+        @Test
+        void should_continue_request_when_chain_validated_on_worker_leads_to_trust_anchor() {
+            final MtlsPolicyConfiguration configuration = ChainValidation.configurationTrusting("rsa-2048-root");
+            configuration.setOffloadEnabled(true);
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_chain_validated_on_worker_does_not_lead_to_trust_anchor() {
+            final MtlsPolicyConfiguration configuration = ChainValidation.configurationTrusting("ec-p256-root");
+            configuration.setOffloadEnabled(true);
+
+            new MtlsPolicy(configuration)
+                .onRequest(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_UNTRUSTED
+                    );
+                    return true;
+                });
+        }
+    }
+
+    @Nested
+    class ExternalAuthorization {
+
+        @Test
+        void should_continue_request_when_certificate_is_authorized() {
+            final MtlsPolicy policy = authorizingPolicy(AuthorizationFailureMode.HARD_FAIL, thumbprints ->
+                CompletableFuture.completedFuture(thumbprints.stream().collect(Collectors.toMap(t -> t, t -> true)))
+            );
+
+            policy
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_certificate_is_not_authorized() {
+            final MtlsPolicy policy = authorizingPolicy(AuthorizationFailureMode.SOFT_FAIL, thumbprints ->
+                CompletableFuture.completedFuture(Map.of())
+            );
+
+            policy
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_UNAUTHORIZED
+                    );
+                    return true;
+                });
+        }
+
+        @Test
+        void should_answer_with_401_when_service_is_unavailable_in_hard_fail_mode() {
+            final MtlsPolicy policy = authorizingPolicy(AuthorizationFailureMode.HARD_FAIL, thumbprints ->
+                CompletableFuture.failedFuture(new IllegalStateException("unavailable"))
+            );
+
+            policy
+                .onRequest(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_AUTHORIZATION_UNKNOWN
+                    );
+                    return true;
+                });
+        }
+
+        private static MtlsPolicy authorizingPolicy(AuthorizationFailureMode failureMode, AuthorizationClient client) {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setAuthorizationUrl("http://localhost/authorize");
+            configuration.setAuthorizationBatchWindow(0);
+            configuration.setAuthorizationFailureMode(failureMode);
+            final MtlsPolicy policy = new MtlsPolicy(configuration);
+            policy.authorizationClient(client);
+            return policy;
+        }
+    }
+
+    @Nested
+    class IssuerSubscriptionToken {
+
+        @Test
+        void should_extract_thumbprint_of_issuer_as_token() throws Exception {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setSubscriptionChainPosition(1);
+            final MtlsPolicy policy = new MtlsPolicy(configuration);
+            final String issuerThumbprint = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(loadCertificate("/benchmark/rsa-2048-intermediate.pem").getEncoded())
+                );
+
+            policy
+                .extractSecurityToken(prepareContext(requestWithChain("rsa-2048")))
+                .test()
+                .assertValue(token -> token.getTokenValue().equals(issuerThumbprint));
+        }
+
+        @Test
+        void should_extract_invalid_token_when_chain_has_no_issuer() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setSubscriptionChainPosition(1);
+
+            new MtlsPolicy(configuration)
+                .extractSecurityToken(prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem"))))
+                .test()
+                .assertValue(SecurityToken::isInvalid);
+        }
+    }
+
+    @Nested
+    class CertificateBoundToken {
+
+        @Test
+        void should_continue_request_with_token_bound_to_certificate() throws Exception {
+            final X509Certificate certificate = loadCertificate("/benchmark/ec-p256-leaf.pem");
+            final byte[] thumbprint = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+
+            boundTokenPolicy().onRequest(prepareContext(requestWithToken(certificate, thumbprint))).test().assertComplete();
+        }
+
+        @Test
+        void should_answer_with_401_when_token_is_bound_to_another_certificate() throws Exception {
+            final X509Certificate certificate = loadCertificate("/benchmark/ec-p256-leaf.pem");
+            final byte[] otherThumbprint = MessageDigest.getInstance("SHA-256").digest(
+                loadCertificate("/benchmark/rsa-2048-leaf.pem").getEncoded()
+            );
+
+            boundTokenPolicy()
+                .onRequest(prepareContext(requestWithToken(certificate, otherThumbprint)))
+                .test()
+                .assertError(t -> {
+                    assertThat(((InterruptionFailureException) t).getExecutionFailure().key()).isEqualTo(
+                        MtlsPolicy.CLIENT_CERTIFICATE_NOT_BOUND
+                    );
+                    return true;
+                });
+        }
+
+        private static MtlsPolicy boundTokenPolicy() {
+            final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+            configuration.setThumbprintAlgorithm(ThumbprintAlgorithm.SHA_1);
+            configuration.setCertificateBoundTokenRequired(true);
+            return new MtlsPolicy(configuration);
+        }
+
+        private static AbstractRequest requestWithToken(X509Certificate certificate, byte[] boundThumbprint) {
+            final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            final String claims = "{\"sub\":\"client\",\"cnf\":{\"x5t#S256\":\"" + encoder.encodeToString(boundThumbprint) + "\"}}";
+            final String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+            final String payload = encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+            final HttpHeaders headers = HttpHeaders.create();
+            headers.set("Authorization", "Bearer " + header + "." + payload + ".c2lnbmF0dXJl");
+            return new AbstractRequest() {
+                @SneakyThrows
+                @Override
+                public TlsSession tlsSession() {
+                    final TlsSession tlsSession = mock(TlsSession.class);
+                    when(tlsSession.getPeerCertificates()).thenReturn(new Certificate[] { certificate });
+                    return tlsSession;
+                }
+
+                @Override
+                public HttpHeaders headers() {
+                    return headers;
+                }
+            };
+        }
+    }
+
+    @Nested
+    class ClientCertificateAttribute {
+
+        @Test
+        void should_publish_client_certificate_of_accepted_request() {
+            final DefaultExecutionContext ctx = prepareContext(requestWithCertificate(loadCertificate("/benchmark/ec-p256-leaf.pem")));
+
+            cut.onRequest(ctx).test().assertComplete();
+
+            final ClientCertificate certificate = ctx.getAttribute(MtlsPolicy.ATTR_CLIENT_CERTIFICATE);
+            assertThat(certificate.getSubjectCn()).isEqualTo("client.benchmark.gravitee.io");
+            assertThat(certificate.getSerialNumber()).isEqualTo("1f67b3f4c71710cc9950d66fcd614d57ed3b2e60");
+            assertThat(certificate.getDnsNames()).containsExactly("client.benchmark.gravitee.io");
+            assertThat(certificate.getUris()).containsExactly("spiffe://benchmark.gravitee.io/client");
+            cut.extractSecurityToken(ctx).test().assertValue(token -> token.getTokenValue().equals(certificate.getThumbprint()));
+        }
+
+        @Test
+        void should_not_publish_client_certificate_of_rejected_request() {
+            final DefaultExecutionContext ctx = prepareContext(new AbstractRequest() {});
+
+            cut.onRequest(ctx).test().assertError(InterruptionFailureException.class);
+
+            assertThat(ctx.<ClientCertificate>getAttribute(MtlsPolicy.ATTR_CLIENT_CERTIFICATE)).isNull();
+        }
+    }
+
+    @Nested
+    class DecisionMetrics {
+
+        private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        private final MtlsPolicy policy = new MtlsPolicy(
+            new MtlsPolicyConfiguration(),
+            MtlsMetrics.of(registry, List.of(MtlsPolicy.SSL_SESSION_REQUIRED))
+        );
+
+        @Test
+        void should_count_rejections_by_error_key() {
+            policy.onRequest(prepareContext(new AbstractRequest() {})).test().assertError(InterruptionFailureException.class);
+
+            assertThat(
+                registry
+                    .get("gravitee.policy.mtls.decisions")
+                    .tag("protocol", "http")
+                    .tag("outcome", MtlsPolicy.SSL_SESSION_REQUIRED)
+                    .counter()
+                    .count()
+            ).isEqualTo(1);
+            assertThat(
+                registry.get("gravitee.policy.mtls.phase.duration").tag("protocol", "http").tag("phase", "onRequest").timer().count()
+            ).isEqualTo(1);
+        }
+    }
+
+    private static AbstractRequest requestWithCertificate(Certificate... chain) {
+        return new AbstractRequest() {
+            @SneakyThrows
+            @Override
+            public TlsSession tlsSession() {
+                final TlsSession tlsSession = mock(TlsSession.class);
+                when(tlsSession.getPeerCertificates()).thenReturn(chain);
+                return tlsSession;
+            }
+        };
+    }
+
+    private static AbstractRequest requestWithChain(String keyType) {
+        return requestWithCertificate(
+            loadCertificate("/benchmark/" + keyType + "-leaf.pem"),
+            loadCertificate("/benchmark/" + keyType + "-intermediate.pem")
+        );
+    }
+
+    @SneakyThrows
+    static X509Certificate loadCertificate(String resource) {
+        try (InputStream is = MtlsPolicyTest.class.getResourceAsStream(resource)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+
     private static DefaultExecutionContext prepareContext(AbstractRequest request) {
         final DefaultExecutionContext ctx = new DefaultExecutionContext(request, new AbstractResponse() {});
         ctx.metrics(mock(Metrics.class));
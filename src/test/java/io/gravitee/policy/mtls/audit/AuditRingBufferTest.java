@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class AuditRingBufferTest {
+
+    @Test
+    void should_poll_elements_in_order_and_reject_them_when_full() {
+        final AuditRingBuffer<Integer> cut = new AuditRingBuffer<>(3);
+
+        assertThat(cut.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(cut.offer(i)).isTrue();
+        }
+        assertThat(cut.offer(4)).isFalse();
+        assertThat(cut.poll()).isZero();
+        assertThat(cut.offer(5)).isTrue();
+
+        final List<Integer> polled = new ArrayList<>();
+        Integer element;
+        while ((element = cut.poll()) != null) {
+            polled.add(element);
+        }
+        assertThat(polled).containsExactly(1, 2, 3, 5);
+    }
+
+    @Test
+    void should_not_lose_nor_duplicate_elements_of_concurrent_producers() throws Exception {
+        final AuditRingBuffer<Integer> cut = new AuditRingBuffer<>(64);
+        final int producers = 4;
+        final int perProducer = 10_000;
+        final AtomicInteger rejected = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(producers);
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (!cut.offer(base + i)) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        final Set<Integer> polled = new HashSet<>();
+        int count = 0;
+        while (done.getCount() > 0 || count + rejected.get() < producers * perProducer) {
+            final Integer element = cut.poll();
+            if (element != null) {
+                polled.add(element);
+                count++;
+            }
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(polled).hasSize(count);
+        assertThat(count + rejected.get()).isEqualTo(producers * perProducer);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.reporter.api.Reportable;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class AuditStreamTest {
+
+    private final List<Reportable> reported = new ArrayList<>();
+
+    @Test
+    void should_report_all_buffered_events_on_flush() {
+        final AuditStream cut = new AuditStream(1024, reported::add);
+
+        for (int i = 0; i < AuditStream.BATCH_SIZE * 2 + 1; i++) {
+            cut.publish(event("thumbprint-" + i));
+        }
+        cut.flush();
+
+        assertThat(reported).hasSize(AuditStream.BATCH_SIZE * 2 + 1);
+        assertThat(((CertificateAuditEvent) reported.get(0)).getThumbprint()).isEqualTo("thumbprint-0");
+        assertThat(cut.dropped()).isZero();
+    }
+
+    @Test
+    void should_drop_and_count_events_when_buffer_is_full() {
+        final AuditStream cut = new AuditStream(4, reported::add);
+
+        for (int i = 0; i < 6; i++) {
+            cut.publish(event("thumbprint-" + i));
+        }
+        cut.flush();
+
+        assertThat(reported).hasSize(4);
+        assertThat(cut.dropped()).isEqualTo(2);
+    }
+
+    @Test
+    void should_keep_reporting_when_sink_fails() {
+        final AuditStream cut = new AuditStream(4, event -> {
+            if (((CertificateAuditEvent) event).getThumbprint().equals("thumbprint-0")) {
+                throw new IllegalStateException("Sink unavailable");
+            }
+            reported.add(event);
+        });
+
+        cut.publish(event("thumbprint-0"));
+        cut.publish(event("thumbprint-1"));
+        cut.flush();
+
+        assertThat(reported).hasSize(1);
+    }
+
+    private static CertificateAuditEvent event(String thumbprint) {
+        return new CertificateAuditEvent(System.currentTimeMillis(), "api", "http", "SUCCESS", thumbprint, "CN=client");
+    }
+}
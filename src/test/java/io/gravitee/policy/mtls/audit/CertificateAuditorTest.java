@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.mtls.metrics.MtlsMetrics.Protocol;
+import io.gravitee.reporter.api.Reportable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateAuditorTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CertificateAuditor cut = new CertificateAuditor(new AuditStream(16), Duration.ofSeconds(60), nanos::get);
+
+    @Test
+    void should_report_identity_once_per_window() {
+        assertThat(cut.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isTrue();
+        assertThat(cut.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isFalse();
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertThat(cut.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isTrue();
+    }
+
+    @Test
+    void should_report_change_of_outcome_at_once() {
+        assertThat(cut.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isTrue();
+        assertThat(cut.isNew("thumbprint", "CLIENT_CERTIFICATE_DENIED", Protocol.HTTP)).isTrue();
+        assertThat(cut.isNew("thumbprint", "SUCCESS", Protocol.KAFKA)).isTrue();
+        assertThat(cut.isNew(null, "CLIENT_CERTIFICATE_MISSING", Protocol.HTTP)).isTrue();
+        assertThat(cut.isNew(null, "CLIENT_CERTIFICATE_MISSING", Protocol.HTTP)).isFalse();
+    }
+
+    @Test
+    void should_publish_events_to_the_stream() {
+        final List<Reportable> reported = new ArrayList<>();
+        final AuditStream stream = new AuditStream(16, reported::add);
+        final CertificateAuditor auditor = new CertificateAuditor(stream, Duration.ofSeconds(60));
+        final CertificateAuditEvent event = new CertificateAuditEvent(0, "api", "http", "SUCCESS", "thumbprint", "CN=client");
+
+        auditor.publish(event);
+        auditor.publish(event);
+        stream.flush();
+
+        assertThat(reported).containsExactly(event, event);
+    }
+
+    @Test
+    void should_report_again_identity_whose_event_was_dropped() {
+        final AuditStream stream = new AuditStream(2, event -> {});
+        final CertificateAuditor auditor = new CertificateAuditor(stream, Duration.ofSeconds(60));
+        stream.publish(new CertificateAuditEvent(0, "api", "http", "SUCCESS", "other-0", "CN=other"));
+        stream.publish(new CertificateAuditEvent(0, "api", "http", "SUCCESS", "other-1", "CN=other"));
+
+        assertThat(auditor.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isTrue();
+        auditor.publish(new CertificateAuditEvent(0, "api", Protocol.HTTP.tag(), "SUCCESS", "thumbprint", "CN=client"));
+
+        assertThat(stream.dropped()).isEqualTo(1);
+        assertThat(auditor.isNew("thumbprint", "SUCCESS", Protocol.HTTP)).isTrue();
+    }
+}
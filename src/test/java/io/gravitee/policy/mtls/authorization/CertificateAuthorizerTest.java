@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateAuthorizerTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private final RecordingClient allowingFirst = new RecordingClient(thumbprints -> Map.of("first", true, "second", false));
+
+    @Test
+    void should_coalesce_concurrent_lookups_of_same_certificate() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, TTL, 50, 100);
+
+        final CompletionStage<AuthorizationStatus> first = authorizer.status("first", allowingFirst);
+        final CompletionStage<AuthorizationStatus> second = authorizer.status("first", allowingFirst);
+
+        assertThat(join(first)).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(join(second)).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(allowingFirst.calls).containsExactly(List.of("first"));
+    }
+
+    @Test
+    void should_batch_lookups_of_different_certificates() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, TTL, 50, 100);
+
+        final CompletionStage<AuthorizationStatus> first = authorizer.status("first", allowingFirst);
+        final CompletionStage<AuthorizationStatus> second = authorizer.status("second", allowingFirst);
+        final CompletionStage<AuthorizationStatus> third = authorizer.status("third", allowingFirst);
+
+        assertThat(join(first)).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(join(second)).isEqualTo(AuthorizationStatus.DENIED);
+        assertThat(join(third)).isEqualTo(AuthorizationStatus.UNKNOWN);
+        assertThat(allowingFirst.calls).containsExactly(List.of("first", "second", "third"));
+    }
+
+    @Test
+    void should_send_batch_as_soon_as_full() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, TTL, TimeUnit.MINUTES.toMillis(1), 2);
+
+        final CompletionStage<AuthorizationStatus> first = authorizer.status("first", allowingFirst);
+        final CompletionStage<AuthorizationStatus> second = authorizer.status("second", allowingFirst);
+
+        assertThat(join(first)).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(join(second)).isEqualTo(AuthorizationStatus.DENIED);
+    }
+
+    @Test
+    void should_cache_decisions_for_their_ttl() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, 0, 0, 100);
+
+        join(authorizer.status("first", allowingFirst));
+        join(authorizer.status("second", allowingFirst));
+
+        assertThat(authorizer.cachedStatus("first")).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(authorizer.cachedStatus("second")).isNull();
+    }
+
+    @Test
+    void should_return_unknown_when_service_fails() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, TTL, 0, 100);
+        final AuthorizationClient failing = thumbprints -> CompletableFuture.failedFuture(new IllegalStateException("unavailable"));
+
+        assertThat(join(authorizer.status("first", failing))).isEqualTo(AuthorizationStatus.UNKNOWN);
+        assertThat(join(authorizer.status("second", null))).isEqualTo(AuthorizationStatus.UNKNOWN);
+    }
+
+    @Test
+    void should_return_unknown_when_decision_is_missing() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(1000, TTL, TTL, 0, 100);
+
+        assertThat(join(authorizer.status("third", allowingFirst))).isEqualTo(AuthorizationStatus.UNKNOWN);
+        assertThat(join(authorizer.status("fourth", thumbprints -> CompletableFuture.completedFuture(null)))).isEqualTo(
+            AuthorizationStatus.UNKNOWN
+        );
+    }
+
+    @Test
+    void should_return_unknown_when_service_times_out() {
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(10, TTL, TTL, 0, 100);
+
+        assertThat(join(authorizer.status("first", thumbprints -> new CompletableFuture<>()))).isEqualTo(AuthorizationStatus.UNKNOWN);
+    }
+
+    private static AuthorizationStatus join(CompletionStage<AuthorizationStatus> status) {
+        return status.toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    private static final class RecordingClient implements AuthorizationClient {
+
+        private final Function<Collection<String>, Map<String, Boolean>> decisions;
+        private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+        private RecordingClient(Function<Collection<String>, Map<String, Boolean>> decisions) {
+            this.decisions = decisions;
+        }
+
+        @Override
+        public CompletionStage<Map<String, Boolean>> authorize(Collection<String> thumbprints) {
+            calls.add(new ArrayList<>(thumbprints));
+            return CompletableFuture.completedFuture(decisions.apply(thumbprints));
+        }
+    }
+}
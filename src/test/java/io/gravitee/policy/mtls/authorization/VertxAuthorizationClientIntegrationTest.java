@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.authorization;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.apim.gateway.tests.sdk.AbstractPolicyTest;
+import io.gravitee.apim.gateway.tests.sdk.annotations.DeployApi;
+import io.gravitee.apim.gateway.tests.sdk.annotations.GatewayTest;
+import io.gravitee.apim.gateway.tests.sdk.connector.EndpointBuilder;
+import io.gravitee.apim.gateway.tests.sdk.connector.EntrypointBuilder;
+import io.gravitee.plugin.endpoint.EndpointConnectorPlugin;
+import io.gravitee.plugin.endpoint.http.proxy.HttpProxyEndpointConnectorFactory;
+import io.gravitee.plugin.entrypoint.EntrypointConnectorPlugin;
+import io.gravitee.plugin.entrypoint.http.proxy.HttpProxyEntrypointConnectorFactory;
+import io.gravitee.policy.mtls.MtlsPolicy;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.vertx.rxjava3.core.Vertx;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Calls a WireMock authorization service with the {@link VertxAuthorizationClient}, on the Vert.x instance of the gateway.
+ *
+ * @author GraviteeSource Team
+ */
+@GatewayTest
+@DeployApi({ "/apis/v4/api.json" })
+class VertxAuthorizationClientIntegrationTest extends AbstractPolicyTest<MtlsPolicy, MtlsPolicyConfiguration> {
+
+    private static final String PATH = "/authorize";
+    private static final long TIMEOUT = 2000;
+    private static final long TTL = TimeUnit.MINUTES.toMillis(5);
+
+    @Override
+    public void configureEntrypoints(Map<String, EntrypointConnectorPlugin<?, ?>> entrypoints) {
+        entrypoints.putIfAbsent("http-proxy", EntrypointBuilder.build("http-proxy", HttpProxyEntrypointConnectorFactory.class));
+    }
+
+    @Override
+    public void configureEndpoints(Map<String, EndpointConnectorPlugin<?, ?>> endpoints) {
+        endpoints.putIfAbsent("http-proxy", EndpointBuilder.build("http-proxy", HttpProxyEndpointConnectorFactory.class));
+    }
+
+    @Test
+    void should_post_thumbprints_and_read_decisions(Vertx vertx) throws Exception {
+        wiremock.stubFor(post(PATH).willReturn(okJson("{\"decisions\": {\"allowed\": true, \"denied\": false}}")));
+
+        final Map<String, Boolean> decisions = join(client(vertx, TIMEOUT).authorize(List.of("allowed", "denied")));
+
+        assertThat(decisions).containsExactlyInAnyOrderEntriesOf(Map.of("allowed", true, "denied", false));
+        wiremock.verify(
+            postRequestedFor(urlPathEqualTo(PATH))
+                .withHeader("Content-Type", equalTo("application/json"))
+                .withRequestBody(equalToJson("{\"thumbprints\": [\"allowed\", \"denied\"]}"))
+        );
+    }
+
+    @Test
+    void should_leave_out_thumbprints_without_boolean_decision(Vertx vertx) throws Exception {
+        wiremock.stubFor(post(PATH).willReturn(okJson("{\"decisions\": {\"allowed\": true, \"invalid\": \"yes\"}}")));
+
+        final Map<String, Boolean> decisions = join(client(vertx, TIMEOUT).authorize(List.of("allowed", "invalid", "missing")));
+
+        assertThat(decisions).containsExactlyEntriesOf(Map.of("allowed", true));
+    }
+
+    @Test
+    void should_fail_when_service_answers_with_error_status(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(serverError()));
+
+        assertThatThrownBy(() -> join(client(vertx, TIMEOUT).authorize(List.of("allowed")))).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void should_fail_when_service_answers_with_non_200_success_status(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(aResponse().withStatus(204)));
+
+        assertThatThrownBy(() -> join(client(vertx, TIMEOUT).authorize(List.of("allowed")))).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void should_fail_when_body_is_not_json(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(aResponse().withStatus(200).withBody("allowed")));
+
+        assertThatThrownBy(() -> join(client(vertx, TIMEOUT).authorize(List.of("allowed")))).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void should_fail_when_service_is_too_slow(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(okJson("{\"decisions\": {\"allowed\": true}}").withFixedDelay(2000)));
+
+        assertThatThrownBy(() -> join(client(vertx, 200).authorize(List.of("allowed")))).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    void should_authorize_certificates_seen_together_in_a_single_call(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(okJson("{\"decisions\": {\"allowed\": true, \"denied\": false}}")));
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(TIMEOUT, TTL, TTL, 100, 10);
+        final AuthorizationClient client = client(vertx, TIMEOUT);
+
+        final CompletionStage<AuthorizationStatus> allowed = authorizer.status("allowed", client);
+        final CompletionStage<AuthorizationStatus> denied = authorizer.status("denied", client);
+        final CompletionStage<AuthorizationStatus> missing = authorizer.status("missing", client);
+
+        assertThat(allowed.toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join()).isEqualTo(AuthorizationStatus.ALLOWED);
+        assertThat(denied.toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join()).isEqualTo(AuthorizationStatus.DENIED);
+        assertThat(missing.toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join()).isEqualTo(AuthorizationStatus.UNKNOWN);
+        wiremock.verify(
+            1,
+            postRequestedFor(urlPathEqualTo(PATH)).withRequestBody(equalToJson("{\"thumbprints\": [\"allowed\", \"denied\", \"missing\"]}"))
+        );
+    }
+
+    @Test
+    void should_return_unknown_status_when_service_fails(Vertx vertx) {
+        wiremock.stubFor(post(PATH).willReturn(serverError()));
+        final CertificateAuthorizer authorizer = new CertificateAuthorizer(TIMEOUT, TTL, TTL, 0, 10);
+
+        final CompletionStage<AuthorizationStatus> status = authorizer.status("allowed", client(vertx, TIMEOUT));
+
+        assertThat(status.toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join()).isEqualTo(AuthorizationStatus.UNKNOWN);
+    }
+
+    private VertxAuthorizationClient client(Vertx vertx, long timeout) {
+        return new VertxAuthorizationClient(vertx.getDelegate(), "http://localhost:" + wiremock.port() + PATH, timeout);
+    }
+
+    private static <T> T join(CompletionStage<T> stage) throws Exception {
+        return stage.toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+}
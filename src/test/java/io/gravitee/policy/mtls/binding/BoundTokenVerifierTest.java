@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.binding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.mtls.certificate.Thumbprint;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class BoundTokenVerifierTest {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final BoundTokenVerifier cut = new BoundTokenVerifier();
+    private final Thumbprint thumbprint = thumbprintOf("client");
+
+    @Test
+    void should_accept_token_bound_to_certificate() {
+        assertThat(cut.isBound("Bearer " + tokenBoundTo(thumbprint), thumbprint)).isTrue();
+        assertThat(cut.isBound("bearer " + tokenBoundTo(thumbprint), thumbprint)).isTrue();
+    }
+
+    @Test
+    void should_reject_token_bound_to_another_certificate() {
+        final String authorization = "Bearer " + tokenBoundTo(thumbprintOf("other"));
+
+        assertThat(cut.isBound(authorization, thumbprint)).isFalse();
+        assertThat(cut.isBound(authorization, thumbprintOf("other"))).isTrue();
+    }
+
+    @Test
+    void should_reject_token_which_is_not_bound() {
+        assertThat(cut.isBound("Bearer " + token("{\"sub\":\"client\"}"), thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer " + token("{\"cnf\":{\"jkt\":\"abc\"}}"), thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer " + token("{\"cnf\":{\"x5t#S256\":\"abc\"}}"), thumbprint)).isFalse();
+    }
+
+    @Test
+    void should_reject_missing_or_malformed_token() {
+        assertThat(cut.isBound(null, thumbprint)).isFalse();
+        assertThat(cut.isBound("Basic dXNlcjpwYXNz", thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer opaque-token", thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer a.%%%.c", thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer " + ENCODER.encodeToString("{}".getBytes()) + ".bm90IGpzb24.sig", thumbprint)).isFalse();
+        assertThat(cut.isBound("Bearer " + tokenBoundTo(thumbprint), null)).isFalse();
+    }
+
+    private static String tokenBoundTo(Thumbprint thumbprint) {
+        return token("{\"sub\":\"client\",\"cnf\":{\"x5t#S256\":\"" + thumbprint.value() + "\"}}");
+    }
+
+    private static String token(String claims) {
+        return (
+            ENCODER.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) +
+            "." +
+            ENCODER.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) +
+            ".c2lnbmF0dXJl"
+        );
+    }
+
+    @SneakyThrows
+    private static Thumbprint thumbprintOf(String certificate) {
+        return Thumbprint.of(MessageDigest.getInstance("SHA-256").digest(certificate.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateStoreTest {
+
+    private final ThumbprintDigester sha256 = new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_256));
+    private final CertificateStore store = new CertificateStore();
+
+    @Test
+    void should_share_entry_of_same_certificate_between_views() throws Exception {
+        final CertificateStore.View first = store.view(sha256);
+        final CertificateStore.View second = store.view(sha256);
+
+        final CertificateStore.Entry entry = first.entry(certificate("a-certificate"));
+
+        assertThat(second.entry(certificate("a-certificate"))).isSameAs(entry);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void should_add_thumbprints_of_other_algorithms() throws Exception {
+        store.view(sha256).entry(certificate("a-certificate"));
+
+        final CertificateStore.Entry entry = store
+            .view(new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_1)))
+            .entry(certificate("a-certificate"));
+
+        assertThat(entry.thumbprints().get(ThumbprintAlgorithm.SHA_256)).isNotNull();
+        assertThat(entry.thumbprints().get(ThumbprintAlgorithm.SHA_1)).isNotNull();
+    }
+
+    @Test
+    void should_drop_entry_once_no_view_uses_it() throws Exception {
+        final CertificateStore.View view = store.view(sha256);
+        view.entry(certificate("a-certificate"));
+
+        view.clear();
+
+        assertThat(sizeAfterGarbageCollection()).isZero();
+    }
+
+    @Test
+    void should_keep_entry_used_by_another_view() throws Exception {
+        final CertificateStore.View first = store.view(sha256);
+        final CertificateStore.View second = store.view(sha256);
+        first.entry(certificate("a-certificate"));
+        second.entry(certificate("a-certificate"));
+
+        first.clear();
+
+        assertThat(sizeAfterGarbageCollection()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_store_certificate_which_cannot_be_encoded() throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenThrow(CertificateEncodingException.class);
+
+        assertThat(store.view(sha256).entry(certificate)).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    private long sizeAfterGarbageCollection() throws InterruptedException {
+        for (int i = 0; i < 50 && store.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return store.size();
+    }
+
+    private static X509Certificate certificate(String encoded) throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encoded.getBytes());
+        return certificate;
+    }
+}
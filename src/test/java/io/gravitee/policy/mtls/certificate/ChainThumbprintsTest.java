@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import io.gravitee.policy.mtls.load.TestCertificateAuthority;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ChainThumbprintsTest {
+
+    @Test
+    void should_return_thumbprint_of_issuer() throws Exception {
+        final ChainThumbprints cut = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 1, false);
+        final X509Certificate intermediate = load("/benchmark/ec-p256-intermediate.pem");
+
+        final Thumbprint thumbprint = cut.thumbprint(new Certificate[] { load("/benchmark/ec-p256-leaf.pem"), intermediate });
+
+        assertThat(thumbprint.value()).isEqualTo(
+            Base64.getUrlEncoder().withoutPadding().encodeToString(MessageDigest.getInstance("SHA-256").digest(intermediate.getEncoded()))
+        );
+    }
+
+    @Test
+    void should_share_thumbprint_between_leaves_of_same_issuer() {
+        final ChainThumbprints cut = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 1, false);
+
+        final Thumbprint first = cut.thumbprint(ecChain());
+        final Thumbprint second = cut.thumbprint(ecChain());
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void should_fall_back_to_last_certificate_of_short_chain() {
+        final Certificate[] chain = { load("/benchmark/ec-p256-leaf.pem"), load("/benchmark/ec-p256-intermediate.pem") };
+
+        final Thumbprint withoutFallback = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 2, false).thumbprint(chain);
+        final Thumbprint withFallback = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 2, true).thumbprint(chain);
+
+        assertThat(withoutFallback).isNull();
+        assertThat(withFallback.value()).isEqualTo(new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 1, false).thumbprint(chain).value());
+    }
+
+    @Test
+    void should_not_follow_certificate_which_did_not_issue_previous_one() {
+        final ChainThumbprints cut = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 1, true);
+
+        final Thumbprint thumbprint = cut.thumbprint(
+            new Certificate[] { load("/benchmark/rsa-2048-leaf.pem"), load("/benchmark/ec-p256-intermediate.pem") }
+        );
+
+        assertThat(thumbprint).isNull();
+    }
+
+    @Test
+    void should_not_follow_certificate_which_only_has_the_name_of_the_issuer() {
+        final ChainThumbprints cut = new ChainThumbprints(ThumbprintAlgorithm.SHA_256, 1, false);
+        final TestCertificateAuthority authority = new TestCertificateAuthority("Client CA");
+        final TestCertificateAuthority impostor = new TestCertificateAuthority("Client CA");
+        final X509Certificate client = parse(authority.issue("client").certificatePem());
+
+        final Thumbprint genuine = cut.thumbprint(new Certificate[] { client, parse(authority.getCertificatePem()) });
+        final Thumbprint forged = cut.thumbprint(new Certificate[] { client, parse(impostor.getCertificatePem()) });
+
+        assertThat(genuine).isNotNull();
+        assertThat(forged).isNull();
+    }
+
+    private static Certificate[] ecChain() {
+        return new Certificate[] {
+            load("/benchmark/ec-p256-leaf.pem"),
+            load("/benchmark/ec-p256-intermediate.pem"),
+            load("/benchmark/ec-p256-root.pem"),
+        };
+    }
+
+    @SneakyThrows
+    private static X509Certificate parse(String pem) {
+        return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+            new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII))
+        );
+    }
+
+    @SneakyThrows
+    private static X509Certificate load(String resource) {
+        try (InputStream is = ChainThumbprintsTest.class.getResourceAsStream(resource)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+}
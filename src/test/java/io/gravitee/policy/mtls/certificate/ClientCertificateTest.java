@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import javax.security.auth.x500.X500Principal;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ClientCertificateTest {
+
+    private final CertificateStore.View store = new CertificateStore().view(new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_256)));
+
+    @Test
+    void should_not_read_certificate_until_a_detail_is_read() throws Exception {
+        final X509Certificate certificate = certificate();
+
+        final ClientCertificate clientCertificate = new ClientCertificate(certificate, store, ThumbprintAlgorithm.SHA_256);
+
+        verify(certificate, never()).getEncoded();
+        verify(certificate, never()).getSubjectX500Principal();
+        verify(certificate, never()).getSerialNumber();
+        assertThat(clientCertificate.getSerialNumber()).isEqualTo("2a");
+        verify(certificate, never()).getSubjectX500Principal();
+    }
+
+    @Test
+    void should_parse_names_once() throws Exception {
+        final X509Certificate certificate = certificate();
+        final ClientCertificate clientCertificate = new ClientCertificate(certificate, store, ThumbprintAlgorithm.SHA_256);
+
+        assertThat(clientCertificate.getSubjectCn()).isEqualTo("client");
+        assertThat(clientCertificate.getSubjectDn()).isEqualTo("CN=client,O=Gravitee");
+        assertThat(new ClientCertificate(certificate, store, ThumbprintAlgorithm.SHA_256).getSubjectCn()).isEqualTo("client");
+
+        verify(certificate, times(1)).getSubjectX500Principal();
+    }
+
+    @Test
+    void should_expose_details_of_certificate_which_cannot_be_encoded() throws Exception {
+        final X509Certificate certificate = certificate();
+        when(certificate.getEncoded()).thenThrow(CertificateEncodingException.class);
+
+        final ClientCertificate clientCertificate = new ClientCertificate(certificate, store, ThumbprintAlgorithm.SHA_256);
+
+        assertThat(clientCertificate.getThumbprint()).isNull();
+        assertThat(clientCertificate.getSubjectCn()).isEqualTo("client");
+    }
+
+    @Test
+    void should_pick_most_specific_common_name() {
+        assertThat(CertificateAttributes.commonName("CN=leaf,OU=CN=unit,CN=root,O=Gravitee")).isEqualTo("leaf");
+        assertThat(CertificateAttributes.commonName("O=Gravitee")).isNull();
+    }
+
+    private static X509Certificate certificate() throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn("a-client-certificate".getBytes());
+        when(certificate.getSubjectX500Principal()).thenReturn(new X500Principal("CN=client,O=Gravitee"));
+        when(certificate.getSerialNumber()).thenReturn(BigInteger.valueOf(42));
+        return certificate;
+    }
+}
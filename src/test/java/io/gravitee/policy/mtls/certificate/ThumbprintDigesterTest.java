@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.security.MessageDigest;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ThumbprintDigesterTest {
+
+    @Test
+    void should_digest_certificate_with_each_algorithm() throws Exception {
+        final byte[] encoded = new byte[1500];
+        new Random(42).nextBytes(encoded);
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encoded);
+
+        final Thumbprints thumbprints = new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_512, ThumbprintAlgorithm.SHA_1)).digest(
+            certificate
+        );
+
+        assertThat(thumbprints.get(ThumbprintAlgorithm.SHA_1).digest()).isEqualTo(MessageDigest.getInstance("SHA-1").digest(encoded));
+        assertThat(thumbprints.get(ThumbprintAlgorithm.SHA_512).digest()).isEqualTo(MessageDigest.getInstance("SHA-512").digest(encoded));
+        assertThat(thumbprints.get(ThumbprintAlgorithm.SHA_256)).isNull();
+    }
+
+    @Test
+    void should_encode_thumbprint_in_base64url_without_padding() throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn("a-certificate".getBytes());
+
+        final Thumbprint thumbprint = new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_256))
+            .digest(certificate)
+            .get(ThumbprintAlgorithm.SHA_256);
+
+        assertThat(thumbprint.value()).isEqualTo(
+            Base64.getUrlEncoder().withoutPadding().encodeToString(MessageDigest.getInstance("SHA-256").digest("a-certificate".getBytes()))
+        );
+    }
+
+    @Test
+    void should_reuse_digests_between_certificates() throws Exception {
+        final ThumbprintDigester digester = new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_256));
+        final X509Certificate first = mock(X509Certificate.class);
+        when(first.getEncoded()).thenReturn("first".getBytes());
+        final X509Certificate second = mock(X509Certificate.class);
+        when(second.getEncoded()).thenReturn("second".getBytes());
+
+        digester.digest(first);
+
+        assertThat(digester.digest(second).get(ThumbprintAlgorithm.SHA_256).digest()).isEqualTo(
+            MessageDigest.getInstance("SHA-256").digest("second".getBytes())
+        );
+    }
+
+    @Test
+    void should_return_null_when_certificate_cannot_be_encoded() throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenThrow(CertificateEncodingException.class);
+
+        assertThat(new ThumbprintDigester(List.of(ThumbprintAlgorithm.SHA_256)).digest(certificate)).isNull();
+    }
+}
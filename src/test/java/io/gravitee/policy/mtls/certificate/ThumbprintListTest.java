@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.security.cert.X509Certificate;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ThumbprintListTest {
+
+    private static final EnumSet<ThumbprintAlgorithm> ALGORITHMS = EnumSet.of(ThumbprintAlgorithm.SHA_1, ThumbprintAlgorithm.SHA_256);
+
+    @Test
+    void should_contain_thumbprints_of_any_algorithm() throws Exception {
+        final Thumbprints first = thumbprintsOf("first");
+        final Thumbprints second = thumbprintsOf("second");
+
+        final ThumbprintList list = ThumbprintList.of(
+            List.of(
+                first.get(ThumbprintAlgorithm.SHA_1).value(),
+                HexFormat.of().formatHex(second.get(ThumbprintAlgorithm.SHA_256).digest())
+            ),
+            ALGORITHMS
+        );
+
+        assertThat(list.isEmpty()).isFalse();
+        assertThat(list.contains(first)).isTrue();
+        assertThat(list.contains(second)).isTrue();
+        assertThat(list.contains(thumbprintsOf("third"))).isFalse();
+    }
+
+    @Test
+    void should_ignore_thumbprints_of_other_algorithms() throws Exception {
+        final Thumbprints thumbprints = thumbprintsOf("first");
+
+        final ThumbprintList list = ThumbprintList.of(
+            List.of(thumbprints.get(ThumbprintAlgorithm.SHA_1).value()),
+            EnumSet.of(ThumbprintAlgorithm.SHA_256)
+        );
+
+        assertThat(list.isEmpty()).isTrue();
+        assertThat(list.contains(thumbprints)).isFalse();
+    }
+
+    @Test
+    void should_be_empty() {
+        assertThat(ThumbprintList.of(null, ALGORITHMS).isEmpty()).isTrue();
+        assertThat(ThumbprintList.of(List.of("not a thumbprint"), ALGORITHMS).isEmpty()).isTrue();
+    }
+
+    private static Thumbprints thumbprintsOf(String encoded) throws Exception {
+        final X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encoded.getBytes());
+        return new ThumbprintDigester(ALGORITHMS).digest(certificate);
+    }
+}
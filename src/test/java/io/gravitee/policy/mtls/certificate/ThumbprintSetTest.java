@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ThumbprintSetTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void should_contain_base64url_and_hexadecimal_thumbprints() {
+        final byte[] first = randomDigest(32);
+        final byte[] second = randomDigest(32);
+        final byte[] third = randomDigest(32);
+
+        final ThumbprintSet set = ThumbprintSet.of(
+            List.of(
+                Thumbprint.of(first).value(),
+                HexFormat.of().formatHex(second),
+                HexFormat.ofDelimiter(":").withUpperCase().formatHex(third)
+            ),
+            32
+        );
+
+        assertThat(set.size()).isEqualTo(3);
+        assertThat(set.contains(first)).isTrue();
+        assertThat(set.contains(second)).isTrue();
+        assertThat(set.contains(third)).isTrue();
+        assertThat(set.contains(randomDigest(32))).isFalse();
+    }
+
+    @Test
+    void should_hold_many_thumbprints() {
+        final List<byte[]> digests = new ArrayList<>();
+        final List<String> thumbprints = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            final byte[] digest = randomDigest(32);
+            digests.add(digest);
+            thumbprints.add(Thumbprint.of(digest).value());
+        }
+
+        final ThumbprintSet set = ThumbprintSet.of(thumbprints, 32);
+
+        assertThat(set.size()).isEqualTo(50_000);
+        assertThat(digests).allMatch(set::contains);
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(set.contains(randomDigest(32))).isFalse();
+        }
+    }
+
+    @Test
+    void should_support_digests_not_aligned_on_longs() {
+        final byte[] digest = randomDigest(20);
+
+        final ThumbprintSet set = ThumbprintSet.of(List.of(HexFormat.of().formatHex(digest)), 20);
+
+        assertThat(set.contains(digest)).isTrue();
+        assertThat(set.contains(randomDigest(20))).isFalse();
+    }
+
+    @Test
+    void should_ignore_invalid_and_duplicated_thumbprints() {
+        final byte[] digest = randomDigest(32);
+
+        final ThumbprintSet set = ThumbprintSet.of(
+            List.of(
+                "not a thumbprint",
+                Thumbprint.of(randomDigest(20)).value(),
+                Thumbprint.of(digest).value(),
+                HexFormat.of().formatHex(digest)
+            ),
+            32
+        );
+
+        assertThat(set.size()).isEqualTo(1);
+        assertThat(set.contains(digest)).isTrue();
+    }
+
+    @Test
+    void should_not_contain_digest_of_another_length() {
+        final ThumbprintSet set = ThumbprintSet.of(List.of(Thumbprint.of(new byte[32]).value()), 32);
+
+        assertThat(set.contains(new byte[32])).isTrue();
+        assertThat(set.contains(new byte[20])).isFalse();
+    }
+
+    @Test
+    void should_be_empty() {
+        assertThat(ThumbprintSet.of(null, 32).isEmpty()).isTrue();
+        assertThat(ThumbprintSet.of(List.of(), 32).contains(randomDigest(32))).isFalse();
+    }
+
+    private byte[] randomDigest(int length) {
+        final byte[] digest = new byte[length];
+        random.nextBytes(digest);
+        return digest;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.chain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.policy.mtls.configuration.KeyUsage;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ChainValidatorTest {
+
+    private static final String CLIENT_AUTH = "1.3.6.1.5.5.7.3.2";
+    private static final String CODE_SIGNING = "1.3.6.1.5.5.7.3.3";
+
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+
+    @Test
+    void should_trust_chain_leading_to_trust_anchor() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+
+        assertThat(cut.isTrusted(chain("rsa-2048"))).isTrue();
+    }
+
+    @Test
+    void should_trust_chain_including_trust_anchor() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+
+        assertThat(
+            cut.isTrusted(new Certificate[] { load("rsa-2048-leaf"), load("rsa-2048-intermediate"), load("rsa-2048-root") })
+        ).isTrue();
+    }
+
+    @Test
+    void should_trust_chain_leading_to_any_anchor_of_the_bundle() {
+        final ChainValidator cut = validator(pem("ec-p256-root") + pem("rsa-4096-root"), -1, List.of(), List.of());
+
+        assertThat(cut.isTrusted(chain("ec-p256"))).isTrue();
+        assertThat(cut.isTrusted(chain("rsa-4096"))).isTrue();
+        assertThat(cut.isTrusted(chain("rsa-2048"))).isFalse();
+    }
+
+    @Test
+    void should_not_trust_incomplete_chain() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+
+        assertThat(cut.isTrusted(new Certificate[] { load("rsa-2048-leaf") })).isFalse();
+    }
+
+    @Test
+    void should_enforce_max_path_length() {
+        assertThat(validator(pem("rsa-2048-root"), 1, List.of(), List.of()).isTrusted(chain("rsa-2048"))).isTrue();
+        assertThat(validator(pem("rsa-2048-root"), 0, List.of(), List.of()).isTrusted(chain("rsa-2048"))).isFalse();
+        assertThat(validator(pem("rsa-2048-intermediate"), 0, List.of(), List.of()).isTrusted(chain("rsa-2048"))).isTrue();
+    }
+
+    @Test
+    void should_enforce_key_usages() {
+        assertThat(
+            validator(pem("rsa-2048-root"), -1, List.of(KeyUsage.DIGITAL_SIGNATURE), List.of(CLIENT_AUTH)).isTrusted(chain("rsa-2048"))
+        ).isTrue();
+        assertThat(validator(pem("rsa-2048-root"), -1, List.of(KeyUsage.KEY_CERT_SIGN), List.of()).isTrusted(chain("rsa-2048"))).isFalse();
+        assertThat(validator(pem("rsa-2048-root"), -1, List.of(), List.of(CODE_SIGNING)).isTrusted(chain("rsa-2048"))).isFalse();
+    }
+
+    @Test
+    void should_validate_each_distinct_chain_once() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cut.isTrusted(chain("rsa-2048"))).isTrue();
+        }
+
+        assertThat(cut.validationCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void should_tell_whether_chain_validation_is_cached() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+
+        assertThat(cut.isCached(chain("rsa-2048"))).isFalse();
+        cut.isTrusted(chain("rsa-2048"));
+
+        assertThat(cut.isCached(chain("rsa-2048"))).isTrue();
+        assertThat(cut.isCached(chain("ec-p256"))).isFalse();
+    }
+
+    @Test
+    void should_expire_successful_validation_at_earliest_not_after() {
+        final ChainValidator cut = validator(pem("rsa-2048-root"), -1, List.of(), List.of());
+        final Certificate[] chain = chain("rsa-2048");
+
+        final ChainValidator.Validation validation = cut.validate(chain);
+
+        assertThat(validation.valid()).isTrue();
+        assertThat(validation.expiresAt()).isEqualTo(
+            Math.min(((X509Certificate) chain[0]).getNotAfter().getTime(), ((X509Certificate) chain[1]).getNotAfter().getTime())
+        );
+    }
+
+    @Test
+    void should_cache_failed_validation_shortly() {
+        final ChainValidator cut = validator(pem("ec-p256-root"), -1, List.of(), List.of());
+
+        final ChainValidator.Validation validation = cut.validate(chain("rsa-2048"));
+
+        assertThat(validation.valid()).isFalse();
+        assertThat(validation.expiresAt()).isEqualTo(clock.get() + ChainValidator.FAILURE_CACHE_DURATION);
+    }
+
+    @Test
+    void should_validate_chains_concurrently() throws Exception {
+        final ChainValidator cut = validator(pem("rsa-2048-root") + pem("ec-p256-root"), -1, List.of(), List.of());
+        final Certificate[] trusted = chain("rsa-2048");
+        final Certificate[] otherTrusted = chain("ec-p256");
+        final Certificate[] untrusted = chain("rsa-4096");
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> outcomes = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                outcomes.add(
+                    executor.submit(() ->
+                        cut.validate(trusted).valid() && cut.validate(otherTrusted).valid() && !cut.validate(untrusted).valid()
+                    )
+                );
+            }
+
+            for (Future<Boolean> outcome : outcomes) {
+                assertThat(outcome.get(30, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_reject_invalid_trust_anchors() {
+        assertThatThrownBy(() -> new ChainValidator("not a certificate", -1, List.of(), List.of())).isInstanceOf(
+            IllegalArgumentException.class
+        );
+        assertThatThrownBy(() -> new ChainValidator("", -1, List.of(), List.of())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ChainValidator validator(String trustAnchors, int maxPathLength, List<KeyUsage> keyUsages, List<String> extendedKeyUsages) {
+        return new ChainValidator(trustAnchors, maxPathLength, keyUsages, extendedKeyUsages, clock::get);
+    }
+
+    private static Certificate[] chain(String keyType) {
+        return new Certificate[] { load(keyType + "-leaf"), load(keyType + "-intermediate") };
+    }
+
+    @SneakyThrows
+    private static String pem(String name) {
+        try (InputStream is = ChainValidatorTest.class.getResourceAsStream("/benchmark/" + name + ".pem")) {
+            return new String(is.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @SneakyThrows
+    private static X509Certificate load(String name) {
+        try (InputStream is = ChainValidatorTest.class.getResourceAsStream("/benchmark/" + name + ".pem")) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.expiry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.util.HashedWheelTimer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ExpiryWheelTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @AfterEach
+    void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    void should_notify_target_once_expired() throws Exception {
+        final ExpiryWheel cut = new ExpiryWheel(timer, clock::get, ExpiryWheel.HORIZON);
+        final CountDownLatch expired = new CountDownLatch(1);
+        final Object target = new Object();
+
+        cut.schedule(target, clock.get() - 1, t -> expired.countDown());
+
+        assertThat(expired.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void should_reschedule_expiry_beyond_horizon() throws Exception {
+        final ExpiryWheel cut = new ExpiryWheel(timer, clock::get, 20);
+        final AtomicInteger notifications = new AtomicInteger();
+        final CountDownLatch expired = new CountDownLatch(1);
+        final Object target = new Object();
+
+        cut.schedule(target, clock.get() + TimeUnit.DAYS.toMillis(365), t -> {
+            notifications.incrementAndGet();
+            expired.countDown();
+        });
+
+        assertThat(expired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        clock.addAndGet(TimeUnit.DAYS.toMillis(366));
+        assertThat(expired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(notifications.get()).isEqualTo(1);
+    }
+}
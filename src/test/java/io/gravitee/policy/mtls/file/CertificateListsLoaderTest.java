@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gravitee.policy.mtls.certificate.ThumbprintDigester;
+import io.gravitee.policy.mtls.certificate.Thumbprints;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import io.gravitee.policy.mtls.configuration.ThumbprintAlgorithm;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateListsLoaderTest {
+
+    private static final Set<ThumbprintAlgorithm> ALGORITHMS = EnumSet.of(ThumbprintAlgorithm.SHA_256);
+    private static final ThumbprintDigester DIGESTER = new ThumbprintDigester(ALGORITHMS);
+    private static final String OTHER_THUMBPRINT = "00".repeat(32);
+
+    @TempDir
+    Path directory;
+
+    private MtlsPolicyConfiguration configuration;
+    private Thumbprints clientThumbprints;
+    private Thumbprints otherThumbprints;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        configuration = new MtlsPolicyConfiguration();
+        clientThumbprints = DIGESTER.digest(certificate("client.cer"));
+        otherThumbprints = DIGESTER.digest(certificate("ca.pem"));
+    }
+
+    @Test
+    void should_merge_inline_thumbprints_with_the_ones_of_the_file() throws Exception {
+        final Path file = directory.resolve("denied.txt");
+        Files.writeString(file, "# revoked clients\n\n" + clientThumbprints.get(ThumbprintAlgorithm.SHA_256).value() + "\n");
+        configuration.setDeniedThumbprintsFile(file.toString());
+        configuration.setDeniedThumbprints(List.of(otherThumbprints.get(ThumbprintAlgorithm.SHA_256).value()));
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.deniedThumbprints().contains(clientThumbprints)).isTrue();
+        assertThat(lists.deniedThumbprints().contains(otherThumbprints)).isTrue();
+        assertThat(lists.allowListEnabled()).isFalse();
+    }
+
+    @Test
+    void should_digest_pem_certificates_of_the_file() throws Exception {
+        final Path file = directory.resolve("allowed.pem");
+        Files.writeString(file, OTHER_THUMBPRINT + "\n" + resource("client.cer"));
+        configuration.setAllowedThumbprintsFile(file.toString());
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.allowListEnabled()).isTrue();
+        assertThat(lists.allowedThumbprints().contains(clientThumbprints)).isTrue();
+        assertThat(lists.allowedThumbprints().contains(otherThumbprints)).isFalse();
+    }
+
+    @Test
+    void should_load_large_files() throws Exception {
+        final Path file = directory.resolve("allowed.txt");
+        Files.write(file, IntStream.range(0, 100_000).mapToObj(i -> String.format("%064x", i)).toList());
+        Files.writeString(file, clientThumbprints.get(ThumbprintAlgorithm.SHA_256).value() + "\n", StandardOpenOption.APPEND);
+        configuration.setAllowedThumbprintsFile(file.toString());
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.allowedThumbprints().contains(clientThumbprints)).isTrue();
+        assertThat(lists.allowedThumbprints().contains(otherThumbprints)).isFalse();
+    }
+
+    @Test
+    void should_keep_allow_list_enabled_when_file_is_unreadable() {
+        configuration.setAllowedThumbprintsFile(directory.resolve("missing.txt").toString());
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.allowListEnabled()).isTrue();
+        assertThat(lists.allowedThumbprints().contains(clientThumbprints)).isFalse();
+    }
+
+    @Test
+    void should_replace_lists_on_reload() throws Exception {
+        final Path file = directory.resolve("denied.txt");
+        Files.writeString(file, OTHER_THUMBPRINT + "\n");
+        configuration.setDeniedThumbprintsFile(file.toString());
+        final CertificateListsLoader loader = loader();
+        final CertificateLists initial = loader.load();
+
+        Files.writeString(file, clientThumbprints.get(ThumbprintAlgorithm.SHA_256).value() + "\n");
+        final CertificateLists reloaded = loader.reload(initial, file);
+
+        assertThat(initial.deniedThumbprints().contains(clientThumbprints)).isFalse();
+        assertThat(reloaded.deniedThumbprints().contains(clientThumbprints)).isTrue();
+    }
+
+    @Test
+    void should_keep_previous_lists_when_reload_fails() throws Exception {
+        final Path file = directory.resolve("denied.txt");
+        Files.writeString(file, clientThumbprints.get(ThumbprintAlgorithm.SHA_256).value() + "\n");
+        configuration.setDeniedThumbprintsFile(file.toString());
+        final CertificateListsLoader loader = loader();
+        final CertificateLists initial = loader.load();
+
+        Files.writeString(file, "-----BEGIN CERTIFICATE-----\nnot a certificate\n");
+
+        assertThat(loader.reload(initial, file)).isSameAs(initial);
+    }
+
+    @Test
+    void should_load_trust_anchors_from_file() throws Exception {
+        final Path file = directory.resolve("anchors.pem");
+        Files.writeString(file, resource("ca.pem"));
+        configuration.setTrustAnchorsFile(file.toString());
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.chainValidationRequired()).isTrue();
+        assertThat(lists.chainValidator()).isNotNull();
+    }
+
+    @Test
+    void should_require_chain_validation_when_trust_anchors_file_is_unreadable() {
+        configuration.setTrustAnchorsFile(directory.resolve("missing.pem").toString());
+
+        final CertificateLists lists = loader().load();
+
+        assertThat(lists.chainValidationRequired()).isTrue();
+        assertThat(lists.chainValidator()).isNull();
+    }
+
+    private CertificateListsLoader loader() {
+        return new CertificateListsLoader(configuration, ALGORITHMS, DIGESTER, ThumbprintAlgorithm.SHA_256);
+    }
+
+    private static String resource(String name) throws Exception {
+        try (InputStream is = Objects.requireNonNull(CertificateListsLoaderTest.class.getClassLoader().getResourceAsStream(name))) {
+            return new String(is.readAllBytes());
+        }
+    }
+
+    private static X509Certificate certificate(String name) throws Exception {
+        try (InputStream is = Objects.requireNonNull(CertificateListsLoaderTest.class.getClassLoader().getResourceAsStream(name))) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class FileWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_detect_added_modified_and_removed_files() throws Exception {
+        final Path file = directory.resolve("file.txt");
+        final var empty = FileWatcher.snapshot(directory);
+
+        Files.writeString(file, "content");
+        final var added = FileWatcher.snapshot(directory);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        final var modified = FileWatcher.snapshot(directory);
+        Files.delete(file);
+
+        assertThat(added).isNotEqualTo(empty);
+        assertThat(modified).isNotEqualTo(added);
+        assertThat(FileWatcher.snapshot(directory)).isEqualTo(empty);
+    }
+
+    @Test
+    void should_notify_target_on_change() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ScheduledFuture<?> watch = FileWatcher.watch(latch, directory, Duration.ofMillis(10), (target, path) -> target.countDown());
+
+        Files.writeString(directory.resolve("file.txt"), "content");
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        watch.cancel(false);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.forwarded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class ForwardedCertificateParserTest {
+
+    private static X509Certificate certificate;
+    private static String pem;
+
+    private final ForwardedCertificateParser cut = new ForwardedCertificateParser();
+
+    @BeforeAll
+    static void loadCertificate() throws Exception {
+        try (InputStream is = ForwardedCertificateParserTest.class.getResourceAsStream("/benchmark/rsa-2048-leaf.pem")) {
+            pem = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+            new ByteArrayInputStream(pem.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    void should_parse_pem_certificate() {
+        assertThat(cut.parse(pem)).containsExactly(certificate);
+    }
+
+    @Test
+    void should_parse_url_encoded_pem_certificate() {
+        assertThat(cut.parse(URLEncoder.encode(pem, StandardCharsets.UTF_8))).containsExactly(certificate);
+    }
+
+    @Test
+    void should_parse_percent_encoded_pem_certificate_with_literal_plus() {
+        final String encoded = pem.replace(" ", "%20").replace("\n", "%0A").replace("/", "%2F").replace("=", "%3D");
+
+        assertThat(encoded).contains("+");
+        assertThat(cut.parse(encoded)).containsExactly(certificate);
+    }
+
+    @Test
+    void should_parse_pem_certificate_folded_with_tabs() {
+        assertThat(cut.parse(pem.strip().replace("\n", "\n\t"))).containsExactly(certificate);
+    }
+
+    @Test
+    void should_parse_rfc_9440_byte_sequence() throws Exception {
+        assertThat(cut.parse(":" + Base64.getEncoder().encodeToString(certificate.getEncoded()) + ":")).containsExactly(certificate);
+    }
+
+    @Test
+    void should_parse_base64_der_certificate() throws Exception {
+        assertThat(cut.parse(Base64.getEncoder().encodeToString(certificate.getEncoded()))).containsExactly(certificate);
+    }
+
+    @Test
+    void should_return_same_certificate_instance_for_same_header_value() {
+        final Certificate[] first = cut.parse(pem);
+        final Certificate[] second = cut.parse(new String(pem.toCharArray()));
+
+        assertThat(second).isSameAs(first);
+        assertThat(second[0]).isSameAs(first[0]);
+    }
+
+    @Test
+    void should_not_parse_invalid_values() {
+        assertThat(cut.parse("not a certificate")).isNull();
+        assertThat(cut.parse(":bm90IGEgY2VydGlmaWNhdGU=:")).isNull();
+        assertThat(cut.parse(pem.substring(0, pem.indexOf("-----END")))).isNull();
+    }
+
+    @Test
+    void should_not_parse_too_long_values() {
+        assertThat(cut.parse(pem + " ".repeat(ForwardedCertificateParser.MAX_HEADER_LENGTH))).isNull();
+    }
+}
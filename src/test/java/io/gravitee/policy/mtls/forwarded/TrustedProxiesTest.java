@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.forwarded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class TrustedProxiesTest {
+
+    @Test
+    void should_refuse_to_trust_any_peer() {
+        assertThatThrownBy(() -> TrustedProxies.of(List.of())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TrustedProxies.of(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_match_ipv4_addresses_and_blocks() {
+        final TrustedProxies cut = TrustedProxies.of(List.of("10.0.0.0/8", "192.168.1.5", "172.16.0.0/12"));
+
+        assertThat(cut.isTrusted("10.1.2.3")).isTrue();
+        assertThat(cut.isTrusted("192.168.1.5")).isTrue();
+        assertThat(cut.isTrusted("172.31.255.255")).isTrue();
+        assertThat(cut.isTrusted("172.32.0.1")).isFalse();
+        assertThat(cut.isTrusted("192.168.1.6")).isFalse();
+        assertThat(cut.isTrusted("11.0.0.1")).isFalse();
+        assertThat(cut.isTrusted("::ffff:10.0.0.1")).isTrue();
+        assertThat(cut.isTrusted(null)).isFalse();
+    }
+
+    @Test
+    void should_match_ipv6_addresses_and_blocks() {
+        final TrustedProxies cut = TrustedProxies.of(List.of("fd00::/8", "2001:db8::1", "2001:db8:1::/49"));
+
+        assertThat(cut.isTrusted("fd12:3456::1")).isTrue();
+        assertThat(cut.isTrusted("[2001:db8::1]")).isTrue();
+        assertThat(cut.isTrusted("2001:db8:1:7fff::1")).isTrue();
+        assertThat(cut.isTrusted("2001:db8:1:8000::1")).isFalse();
+        assertThat(cut.isTrusted("2001:db8::2")).isFalse();
+        assertThat(cut.isTrusted("10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void should_never_resolve_host_names() {
+        final TrustedProxies cut = TrustedProxies.of(List.of("127.0.0.1"));
+
+        assertThat(cut.isTrusted("localhost")).isFalse();
+    }
+
+    @Test
+    void should_reject_invalid_entries() {
+        assertThatThrownBy(() -> TrustedProxies.of(List.of("10.0.0.0/33"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TrustedProxies.of(List.of("fd00::/129"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TrustedProxies.of(List.of("gateway.example.com"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TrustedProxies.of(List.of("10.0.0.0/x"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_parse_ipv4_addresses() {
+        assertThat(TrustedProxies.parseIpv4("255.255.255.255")).isEqualTo(0xFFFFFFFFL);
+        assertThat(TrustedProxies.parseIpv4("1.2.3.4")).isEqualTo(0x01020304L);
+        assertThat(TrustedProxies.parseIpv4("1.2.3")).isEqualTo(-1);
+        assertThat(TrustedProxies.parseIpv4("1.2.3.256")).isEqualTo(-1);
+        assertThat(TrustedProxies.parseIpv4("1..2.3")).isEqualTo(-1);
+        assertThat(TrustedProxies.parseIpv4("1.2.3.4.")).isEqualTo(-1);
+    }
+}
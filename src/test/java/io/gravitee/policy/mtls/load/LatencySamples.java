@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.load;
+
+import io.gravitee.common.http.HttpStatusCode;
+import java.util.Arrays;
+
+/**
+ * Latencies of the successful requests of a single client, which has at most one request in flight, hence no
+ * synchronization.
+ *
+ * @author GraviteeSource Team
+ */
+class LatencySamples {
+
+    private long[] latencies = new long[1024];
+    private int size;
+    private long errors;
+
+    void record(int status, long latencyNanos) {
+        if (status != HttpStatusCode.OK_200) {
+            errors++;
+            return;
+        }
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latencyNanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    void copyTo(long[] destination, int offset) {
+        System.arraycopy(latencies, 0, destination, offset, size);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.load;
+
+import io.gravitee.policy.mtls.load.TestCertificateAuthority.IssuedCertificate;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.rxjava3.core.Vertx;
+import io.vertx.rxjava3.core.http.HttpClient;
+import io.vertx.rxjava3.core.http.HttpClientRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Drives a closed-loop load against a local gateway: each client, with its own client certificate and connection, sends
+ * a request as soon as it has received the response to the previous one.
+ *
+ * @author GraviteeSource Team
+ */
+public class LoadDriver {
+
+    /**
+     * How the clients connect to the gateway.
+     */
+    public enum Mode {
+        /**
+         * One HTTP/1.1 connection per client, reused for all its requests.
+         */
+        HTTP_1_1_KEEP_ALIVE,
+        /**
+         * One HTTP/2 connection per client, negotiated with ALPN.
+         */
+        HTTP_2,
+        /**
+         * A new HTTP/1.1 connection for each request, so a TLS handshake per request. The clients keep their TLS
+         * session cache, so handshakes can resume sessions as real clients do.
+         */
+        FRESH_CONNECTION,
+    }
+
+    private static final PoolOptions SINGLE_CONNECTION = new PoolOptions().setHttp1MaxSize(1).setHttp2MaxSize(1);
+
+    private final Vertx vertx;
+    private final int port;
+    private final List<IssuedCertificate> certificates;
+
+    public LoadDriver(Vertx vertx, int port, List<IssuedCertificate> certificates) {
+        this.vertx = vertx;
+        this.port = port;
+        this.certificates = certificates;
+    }
+
+    /**
+     * Sends requests to the path with one client per certificate, during the warmup then during the measured duration.
+     */
+    public LoadResult run(Mode mode, String path, Duration warmup, Duration duration) {
+        final List<HttpClient> clients = certificates
+            .stream()
+            .map(certificate -> vertx.createHttpClient(options(mode, certificate), SINGLE_CONNECTION))
+            .toList();
+        try {
+            final long warmupDeadline = System.nanoTime() + warmup.toNanos();
+            Completable.merge(
+                clients.stream().map(client -> loop(client, path, warmupDeadline, new LatencySamples())).toList()
+            ).blockingAwait();
+
+            final List<LatencySamples> samples = clients.stream().map(client -> new LatencySamples()).toList();
+            final long start = System.nanoTime();
+            final long deadline = start + duration.toNanos();
+            Completable.merge(
+                IntStream.range(0, clients.size()).mapToObj(i -> loop(clients.get(i), path, deadline, samples.get(i))).toList()
+            ).blockingAwait();
+            return LoadResult.of(mode, path, System.nanoTime() - start, samples);
+        } finally {
+            Completable.merge(clients.stream().map(HttpClient::rxClose).toList()).onErrorComplete().blockingAwait();
+        }
+    }
+
+    private static Completable loop(HttpClient client, String path, long deadline, LatencySamples samples) {
+        return Single.defer(() -> {
+            final long start = System.nanoTime();
+            return client
+                .rxRequest(HttpMethod.GET, path)
+                .flatMap(HttpClientRequest::rxSend)
+                .flatMap(response -> response.body().map(body -> response.statusCode()))
+                .doOnSuccess(status -> samples.record(status, System.nanoTime() - start));
+        })
+            .ignoreElement()
+            .onErrorComplete(error -> {
+                samples.recordError();
+                return true;
+            })
+            .repeatUntil(() -> System.nanoTime() >= deadline);
+    }
+
+    private HttpClientOptions options(Mode mode, IssuedCertificate certificate) {
+        final HttpClientOptions options = new HttpClientOptions()
+            .setSsl(true)
+            .setTrustAll(true)
+            .setDefaultPort(port)
+            .setDefaultHost("localhost")
+            .setKeyCertOptions(
+                new PemKeyCertOptions()
+                    .setCertValue(Buffer.buffer(certificate.certificatePem()))
+                    .setKeyValue(Buffer.buffer(certificate.privateKeyPem()))
+            );
+        return switch (mode) {
+            case HTTP_1_1_KEEP_ALIVE -> options.setKeepAlive(true);
+            case HTTP_2 -> options.setProtocolVersion(HttpVersion.HTTP_2).setUseAlpn(true);
+            case FRESH_CONNECTION -> options.setKeepAlive(false);
+        };
+    }
+}
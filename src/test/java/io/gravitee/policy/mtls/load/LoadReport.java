@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.load;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares, for each connection mode, the runs against the API without the policy and the API with it, so that the
+ * overhead is the one of the policy alone: both runs present the same client certificates over the same TLS stack.
+ * <p>
+ * The report is rendered as a table for the test log, and written as JSON so that it can be compared from one release to the next.
+ *
+ * @author GraviteeSource Team
+ */
+public class LoadReport {
+
+    private static final String ROW_FORMAT = "%-20s %-9s %12s %12s %12s %12s %8s%n";
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private final int clients;
+    private final Duration duration;
+    private final List<Comparison> comparisons = new ArrayList<>();
+
+    public LoadReport(int clients, Duration duration) {
+        this.clients = clients;
+        this.duration = duration;
+    }
+
+    public void add(LoadResult baseline, LoadResult policy) {
+        comparisons.add(new Comparison(baseline, policy));
+    }
+
+    public List<LoadResult> results() {
+        return comparisons.stream().flatMap(comparison -> List.of(comparison.baseline(), comparison.policy()).stream()).toList();
+    }
+
+    /**
+     * @return the report as a table, one row per run and an overhead row per connection mode.
+     */
+    public String table() {
+        final StringBuilder table = new StringBuilder();
+        table.append(String.format("mTLS policy overhead, %d clients, %d s per run, latencies in us%n", clients, duration.toSeconds()));
+        table.append(String.format(ROW_FORMAT, "mode", "api", "req/s", "p50", "p99", "p99.9", "errors"));
+        for (Comparison comparison : comparisons) {
+            appendRow(table, "baseline", comparison.baseline());
+            appendRow(table, "mtls", comparison.policy());
+            table.append(
+                String.format(
+                    ROW_FORMAT,
+                    comparison.baseline().mode(),
+                    "overhead",
+                    String.format("%+.1f%%", comparison.throughputChange() * 100),
+                    String.format("%+.0f", comparison.latencyOverhead(QUANTILES[0])),
+                    String.format("%+.0f", comparison.latencyOverhead(QUANTILES[1])),
+                    String.format("%+.0f", comparison.latencyOverhead(QUANTILES[2])),
+                    ""
+                )
+            );
+        }
+        return table.toString();
+    }
+
+    private static void appendRow(StringBuilder table, String api, LoadResult result) {
+        table.append(
+            String.format(
+                ROW_FORMAT,
+                result.mode(),
+                api,
+                String.format("%.0f", result.throughput()),
+                String.format("%.0f", result.percentile(QUANTILES[0])),
+                String.format("%.0f", result.percentile(QUANTILES[1])),
+                String.format("%.0f", result.percentile(QUANTILES[2])),
+                result.errors()
+            )
+        );
+    }
+
+    public void write(Path file) throws IOException {
+        final JsonArray results = new JsonArray();
+        for (Comparison comparison : comparisons) {
+            results.add(
+                new JsonObject()
+                    .put("mode", comparison.baseline().mode().name())
+                    .put("baseline", comparison.baseline().toJson())
+                    .put("policy", comparison.policy().toJson())
+                    .put(
+                        "overhead",
+                        new JsonObject()
+                            .put("throughput", comparison.throughputChange())
+                            .put("p50", comparison.latencyOverhead(QUANTILES[0]))
+                            .put("p99", comparison.latencyOverhead(QUANTILES[1]))
+                            .put("p999", comparison.latencyOverhead(QUANTILES[2]))
+                    )
+            );
+        }
+        final JsonObject report = new JsonObject().put("clients", clients).put("duration", duration.toSeconds()).put("results", results);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, report.encodePrettily(), StandardCharsets.UTF_8);
+    }
+
+    private record Comparison(LoadResult baseline, LoadResult policy) {
+        /**
+         * @return the relative change of throughput with the policy, negative when the policy slows the API down.
+         */
+        double throughputChange() {
+            return policy.throughput() / baseline.throughput() - 1;
+        }
+
+        /**
+         * @return the latency, in microseconds, the policy adds at the given quantile.
+         */
+        double latencyOverhead(double quantile) {
+            return policy.percentile(quantile) - baseline.percentile(quantile);
+        }
+    }
+}
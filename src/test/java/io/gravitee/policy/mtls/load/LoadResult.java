@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.load;
+
+import io.vertx.core.json.JsonObject;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Throughput and latency distribution of a load run.
+ *
+ * @param latencies the latencies, in nanoseconds, of the successful requests, sorted.
+ * @author GraviteeSource Team
+ */
+public record LoadResult(LoadDriver.Mode mode, String path, long errors, long elapsedNanos, long[] latencies) {
+    static LoadResult of(LoadDriver.Mode mode, String path, long elapsedNanos, List<LatencySamples> samples) {
+        final long[] latencies = new long[samples.stream().mapToInt(LatencySamples::size).sum()];
+        int offset = 0;
+        for (LatencySamples clientSamples : samples) {
+            clientSamples.copyTo(latencies, offset);
+            offset += clientSamples.size();
+        }
+        Arrays.sort(latencies);
+        return new LoadResult(mode, path, samples.stream().mapToLong(LatencySamples::errors).sum(), elapsedNanos, latencies);
+    }
+
+    public long requests() {
+        return latencies.length;
+    }
+
+    /**
+     * @return the number of successful requests per second.
+     */
+    public double throughput() {
+        return latencies.length * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the latency, in microseconds, below which the given fraction of the successful requests completed.
+     */
+    public double percentile(double quantile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        final int index = Math.max(0, (int) Math.ceil(quantile * latencies.length) - 1);
+        return latencies[index] / 1e3;
+    }
+
+    JsonObject toJson() {
+        return new JsonObject()
+            .put("requests", requests())
+            .put("errors", errors)
+            .put("throughput", throughput())
+            .put("p50", percentile(0.5))
+            .put("p99", percentile(0.99))
+            .put("p999", percentile(0.999));
+    }
+}
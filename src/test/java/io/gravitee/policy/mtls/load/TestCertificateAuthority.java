@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.load;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+/**
+ * Certificate authority issuing as many distinct P-256 client certificates as a load test needs, with the JDK only.
+ * <p>
+ * The certificates are DER encoded by hand: a CA certificate with the basic constraints extension, and client
+ * certificates without extensions, which is all the TLS stacks of the gateway require.
+ *
+ * @author GraviteeSource Team
+ */
+public class TestCertificateAuthority {
+
+    private static final byte[] ECDSA_WITH_SHA256 = { 0x06, 0x08, 0x2a, (byte) 0x86, 0x48, (byte) 0xce, 0x3d, 0x04, 0x03, 0x02 };
+    private static final byte[] COMMON_NAME = { 0x06, 0x03, 0x55, 0x04, 0x03 };
+    private static final byte[] BASIC_CONSTRAINTS = { 0x06, 0x03, 0x55, 0x1d, 0x13 };
+    private static final byte[] TRUE = { 0x01, 0x01, (byte) 0xff };
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final Duration VALIDITY = Duration.ofDays(1);
+
+    private final KeyPairGenerator keyPairGenerator;
+    private final KeyPair keyPair;
+    private final byte[] name;
+    private final AtomicLong serial = new AtomicLong(1);
+
+    @Getter
+    private final String certificatePem;
+
+    @SneakyThrows
+    public TestCertificateAuthority(String commonName) {
+        this.keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        this.keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        this.keyPair = keyPairGenerator.generateKeyPair();
+        this.name = name(commonName);
+        final byte[] basicConstraints = der(0x30, BASIC_CONSTRAINTS, TRUE, der(0x04, der(0x30, TRUE)));
+        this.certificatePem = pem("CERTIFICATE", sign(name, keyPair, der(0xa3, der(0x30, basicConstraints))));
+    }
+
+    /**
+     * @return a new client certificate, issued by this authority, and its private key.
+     */
+    @SneakyThrows
+    public IssuedCertificate issue(String commonName) {
+        final KeyPair clientKeyPair = keyPairGenerator.generateKeyPair();
+        return new IssuedCertificate(
+            pem("CERTIFICATE", sign(name(commonName), clientKeyPair, new byte[0])),
+            pem("PRIVATE KEY", clientKeyPair.getPrivate().getEncoded())
+        );
+    }
+
+    private byte[] sign(byte[] subject, KeyPair subjectKeyPair, byte[] extensions) throws GeneralSecurityException {
+        final Instant now = Instant.now();
+        final byte[] tbsCertificate = der(
+            0x30,
+            der(0xa0, der(0x02, new byte[] { 0x02 })),
+            der(0x02, BigInteger.valueOf(serial.getAndIncrement()).toByteArray()),
+            der(0x30, ECDSA_WITH_SHA256),
+            name,
+            der(0x30, utcTime(now.minus(Duration.ofMinutes(5))), utcTime(now.plus(VALIDITY))),
+            subject,
+            subjectKeyPair.getPublic().getEncoded(),
+            extensions
+        );
+        final Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(tbsCertificate);
+        final byte[] signatureValue = signature.sign();
+        final byte[] bitString = new byte[signatureValue.length + 1];
+        System.arraycopy(signatureValue, 0, bitString, 1, signatureValue.length);
+        return der(0x30, tbsCertificate, der(0x30, ECDSA_WITH_SHA256), der(0x03, bitString));
+    }
+
+    private static byte[] name(String commonName) {
+        return der(0x30, der(0x31, der(0x30, COMMON_NAME, der(0x0c, commonName.getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private static byte[] utcTime(Instant instant) {
+        return der(0x17, UTC_TIME.format(instant).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] der(int tag, byte[]... contents) {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] bytes : contents) {
+            content.writeBytes(bytes);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(content.size() + 4);
+        out.write(tag);
+        if (content.size() < 0x80) {
+            out.write(content.size());
+        } else {
+            final byte[] length = BigInteger.valueOf(content.size()).toByteArray();
+            final int offset = length[0] == 0 ? 1 : 0;
+            out.write(0x80 | (length.length - offset));
+            out.write(length, offset, length.length - offset);
+        }
+        out.writeBytes(content.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static String pem(String type, byte[] der) {
+        return (
+            "-----BEGIN " +
+            type +
+            "-----\n" +
+            Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der) +
+            "\n-----END " +
+            type +
+            "-----\n"
+        );
+    }
+
+    public record IssuedCertificate(String certificatePem, String privateKeyPem) {}
+}
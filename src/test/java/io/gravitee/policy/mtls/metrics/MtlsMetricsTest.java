@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class MtlsMetricsTest {
+
+    private static final String CLIENT_CERTIFICATE_MISSING = "CLIENT_CERTIFICATE_MISSING";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MtlsMetrics cut = MtlsMetrics.of(registry, List.of(CLIENT_CERTIFICATE_MISSING));
+
+    @Test
+    void should_count_decisions_by_protocol_and_outcome() {
+        cut.decision(MtlsMetrics.Protocol.HTTP, MtlsMetrics.SUCCESS);
+        cut.decision(MtlsMetrics.Protocol.HTTP, CLIENT_CERTIFICATE_MISSING);
+        cut.decision(MtlsMetrics.Protocol.KAFKA, CLIENT_CERTIFICATE_MISSING);
+        cut.decision(MtlsMetrics.Protocol.KAFKA, CLIENT_CERTIFICATE_MISSING);
+
+        assertThat(decisions("http", MtlsMetrics.SUCCESS)).isEqualTo(1);
+        assertThat(decisions("http", CLIENT_CERTIFICATE_MISSING)).isEqualTo(1);
+        assertThat(decisions("kafka", MtlsMetrics.SUCCESS)).isZero();
+        assertThat(decisions("kafka", CLIENT_CERTIFICATE_MISSING)).isEqualTo(2);
+    }
+
+    @Test
+    void should_ignore_unknown_outcomes() {
+        cut.decision(MtlsMetrics.Protocol.HTTP, "UNKNOWN_KEY");
+
+        assertThat(registry.get(MtlsMetrics.DECISIONS).counters()).allMatch(counter -> counter.count() == 0);
+    }
+
+    @Test
+    void should_record_phase_durations() {
+        cut.phase(MtlsMetrics.Protocol.KAFKA, MtlsMetrics.Phase.AUTHENTICATE, System.nanoTime());
+
+        assertThat(
+            registry.get(MtlsMetrics.PHASE_DURATION).tag("protocol", "kafka").tag("phase", "authenticate").timer().count()
+        ).isEqualTo(1);
+        assertThat(registry.get(MtlsMetrics.PHASE_DURATION).tag("protocol", "http").tag("phase", "onRequest").timer().count()).isZero();
+    }
+
+    @Test
+    void should_expose_cache_statistics() {
+        final FunctionCounter hits = registry
+            .get(MtlsMetrics.CACHE_REQUESTS)
+            .tag("cache", CacheStatistics.THUMBPRINT)
+            .tag("result", "hit")
+            .functionCounter();
+        final double before = hits.count();
+
+        CacheStatistics.counter(CacheStatistics.THUMBPRINT).recordHits(3);
+
+        assertThat(hits.count()).isEqualTo(before + 3);
+        assertThat(registry.get(MtlsMetrics.CACHE_HIT_RATIO).tag("cache", CacheStatistics.THUMBPRINT).gauge().value()).isPositive();
+    }
+
+    @Test
+    void should_share_meters_between_policy_instances() {
+        assertThat(MtlsMetrics.of(registry, List.of(CLIENT_CERTIFICATE_MISSING))).isSameAs(cut);
+    }
+
+    private double decisions(String protocol, String outcome) {
+        return registry.get(MtlsMetrics.DECISIONS).tag("protocol", protocol).tag("outcome", outcome).counter().count();
+    }
+}
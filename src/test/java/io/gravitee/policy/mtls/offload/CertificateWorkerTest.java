@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateWorkerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CertificateWorker cut = new CertificateWorker(1, 1, clock::get);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        cut.shutdown();
+    }
+
+    @Test
+    void should_run_task_off_the_caller_thread() throws Exception {
+        final Thread caller = Thread.currentThread();
+
+        final CompletableFuture<Thread> future = cut.submit(Thread::currentThread);
+
+        assertThat(future.get(5, TimeUnit.SECONDS)).isNotSameAs(caller);
+        assertThat(future.get().getName()).startsWith("gravitee-mtls-worker");
+    }
+
+    @Test
+    void should_refuse_tasks_when_queue_is_full() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CompletableFuture<Boolean> blocking = cut.submit(() -> {
+            running.countDown();
+            return await(release);
+        });
+        running.await(5, TimeUnit.SECONDS);
+        final CompletableFuture<Boolean> queued = cut.submit(() -> true);
+
+        assertThat(cut.submit(() -> true)).isNull();
+        assertThat(cut.rejected()).isEqualTo(1);
+        assertThat(cut.queueDepth()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void should_record_time_waited_in_queue() throws Exception {
+        final CompletableFuture<Boolean> blocking = cut.submit(() -> await(release));
+        final CompletableFuture<Boolean> queued = cut.submit(() -> true);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+
+        release.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+
+        assertThat(cut.started()).isEqualTo(2);
+        assertThat(cut.waitNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void should_complete_exceptionally_when_task_fails() {
+        final CompletableFuture<Object> future = cut.submit(() -> {
+            throw new IllegalStateException("Broken certificate");
+        });
+
+        assertThat(future).failsWithin(5, TimeUnit.SECONDS).withThrowableOfType(ExecutionException.class);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
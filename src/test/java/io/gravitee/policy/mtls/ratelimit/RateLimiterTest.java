@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    @Test
+    void should_allow_burst_then_reject() {
+        final RateLimiter cut = new RateLimiter(10, 5, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cut.tryAcquire("client")).isTrue();
+        }
+        assertThat(cut.tryAcquire("client")).isFalse();
+    }
+
+    @Test
+    void should_refill_at_sustained_rate() {
+        final RateLimiter cut = new RateLimiter(10, 1, clock::get);
+
+        assertThat(cut.tryAcquire("client")).isTrue();
+        assertThat(cut.tryAcquire("client")).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+        assertThat(cut.tryAcquire("client")).isFalse();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(cut.tryAcquire("client")).isTrue();
+    }
+
+    @Test
+    void should_limit_each_client_separately() {
+        final RateLimiter cut = new RateLimiter(1, 1, clock::get);
+
+        assertThat(cut.tryAcquire("first")).isTrue();
+        assertThat(cut.tryAcquire("first")).isFalse();
+        assertThat(cut.tryAcquire("second")).isTrue();
+    }
+
+    @Test
+    void should_evict_idle_buckets() {
+        final RateLimiter cut = new RateLimiter(10, 5, clock::get);
+        cut.tryAcquire("first");
+        cut.tryAcquire("second");
+        assertThat(cut.size()).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(cut.size()).isZero();
+    }
+
+    @Test
+    void should_reject_invalid_limits() {
+        assertThatThrownBy(() -> new RateLimiter(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimiter(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
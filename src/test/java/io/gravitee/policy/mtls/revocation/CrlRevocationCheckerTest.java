@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CrlRevocationCheckerTest {
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_detect_revoked_certificate_from_der_crl() throws Exception {
+        Files.write(directory.resolve("intermediate.crl"), resource("/crl/rsa-2048-intermediate.crl"));
+
+        final CrlRevocationChecker checker = new CrlRevocationChecker(directory, REFRESH_INTERVAL);
+
+        assertThat(checker.size()).isEqualTo(3);
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isTrue();
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-intermediate.pem"))).isFalse();
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-4096-leaf.pem"))).isFalse();
+    }
+
+    @Test
+    void should_detect_revoked_certificate_from_pem_crl() throws Exception {
+        Files.writeString(
+            directory.resolve("intermediate.pem"),
+            "-----BEGIN X509 CRL-----\n" +
+            Base64.getMimeEncoder().encodeToString(resource("/crl/rsa-2048-intermediate.crl")) +
+            "\n-----END X509 CRL-----\n"
+        );
+
+        final CrlRevocationChecker checker = new CrlRevocationChecker(directory, REFRESH_INTERVAL);
+
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isTrue();
+    }
+
+    @Test
+    void should_index_the_same_serial_numbers_as_the_jdk() throws Exception {
+        final byte[] encoded = resource("/crl/rsa-2048-intermediate.crl");
+        Files.write(directory.resolve("intermediate.crl"), encoded);
+        final X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(new ByteArrayInputStream(encoded));
+
+        final CrlIndex index = CrlIndexBuilder.build(directory);
+
+        assertThat(index.size()).isEqualTo(crl.getRevokedCertificates().size());
+        final RevocationKey leafKey = RevocationKey.of(loadCertificate("/benchmark/rsa-2048-leaf.pem"));
+        for (X509CRLEntry entry : crl.getRevokedCertificates()) {
+            final byte[] serial = RevocationKey.serial(entry.getSerialNumber().toByteArray());
+            assertThat(index.isRevoked(new RevocationKey(leafKey.issuerHigh(), leafKey.issuerLow(), serial))).isTrue();
+        }
+        assertThat(index.isRevoked(RevocationKey.of(loadCertificate("/benchmark/rsa-2048-intermediate.pem")))).isFalse();
+    }
+
+    @Test
+    void should_ignore_invalid_files() throws Exception {
+        Files.writeString(directory.resolve("README"), "not a CRL");
+        Files.write(directory.resolve("intermediate.crl"), resource("/crl/rsa-2048-intermediate.crl"));
+
+        final CrlRevocationChecker checker = new CrlRevocationChecker(directory, REFRESH_INTERVAL);
+
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isTrue();
+    }
+
+    @Test
+    void should_reload_crls() throws Exception {
+        final CrlRevocationChecker checker = new CrlRevocationChecker(directory, REFRESH_INTERVAL);
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isFalse();
+
+        Files.write(directory.resolve("intermediate.crl"), resource("/crl/rsa-2048-intermediate.crl"));
+        checker.reload();
+
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isTrue();
+    }
+
+    @Test
+    void should_keep_previous_crls_when_reload_fails() throws Exception {
+        Files.write(directory.resolve("intermediate.crl"), resource("/crl/rsa-2048-intermediate.crl"));
+        final CrlRevocationChecker checker = new CrlRevocationChecker(directory, REFRESH_INTERVAL);
+
+        Files.delete(directory.resolve("intermediate.crl"));
+        Files.delete(directory);
+        checker.reload();
+
+        assertThat(checker.isRevoked(loadCertificate("/benchmark/rsa-2048-leaf.pem"))).isTrue();
+    }
+
+    @SneakyThrows
+    private static byte[] resource(String name) {
+        try (InputStream is = CrlRevocationCheckerTest.class.getResourceAsStream(name)) {
+            return is.readAllBytes();
+        }
+    }
+
+    @SneakyThrows
+    private static X509Certificate loadCertificate(String name) {
+        try (InputStream is = CrlRevocationCheckerTest.class.getResourceAsStream(name)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class OcspCheckerTest {
+
+    private static final String RESPONDER_URL = "http://localhost/ocsp";
+    private static final long TIMEOUT = 2000;
+    private static final long MAX_CACHE_DURATION = TimeUnit.HOURS.toMillis(1);
+
+    private final OcspChecker cut = new OcspChecker(RESPONDER_URL, TIMEOUT, MAX_CACHE_DURATION);
+
+    @Test
+    void should_get_good_status_from_responder() throws Exception {
+        final OcspStatus status = cut
+            .status(loadCertificate("ec-p256-leaf"), loadCertificate("ec-p256-intermediate"), respondingWith("ec-p256-leaf"))
+            .toCompletableFuture()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(status).isEqualTo(OcspStatus.GOOD);
+    }
+
+    @Test
+    void should_get_revoked_status_from_responder() throws Exception {
+        final OcspStatus status = cut
+            .status(loadCertificate("rsa-2048-leaf"), loadCertificate("rsa-2048-intermediate"), respondingWith("rsa-2048-leaf"))
+            .toCompletableFuture()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(status).isEqualTo(OcspStatus.REVOKED);
+    }
+
+    @Test
+    void should_cache_status() throws Exception {
+        final X509Certificate certificate = loadCertificate("ec-p256-leaf");
+        final AtomicInteger calls = new AtomicInteger();
+        final OcspClient client = (url, request) -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(response("ec-p256-leaf"));
+        };
+        assertThat(cut.cachedStatus(certificate)).isNull();
+
+        cut.status(certificate, loadCertificate("ec-p256-intermediate"), client).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        cut.status(certificate, loadCertificate("ec-p256-intermediate"), client).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(calls).hasValue(1);
+        assertThat(cut.cachedStatus(certificate)).isEqualTo(OcspStatus.GOOD);
+    }
+
+    @Test
+    void should_coalesce_concurrent_lookups() throws Exception {
+        final X509Certificate certificate = loadCertificate("ec-p256-leaf");
+        final X509Certificate issuer = loadCertificate("ec-p256-intermediate");
+        final AtomicInteger calls = new AtomicInteger();
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        final OcspClient client = (url, request) -> {
+            calls.incrementAndGet();
+            return response;
+        };
+
+        final CompletionStage<OcspStatus> first = cut.status(certificate, issuer, client);
+        final CompletionStage<OcspStatus> second = cut.status(certificate, issuer, client);
+        response.complete(response("ec-p256-leaf"));
+
+        assertThat(first.toCompletableFuture().get(5, TimeUnit.SECONDS)).isEqualTo(OcspStatus.GOOD);
+        assertThat(second.toCompletableFuture().get(5, TimeUnit.SECONDS)).isEqualTo(OcspStatus.GOOD);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void should_verify_response_away_from_the_thread_receiving_it() throws Exception {
+        final AtomicReference<Thread> verifyingThread = new AtomicReference<>();
+        final OcspChecker checker = new OcspChecker(RESPONDER_URL, TIMEOUT, MAX_CACHE_DURATION) {
+            @Override
+            OcspResult verify(byte[] response, X509Certificate certificate, X509Certificate issuer) {
+                verifyingThread.set(Thread.currentThread());
+                return super.verify(response, certificate, issuer);
+            }
+        };
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        final CompletionStage<OcspStatus> status = checker.status(
+            loadCertificate("ec-p256-leaf"),
+            loadCertificate("ec-p256-intermediate"),
+            (url, request) -> response
+        );
+
+        final Thread eventLoop = new Thread(() -> response.complete(response("ec-p256-leaf")), "event-loop");
+        eventLoop.start();
+
+        assertThat(status.toCompletableFuture().get(5, TimeUnit.SECONDS)).isEqualTo(OcspStatus.GOOD);
+        assertThat(verifyingThread.get()).isNotNull().isNotSameAs(eventLoop);
+    }
+
+    @Test
+    void should_return_unknown_status_on_timeout() throws Exception {
+        final OcspChecker checker = new OcspChecker(RESPONDER_URL, 50, MAX_CACHE_DURATION);
+
+        final OcspStatus status = checker
+            .status(loadCertificate("ec-p256-leaf"), loadCertificate("ec-p256-intermediate"), (url, request) -> new CompletableFuture<>())
+            .toCompletableFuture()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(status).isEqualTo(OcspStatus.UNKNOWN);
+    }
+
+    @Test
+    void should_return_unknown_status_when_response_is_not_signed_by_issuer() throws Exception {
+        final OcspStatus status = cut
+            .status(loadCertificate("rsa-2048-leaf"), loadCertificate("rsa-2048-intermediate"), respondingWith("ec-p256-leaf"))
+            .toCompletableFuture()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(status).isEqualTo(OcspStatus.UNKNOWN);
+    }
+
+    @Test
+    void should_return_unknown_status_without_issuer() throws Exception {
+        final OcspStatus status = cut
+            .status(loadCertificate("ec-p256-leaf"), null, respondingWith("ec-p256-leaf"))
+            .toCompletableFuture()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(status).isEqualTo(OcspStatus.UNKNOWN);
+    }
+
+    @Test
+    void should_cache_status_until_next_update() {
+        final AtomicReference<Long> now = new AtomicReference<>(System.currentTimeMillis());
+        final OcspChecker checker = new OcspChecker(RESPONDER_URL, TIMEOUT, Long.MAX_VALUE / 2, now::get);
+
+        final OcspChecker.OcspResult result = checker.verify(
+            response("ec-p256-leaf"),
+            loadCertificate("ec-p256-leaf"),
+            loadCertificate("ec-p256-intermediate")
+        );
+
+        assertThat(result.status()).isEqualTo(OcspStatus.GOOD);
+        assertThat(result.expiresAt()).isEqualTo(
+            OcspMessages.nextUpdate(response("ec-p256-leaf"), loadCertificate("ec-p256-leaf").getSerialNumber().toByteArray())
+        );
+    }
+
+    @Test
+    void should_call_local_responder_over_http() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicReference<Buffer> received = new AtomicReference<>();
+            final HttpServer server = vertx
+                .createHttpServer()
+                .requestHandler(request ->
+                    request
+                        .body()
+                        .onSuccess(body -> {
+                            received.set(body);
+                            request
+                                .response()
+                                .putHeader("Content-Type", "application/ocsp-response")
+                                .end(Buffer.buffer(response("ec-p256-leaf")));
+                        })
+                )
+                .listen(0)
+                .toCompletionStage()
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+            final OcspChecker checker = new OcspChecker("http://localhost:" + server.actualPort() + "/ocsp", TIMEOUT, MAX_CACHE_DURATION);
+
+            final OcspStatus status = checker
+                .status(loadCertificate("ec-p256-leaf"), loadCertificate("ec-p256-intermediate"), new VertxOcspClient(vertx, TIMEOUT))
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+            assertThat(status).isEqualTo(OcspStatus.GOOD);
+            assertThat(received.get().getBytes()).isEqualTo(resource("/ocsp/ec-p256-leaf-request.der"));
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static OcspClient respondingWith(String name) {
+        return (url, request) -> CompletableFuture.completedFuture(response(name));
+    }
+
+    private static byte[] response(String name) {
+        return resource("/ocsp/" + name + ".der");
+    }
+
+    @SneakyThrows
+    private static byte[] resource(String name) {
+        try (InputStream is = OcspCheckerTest.class.getResourceAsStream(name)) {
+            return is.readAllBytes();
+        }
+    }
+
+    @SneakyThrows
+    private static X509Certificate loadCertificate(String name) {
+        try (InputStream is = OcspCheckerTest.class.getResourceAsStream("/benchmark/" + name + ".pem")) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.gravitee.policy.mtls.certificate.CertificateAttributes;
+import io.gravitee.policy.mtls.configuration.MtlsPolicyConfiguration;
+import java.io.InputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class CertificateRulesTest {
+
+    private static CertificateAttributes attributes;
+
+    @BeforeAll
+    @SneakyThrows
+    static void parseCertificate() {
+        try (InputStream is = CertificateRulesTest.class.getResourceAsStream("/benchmark/rsa-2048-leaf.pem")) {
+            attributes = CertificateAttributes.parse((X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is));
+        }
+    }
+
+    @Test
+    void should_parse_certificate_names() {
+        assertThat(attributes.subjectDn()).isEqualTo("O=Gravitee,CN=client.benchmark.gravitee.io");
+        assertThat(attributes.issuerDn()).isEqualTo("O=Gravitee,CN=Benchmark Intermediate CA rsa-2048");
+        assertThat(attributes.dnsNames()).containsExactly("client.benchmark.gravitee.io");
+        assertThat(attributes.uris()).containsExactly("spiffe://benchmark.gravitee.io/client");
+    }
+
+    @Test
+    void should_be_empty_without_rules() {
+        final CertificateRules rules = CertificateRules.compile(new MtlsPolicyConfiguration());
+
+        assertThat(rules.isEmpty()).isTrue();
+        assertThat(rules.matches(attributes)).isTrue();
+    }
+
+    @Test
+    void should_match_when_all_kinds_of_rules_match() {
+        final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+        configuration.setSubjectDnPatterns(List.of("CN=other", "O=Gravitee,CN=.*\\.benchmark\\.gravitee\\.io"));
+        configuration.setIssuerDns(List.of("o=gravitee, cn=Benchmark Intermediate CA rsa-2048"));
+        configuration.setSanDnsNames(List.of("*.benchmark.gravitee.io"));
+        configuration.setSanUris(List.of("spiffe://benchmark.gravitee.io/client"));
+        configuration.setSpiffeIds(List.of("spiffe://benchmark.gravitee.io"));
+
+        assertThat(CertificateRules.compile(configuration).matches(attributes)).isTrue();
+    }
+
+    @Test
+    void should_not_match_when_one_kind_of_rule_does_not_match() {
+        final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+        configuration.setSanDnsNames(List.of("client.benchmark.gravitee.io"));
+        configuration.setSpiffeIds(List.of("spiffe://benchmark.gravitee.io/another-client"));
+
+        assertThat(CertificateRules.compile(configuration).matches(attributes)).isFalse();
+    }
+
+    @Test
+    void should_not_match_unknown_issuer() {
+        final MtlsPolicyConfiguration configuration = new MtlsPolicyConfiguration();
+        configuration.setIssuerDns(List.of("O=Gravitee,CN=Benchmark Root CA rsa-2048"));
+
+        assertThat(CertificateRules.compile(configuration).matches(attributes)).isFalse();
+    }
+
+    @Test
+    void should_reject_invalid_rules() {
+        final MtlsPolicyConfiguration invalidSpiffeId = new MtlsPolicyConfiguration();
+        invalidSpiffeId.setSpiffeIds(List.of("https://benchmark.gravitee.io"));
+        final MtlsPolicyConfiguration invalidPattern = new MtlsPolicyConfiguration();
+        invalidPattern.setSubjectDnPatterns(List.of("CN=("));
+
+        assertThatThrownBy(() -> CertificateRules.compile(invalidSpiffeId)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CertificateRules.compile(invalidPattern)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2015 The Gravitee team (http://gravitee.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gravitee.policy.mtls.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author GraviteeSource Team
+ */
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class DnsNameMatcherTest {
+
+    private final DnsNameMatcher cut = DnsNameMatcher.compile(List.of("api.gravitee.io", "*.partners.gravitee.io", "Gravitee.COM."));
+
+    @Test
+    void should_match_exact_names() {
+        assertThat(cut.matches("api.gravitee.io")).isTrue();
+        assertThat(cut.matches("gravitee.com")).isTrue();
+        assertThat(cut.matches("gravitee.com.")).isTrue();
+    }
+
+    @Test
+    void should_not_match_parent_or_child_of_exact_names() {
+        assertThat(cut.matches("gravitee.io")).isFalse();
+        assertThat(cut.matches("v1.api.gravitee.io")).isFalse();
+        assertThat(cut.matches("io")).isFalse();
+    }
+
+    @Test
+    void should_match_one_label_with_wildcard() {
+        assertThat(cut.matches("acme.partners.gravitee.io")).isTrue();
+        assertThat(cut.matches("partners.gravitee.io")).isFalse();
+        assertThat(cut.matches("eu.acme.partners.gravitee.io")).isFalse();
+        assertThat(cut.matches(".partners.gravitee.io")).isFalse();
+    }
+
+    @Test
+    void should_not_match_invalid_names() {
+        assertThat(cut.matches(null)).isFalse();
+        assertThat(cut.matches("")).isFalse();
+        assertThat(cut.matches("api..gravitee.io")).isFalse();
+    }
+
+    @Test
+    void should_reject_invalid_patterns() {
+        assertThatThrownBy(() -> DnsNameMatcher.compile(List.of("api.*.gravitee.io"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DnsNameMatcher.compile(List.of("*"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DnsNameMatcher.compile(List.of("api..gravitee.io"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_be_empty() {
+        assertThat(DnsNameMatcher.compile(List.of()).isEmpty()).isTrue();
+        assertThat(DnsNameMatcher.compile(null).matches("api.gravitee.io")).isFalse();
+    }
+}